@@ -0,0 +1,51 @@
+package com.example.treeapi.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports {@code sql.statements} (prepared statements per operation) for benchmarks that call {@link #record}.
+ * Unlike an {@code @AuxCounters} field, the value is averaged over iterations instead of summed.
+ * {@link BenchmarkMain} always adds this profiler; benchmarks that record nothing get no extra result.
+ */
+public class SqlStatementsProfiler implements InternalProfiler {
+
+    private static final LongAdder STATEMENTS = new LongAdder();
+    private static final LongAdder OPERATIONS = new LongAdder();
+
+    static void record(long statements) {
+        STATEMENTS.add(statements);
+        OPERATIONS.increment();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Prepared SQL statements per operation, from Hibernate statistics";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        STATEMENTS.reset();
+        OPERATIONS.reset();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        long operations = OPERATIONS.sum();
+        if (operations == 0) {
+            return List.of();
+        }
+        return List.of(new ScalarResult("sql.statements", (double) STATEMENTS.sum() / operations, "#/op",
+                AggregationPolicy.AVG));
+    }
+}
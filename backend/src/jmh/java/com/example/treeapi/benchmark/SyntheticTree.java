@@ -0,0 +1,133 @@
+package com.example.treeapi.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a balanced tree into NODE_INFO / SENSOR_INFO / NODE_SENSOR_MAP.
+ * <p>
+ * The shape is written {@code <depth>x<fanOut>x<sensorsPerNode>}: {@code 3x6x4} is 258 folders and about 1k sensors,
+ * {@code 4x10x90} is 11k folders and 1M sensors. Root folders hang off the virtual root (ID=1) like in production.
+ * Folder names are {@code N<id>} and sensor names {@code S<id>}, so a query such as {@code "N1"} hits many folders.
+ */
+public final class SyntheticTree {
+
+    private static final int BATCH_SIZE = 5_000;
+
+    private final int depth;
+    private final int fanOut;
+    private final int sensorsPerNode;
+
+    private long nextNodeId = 1_000L;
+    private long nextSensorId = 1_000L;
+    private long deepestNodeId;
+    private long lastTopLevelNodeId;
+    private int nodeCount;
+    private int sensorCount;
+
+    private SyntheticTree(int depth, int fanOut, int sensorsPerNode) {
+        if (depth < 1 || fanOut < 1 || sensorsPerNode < 0) {
+            throw new IllegalArgumentException("Invalid tree shape: " + depth + "x" + fanOut + "x" + sensorsPerNode);
+        }
+        this.depth = depth;
+        this.fanOut = fanOut;
+        this.sensorsPerNode = sensorsPerNode;
+    }
+
+    public static SyntheticTree parse(String shape) {
+        String[] parts = shape.split("x");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Tree shape must be <depth>x<fanOut>x<sensorsPerNode>: " + shape);
+        }
+        return new SyntheticTree(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+    }
+
+    /**
+     * Replaces the contents of the three tables with the generated tree.
+     */
+    public SyntheticTree writeTo(JdbcTemplate jdbc) {
+        jdbc.update("DELETE FROM NODE_SENSOR_MAP");
+        jdbc.update("DELETE FROM SENSOR_INFO");
+        jdbc.update("DELETE FROM NODE_INFO");
+
+        List<Object[]> nodes = new ArrayList<>();
+        List<Object[]> sensors = new ArrayList<>();
+        List<Object[]> mappings = new ArrayList<>();
+        nodes.add(new Object[]{1L, "ROOT", "ROOT", null});
+
+        // Breadth-first, one level at a time, so ids grow with depth.
+        List<Long> level = List.of(1L);
+        List<String> paths = new ArrayList<>();
+        paths.add(null);
+        for (int d = 1; d <= depth; d++) {
+            List<Long> nextLevel = new ArrayList<>();
+            List<String> nextPaths = new ArrayList<>();
+            for (int p = 0; p < level.size(); p++) {
+                long parentId = level.get(p);
+                for (int c = 0; c < fanOut; c++) {
+                    long id = nextNodeId++;
+                    String name = "N" + id;
+                    String path = paths.get(p) == null ? name : paths.get(p) + "|" + name;
+                    nodes.add(new Object[]{id, path, name, parentId});
+                    for (int s = 0; s < sensorsPerNode; s++) {
+                        long sensorId = nextSensorId++;
+                        sensors.add(new Object[]{sensorId, "S" + sensorId});
+                        mappings.add(new Object[]{id, sensorId});
+                    }
+                    nextLevel.add(id);
+                    nextPaths.add(path);
+                    if (d == 1) {
+                        lastTopLevelNodeId = id;
+                    }
+                    deepestNodeId = id;
+                }
+                flush(jdbc, nodes, sensors, mappings, false);
+            }
+            level = nextLevel;
+            paths = nextPaths;
+        }
+        flush(jdbc, nodes, sensors, mappings, true);
+        return this;
+    }
+
+    private void flush(JdbcTemplate jdbc, List<Object[]> nodes, List<Object[]> sensors, List<Object[]> mappings,
+                       boolean force) {
+        if (!force && nodes.size() < BATCH_SIZE && sensors.size() < BATCH_SIZE) {
+            return;
+        }
+        // Mappings reference both tables, so they always go last
+        jdbc.batchUpdate("INSERT INTO NODE_INFO (ID, NODE_PATH, NODE_NAME, PARENT_ID) VALUES (?, ?, ?, ?)", nodes);
+        jdbc.batchUpdate("INSERT INTO SENSOR_INFO (ID, SENSOR_NAME) VALUES (?, ?)", sensors);
+        jdbc.batchUpdate("INSERT INTO NODE_SENSOR_MAP (NODE_ID, SENSOR_ID) VALUES (?, ?)", mappings);
+        nodeCount += nodes.size();
+        sensorCount += sensors.size();
+        nodes.clear();
+        sensors.clear();
+        mappings.clear();
+    }
+
+    /** A leaf on the last level: the longest path in the tree. */
+    public long deepestNodeId() {
+        return deepestNodeId;
+    }
+
+    /** A first-level folder, whose children are {@code fanOut} folders plus {@code sensorsPerNode} sensors. */
+    public long topLevelNodeId() {
+        return lastTopLevelNodeId;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int sensorCount() {
+        return sensorCount;
+    }
+
+    @Override
+    public String toString() {
+        return depth + "x" + fanOut + "x" + sensorsPerNode + " (" + nodeCount + " nodes, " + sensorCount + " sensors)";
+    }
+}
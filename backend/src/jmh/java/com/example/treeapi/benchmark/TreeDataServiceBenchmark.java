@@ -0,0 +1,120 @@
+package com.example.treeapi.benchmark;
+
+import com.example.treeapi.TreeApiApplication;
+import com.example.treeapi.repository.NodeRepository;
+import com.example.treeapi.service.TreeDataService;
+import com.example.treeapi.service.snapshot.TreeSnapshotHolder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link TreeDataService} hot paths against H2 in Oracle mode (the "test" profile, caches off) over a
+ * {@link SyntheticTree}.
+ * <p>
+ * Throughput gives ops/ms (add {@code -tu s} for ops/s) and SampleTime gives the latency percentiles (p0.99). The {@code sql.statements}
+ * secondary result comes from {@link SqlStatementsProfiler}. Allocations per op come from the GC profiler:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="TreeDataServiceBenchmark -prof gc"
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="TreeDataServiceBenchmark -p shape=2x1000x50 -p source=database"
+ * </pre>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TreeDataServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Tree {
+
+        /** {@code <depth>x<fanOut>x<sensorsPerNode>}, see {@link SyntheticTree}. */
+        @Param({"3x6x4", "4x10x90"})
+        public String shape;
+
+        /** {@code database} reads through the repositories, {@code snapshot} from the in-memory snapshot. */
+        @Param({"database", "snapshot"})
+        public String source;
+
+        ConfigurableApplicationContext context;
+        TreeDataService service;
+        NodeRepository nodeRepository;
+        Statistics statistics;
+        SyntheticTree tree;
+        String exactQuery;
+
+        @Setup(Level.Trial)
+        public void start() {
+            boolean snapshot = "snapshot".equals(source);
+            context = new SpringApplicationBuilder(TreeApiApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .profiles("test")
+                    .properties("spring.main.banner-mode=off",
+                            "logging.level.root=WARN",
+                            "logging.level.com.example.treeapi=WARN",
+                            "app.tree.snapshot.enabled=" + snapshot)
+                    .run();
+            tree = SyntheticTree.parse(shape).writeTo(context.getBean(JdbcTemplate.class));
+            if (snapshot) {
+                context.getBean(TreeSnapshotHolder.class).refresh();
+            }
+            service = context.getBean(TreeDataService.class);
+            nodeRepository = context.getBean(NodeRepository.class);
+            statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+            exactQuery = "N" + tree.deepestNodeId();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+
+        <T> T counted(Supplier<T> operation) {
+            long before = statistics.getPrepareStatementCount();
+            T result = operation.get();
+            SqlStatementsProfiler.record(statistics.getPrepareStatementCount() - before);
+            return result;
+        }
+    }
+
+    @Benchmark
+    public Object getRootNodes(Tree tree) {
+        return tree.counted(tree.service::getRootNodes);
+    }
+
+    @Benchmark
+    public Object getChildrenOf(Tree tree) {
+        return tree.counted(() -> tree.service.getChildrenOf(tree.tree.topLevelNodeId()));
+    }
+
+    @Benchmark
+    public Object searchNodesBroad(Tree tree) {
+        // Matches a large share of all folders, so the result is capped at app.search.max-results
+        return tree.counted(() -> tree.service.searchNodes("N1"));
+    }
+
+    @Benchmark
+    public Object searchNodesExact(Tree tree) {
+        return tree.counted(() -> tree.service.searchNodes(tree.exactQuery));
+    }
+
+    @Benchmark
+    public Object revealPath(Tree tree) {
+        return tree.counted(() -> tree.service.revealPath(tree.tree.deepestNodeId()));
+    }
+
+    @Benchmark
+    public Object findPath(Tree tree) {
+        // The recursive ancestor query behind revealPath and search paths, always against the database
+        return tree.counted(() -> tree.nodeRepository.findPathSummaries(tree.tree.deepestNodeId()));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.treeapi.config;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the rate-limit check on the request path, with eight threads hitting the same store.
+ * <p>
+ * One key is the worst case for contention (every thread CASes the same bucket); 10000 keys is a busy
+ * deployment where the store is spread over all stripes. The budget is large enough that every call is allowed,
+ * so the measured path is the one every admitted request takes. At 20k req/s a request may spend 50 µs in total
+ * across all threads before the check becomes measurable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBucketsBenchmark {
+
+    @Param({"1", "10000"})
+    private int clients;
+
+    private TokenBuckets buckets;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buckets = new TokenBuckets(Integer.MAX_VALUE, Integer.MAX_VALUE / 2, 100_000);
+        keys = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            keys[i] = "a:10.0." + (i >> 8) + '.' + (i & 0xff);
+        }
+    }
+
+    @Benchmark
+    public long tryAcquire() {
+        return buckets.tryAcquire(keys[ThreadLocalRandom.current().nextInt(keys.length)]);
+    }
+}
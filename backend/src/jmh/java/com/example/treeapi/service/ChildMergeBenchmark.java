@@ -0,0 +1,67 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.dto.NodeDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combining the folder and sensor children of one parent: sorting the concatenation of two unordered lists
+ * (the former {@code getChildrenOf}) versus merging two lists the database already returned ordered by name.
+ * <p>
+ * Only the JVM side is measured; DTO mapping is identical in both variants and happens in the setup.
+ * One in ten children is a folder, as on the aggregation nodes that motivated the change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ChildMergeBenchmark {
+
+    private static final Comparator<NodeDto> NAME_ORDER =
+            Comparator.comparing(NodeDto::getName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    @Param({"10000", "100000", "1000000"})
+    private int children;
+
+    private List<NodeDto> unorderedFolders;
+    private List<NodeDto> unorderedSensors;
+    private List<NodeDto> orderedFolders;
+    private List<NodeDto> orderedSensors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        unorderedFolders = new ArrayList<>();
+        unorderedSensors = new ArrayList<>();
+        for (int i = 0; i < children; i++) {
+            boolean folder = i % 10 == 0;
+            NodeDto dto = new NodeDto();
+            dto.setId(Integer.toString(i));
+            // Folder and sensor names interleave, so the merge really alternates between the two sources
+            dto.setName("CH-" + Integer.toString(random.nextInt(Integer.MAX_VALUE), 36));
+            dto.setType(folder ? "folder" : "sensor");
+            (folder ? unorderedFolders : unorderedSensors).add(dto);
+        }
+        orderedFolders = new ArrayList<>(unorderedFolders);
+        orderedFolders.sort(NAME_ORDER);
+        orderedSensors = new ArrayList<>(unorderedSensors);
+        orderedSensors.sort(NAME_ORDER);
+    }
+
+    @Benchmark
+    public List<NodeDto> sortCombined() {
+        List<NodeDto> childNodes = new ArrayList<>(unorderedFolders);
+        childNodes.addAll(unorderedSensors);
+        childNodes.sort(NAME_ORDER);
+        return childNodes;
+    }
+
+    @Benchmark
+    public List<NodeDto> mergeOrdered() {
+        return SortedMerge.merge(List.of(orderedFolders, orderedSensors), NAME_ORDER);
+    }
+}
@@ -1,11 +1,17 @@
 package com.example.treeapi.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+@Slf4j
 @Configuration
 public class AppConfig {
 
@@ -18,5 +24,42 @@ public class AppConfig {
     public ScheduledExecutorService webSocketScheduler() {
         return Executors.newSingleThreadScheduledExecutor();
     }
-}
 
+    /**
+     * 트리 스냅샷 적재/재적재 작업을 위한 스케줄러를 Bean으로 등록합니다.
+     * 스냅샷 재구성은 수 초가 걸릴 수 있으므로 WebSocket 스케줄러와 분리합니다.
+     * @return ScheduledExecutorService 인스턴스
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService treeSnapshotScheduler() {
+        return Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * 폴더/센서 쿼리를 병렬로 실행하는 {@link com.example.treeapi.service.ParallelQueries} 용 실행기를 Bean으로 등록합니다.
+     * {@code spring.threads.virtual.enabled} 가 true 이고 Java 21 이상이면 작업마다 가상 스레드를 사용하고,
+     * 그 외에는 {@code app.tree.parallel-queries.max-concurrency} 크기의 플랫폼 스레드 풀을 사용합니다.
+     * 동시 실행 수는 어느 경우든 ParallelQueries 가 제한합니다.
+     * @return ExecutorService 인스턴스
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService treeQueryExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                             @Value("${app.tree.parallel-queries.max-concurrency:8}") int maxConcurrency) {
+        if (virtualThreads) {
+            try {
+                // Java 17 로 컴파일하므로 Java 21 API 는 리플렉션으로 호출합니다.
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads are not available on Java {}; using platform threads for parallel queries",
+                        Runtime.version().feature());
+            }
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "tree-query-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(Math.max(1, maxConcurrency), threadFactory);
+    }
+}
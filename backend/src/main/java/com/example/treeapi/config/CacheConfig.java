@@ -0,0 +1,63 @@
+package com.example.treeapi.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+@ConditionalOnProperty(name = "cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheConfig {
+
+    public static final String ROOT_NODES = "rootNodes";
+    public static final String CHILDREN = "children";
+    public static final String REVEAL_PATH = "revealPath";
+
+    /**
+     * 트리 조회 결과 캐시 매니저를 Bean으로 등록합니다.
+     * 크기(cache.max-entries)와 TTL(cache.time-to-live, 초) 기준으로 캐시별로 독립적으로 제거되며,
+     * 통계를 기록하므로 Actuator 가 cache.gets / cache.evictions 메트릭을 캐시별로 노출합니다.
+     * @return CacheManager 인스턴스
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${cache.max-entries:1000}") long maxEntries,
+                                     @Value("${cache.time-to-live:300}") long timeToLiveSeconds) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(timeToLiveSeconds))
+                .recordStats());
+        // 캐시 이름을 고정하여 기동 시점에 모든 캐시의 메트릭이 등록되도록 합니다.
+        cacheManager.setCacheNames(List.of(ROOT_NODES, CHILDREN, REVEAL_PATH));
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+
+    /**
+     * 캐시별 적중률을 tree.cache.hit.ratio 게이지로 노출합니다.
+     * 기동 후 누적값이므로, 특정 구간의 적중률은 cache.gets 의 result=hit/miss 비율로 구합니다.
+     * @return MeterBinder 인스턴스
+     */
+    @Bean
+    public MeterBinder cacheHitRatios(CacheManager cacheManager) {
+        return registry -> cacheManager.getCacheNames().forEach(name -> {
+            if (cacheManager.getCache(name) instanceof CaffeineCache cache) {
+                Gauge.builder("tree.cache.hit.ratio", cache.getNativeCache(), c -> c.stats().hitRate())
+                        .description("Share of lookups answered from the cache since startup")
+                        .tag("cache", name)
+                        .register(registry);
+            }
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.treeapi.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * 요청별 SQL 문장 수(tree.service.statements)를 세는 {@link SqlStatementCounter} 를 Hibernate 에 등록합니다.
+     * 전체 합계는 hibernate.generate_statistics 로 켠 Hibernate 통계가 hibernate.* 메트릭으로 노출합니다.
+     * @return HibernatePropertiesCustomizer 인스턴스
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounter() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+
+    /**
+     * UCP 커넥션 풀의 대기 관련 메트릭을 등록합니다. (UCP 를 쓰지 않는 dev/test 에서는 아무것도 등록하지 않음)
+     * 사용 중/유휴 커넥션 수는 Spring Boot 가 jdbc.connections.* 로 이미 노출하므로,
+     * 여기서는 대기 중인 요청 수와 커넥션을 얻기까지 기다린 시간을 추가합니다.
+     * 최근 평균 대기 시간은 rate(ucp_connections_wait_seconds_sum) / rate(ucp_connections_wait_seconds_count) 로 구합니다.
+     * UCP 타입에 붙은 ojdbc 애너테이션 때문에 javac 가 경고하므로 UCP 를 컴파일 의존성 없이 이름과 getter 로만 읽습니다.
+     * @return MeterBinder 인스턴스
+     */
+    @Bean
+    public MeterBinder ucpPoolMetrics(DataSource dataSource) {
+        return registry -> {
+            UcpPool pool = UcpPool.unwrap(dataSource);
+            if (pool == null) {
+                return;
+            }
+            String name = pool.name() == null ? "dataSource" : pool.name();
+            Gauge.builder("ucp.connections.borrowed", pool, p -> p.count("getBorrowedConnectionsCount"))
+                    .description("Connections currently borrowed from the pool").tag("pool", name).register(registry);
+            Gauge.builder("ucp.connections.available", pool, p -> p.count("getAvailableConnectionsCount"))
+                    .description("Idle connections in the pool").tag("pool", name).register(registry);
+            Gauge.builder("ucp.connections.pending", pool, p -> p.statistic("getPendingRequestsCount"))
+                    .description("Borrow requests waiting for a connection").tag("pool", name).register(registry);
+            TimeGauge.builder("ucp.connections.wait.peak", pool, TimeUnit.MILLISECONDS,
+                            p -> p.statistic("getPeakConnectionWaitTime"))
+                    .description("Longest time a borrow request waited for a connection").tag("pool", name).register(registry);
+            FunctionTimer.builder("ucp.connections.wait", pool,
+                            p -> {
+                                double waits = p.statistic("getCumulativeSuccessfulConnectionWaitCount")
+                                        + p.statistic("getCumulativeFailedConnectionWaitCount");
+                                return Double.isNaN(waits) ? 0 : (long) waits;
+                            },
+                            p -> p.statistic("getCumulativeConnectionWaitTime"),
+                            TimeUnit.MILLISECONDS)
+                    .description("Borrow requests that had to wait for a connection, and the time they waited")
+                    .tag("pool", name).register(registry);
+            FunctionCounter.builder("ucp.connections.wait.failed", pool,
+                            p -> p.statistic("getCumulativeFailedConnectionWaitCount"))
+                    .description("Borrow requests that gave up waiting (connection-wait-timeout)")
+                    .tag("pool", name).register(registry);
+        };
+    }
+
+    /**
+     * oracle.ucp.jdbc.PoolDataSource 와 그 통계(oracle.ucp.UniversalConnectionPoolStatistics)를 리플렉션으로 읽습니다.
+     * 구현 클래스가 아닌 공개 인터페이스의 메서드를 호출하며, 읽지 못하면 NaN 입니다.
+     */
+    private record UcpPool(Object pool, Class<?> poolType, Class<?> statisticsType) {
+
+        // UCP 가 클래스패스에 없거나 풀이 UCP 가 아니면 null
+        static UcpPool unwrap(DataSource dataSource) {
+            Class<?> poolType;
+            Class<?> statisticsType;
+            try {
+                ClassLoader loader = MetricsConfig.class.getClassLoader();
+                poolType = Class.forName("oracle.ucp.jdbc.PoolDataSource", false, loader);
+                statisticsType = Class.forName("oracle.ucp.UniversalConnectionPoolStatistics", false, loader);
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+            Object pool = DataSourceUnwrapper.unwrap(dataSource, poolType);
+            return pool == null ? null : new UcpPool(pool, poolType, statisticsType);
+        }
+
+        String name() {
+            Object name = invoke(poolType, pool, "getConnectionPoolName");
+            return name == null ? null : name.toString();
+        }
+
+        double count(String getter) {
+            return number(invoke(poolType, pool, getter));
+        }
+
+        // 풀이 아직 시작되지 않았으면 통계가 없습니다.
+        double statistic(String getter) {
+            Object statistics = invoke(poolType, pool, "getStatistics");
+            return statistics == null ? Double.NaN : number(invoke(statisticsType, statistics, getter));
+        }
+
+        private static Object invoke(Class<?> type, Object target, String getter) {
+            try {
+                return type.getMethod(getter).invoke(target);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        private static double number(Object value) {
+            return value instanceof Number number ? number.doubleValue() : Double.NaN;
+        }
+    }
+}
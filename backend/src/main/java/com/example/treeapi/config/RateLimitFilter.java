@@ -0,0 +1,102 @@
+package com.example.treeapi.config;
+
+import com.example.treeapi.handler.GlobalExceptionHandler.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.web.cors.DefaultCorsProcessor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/** 요청을 클라이언트별 토큰 버킷({@link TokenBuckets})으로 제한합니다.
+ * 검색(POST /api/nodes/search)과 그 밖의 조회는 별도 예산을 쓰므로, 검색을 남발해도 트리 탐색은 계속 가능합니다.
+ * 클라이언트는 원격 주소로 구분합니다. 이 애플리케이션은 Authorization 헤더를 검증하지 않으므로,
+ * 헤더 값으로 구분하면 요청마다 헤더만 바꿔 새 예산을 받거나 가짜 버킷으로 버킷 수 한도를 채울 수 있습니다.
+ * 따라서 원격 주소가 실제 클라이언트 주소일 때만 켜야 합니다. 프록시 뒤에서는 server.forward-headers-strategy
+ * (prod 프로필 기본 native) 로 X-Forwarded-For 가 원격 주소에 반영되어야 하며, 아니면 모든 요청이 프록시의 버킷 하나를 씁니다.
+ * 기본값은 꺼짐입니다 (app.security.rate-limit.enabled).
+ * 한도를 넘으면 429 와 다음 토큰까지의 초를 Retry-After 로 반환합니다.
+ * 이 응답은 MVC 의 CORS 처리 전에 나가므로, 브라우저가 읽을 수 있도록 {@link WebConfig} 의 CORS 설정을 직접 적용합니다.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String SEARCH_PATH = "/api/nodes/search";
+
+    private final boolean enabled;
+    private final TokenBuckets browseBuckets;
+    private final TokenBuckets searchBuckets;
+    private final ObjectMapper objectMapper;
+    private final CorsConfigurationSource corsConfigurationSource;
+    private final Counter browseRejected;
+    private final Counter searchRejected;
+
+    public RateLimitFilter(@Value("${app.security.rate-limit.enabled:false}") boolean enabled,
+                           @Value("${app.security.rate-limit.requests-per-minute:100}") int browsePerMinute,
+                           @Value("${app.security.rate-limit.search-requests-per-minute:30}") int searchPerMinute,
+                           @Value("${app.security.rate-limit.max-clients:100000}") int maxClients,
+                           ObjectMapper objectMapper,
+                           @Qualifier("mvcHandlerMappingIntrospector") CorsConfigurationSource corsConfigurationSource,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        // 1분 치 예산은 한 번에 쓸 수 있습니다 (burst = 분당 한도).
+        this.browseBuckets = new TokenBuckets(browsePerMinute, browsePerMinute, maxClients);
+        this.searchBuckets = new TokenBuckets(searchPerMinute, searchPerMinute, maxClients);
+        this.objectMapper = objectMapper;
+        this.corsConfigurationSource = corsConfigurationSource;
+        this.browseRejected = Counter.builder("tree.ratelimit.rejected").tag("budget", "browse").register(meterRegistry);
+        this.searchRejected = Counter.builder("tree.ratelimit.rejected").tag("budget", "search").register(meterRegistry);
+        Gauge.builder("tree.ratelimit.clients", () -> browseBuckets.size() + searchBuckets.size())
+                .description("Clients with a live rate-limit bucket")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // CORS preflight 는 예산을 쓰지 않습니다.
+        return !enabled || "OPTIONS".equals(request.getMethod()) || !pathOf(request).startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean search = "POST".equals(request.getMethod()) && SEARCH_PATH.equals(pathOf(request));
+        long waitNanos = (search ? searchBuckets : browseBuckets).tryAcquire(request.getRemoteAddr());
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        (search ? searchRejected : browseRejected).increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        CorsConfiguration corsConfiguration = corsConfigurationSource.getCorsConfiguration(request);
+        if (corsConfiguration != null && !new DefaultCorsProcessor().processRequest(corsConfiguration, request, response)) {
+            return; // 허용되지 않은 Origin: CORS 처리기가 403 을 반환
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse("RATE_LIMITED", "Too many requests; retry after " + retryAfterSeconds + "s"));
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.treeapi.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 호출 단위로 실행된 SQL 문장 수를 셉니다. Hibernate 가 문장을 준비할 때마다 현재 스레드에 걸린 카운터를 올립니다.
+ * <p>
+ * Hibernate 통계의 문장 수는 전체 합계라 동시 요청이 섞이지만, 이 카운터는 {@link #count} 로 감싼 호출과
+ * {@link #propagate} 로 넘긴 병렬 쿼리의 문장만 셉니다. SQL 은 바꾸지 않습니다.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<LongAdder> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        LongAdder counter = CURRENT.get();
+        if (counter != null) {
+            counter.increment();
+        }
+        return sql;
+    }
+
+    /**
+     * {@code call} 이 실행한 문장 수를 {@code counter} 에 더합니다.
+     * 이미 세는 중인 호출 안에서 부르면 바깥 카운터에도 더해집니다.
+     */
+    public static <T> T count(LongAdder counter, Supplier<T> call) {
+        LongAdder outer = CURRENT.get();
+        CURRENT.set(counter);
+        try {
+            return call.get();
+        } finally {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+                outer.add(counter.sum());
+            }
+        }
+    }
+
+    /**
+     * 다른 스레드에서 실행될 {@code call} 의 문장이 호출한 쪽의 카운터에 더해지도록 감쌉니다.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> call) {
+        LongAdder counter = CURRENT.get();
+        if (counter == null) {
+            return call;
+        }
+        return () -> {
+            CURRENT.set(counter);
+            try {
+                return call.get();
+            } finally {
+                CURRENT.remove();
+            }
+        };
+    }
+}
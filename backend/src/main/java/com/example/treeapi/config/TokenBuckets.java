@@ -0,0 +1,105 @@
+package com.example.treeapi.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 클라이언트별 토큰 버킷 저장소. 버킷 하나는 GCRA(Generic Cell Rate Algorithm)의 "이론적 도착 시각" 하나를
+ * {@link AtomicLong} 으로 담으므로, 잠금 없이 CAS 한 번으로 토큰을 소비합니다.
+ * <p>
+ * 분당 {@code permitsPerMinute} 개의 토큰이 채워지고, 최대 {@code burst} 개까지 한 번에 쓸 수 있습니다.
+ * 이론적 도착 시각이 지난 버킷은 새 버킷과 완전히 같으므로 지워도 동작이 바뀌지 않습니다.
+ * 키는 {@value #STRIPES} 개의 구역으로 나뉘고, 구역이 가득 차면 그런 유휴 버킷만 정리합니다.
+ * 그래도 가득 차 있으면 새 클라이언트들은 구역별 공용 버킷을 함께 사용하므로 메모리는 {@code maxKeys} 를 넘지 않습니다.
+ */
+public final class TokenBuckets {
+
+    static final int STRIPES = 16;
+
+    private final long emissionInterval;
+    private final long tolerance;
+    private final int maxKeysPerStripe;
+    private final LongSupplier nanoClock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public TokenBuckets(int permitsPerMinute, int burst, int maxKeys) {
+        this(permitsPerMinute, burst, maxKeys, System::nanoTime);
+    }
+
+    TokenBuckets(int permitsPerMinute, int burst, int maxKeys, LongSupplier nanoClock) {
+        if (permitsPerMinute < 1 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerMinute and burst must be positive");
+        }
+        this.emissionInterval = TimeUnit.MINUTES.toNanos(1) / permitsPerMinute;
+        this.tolerance = (burst - 1) * emissionInterval;
+        this.maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+        this.nanoClock = nanoClock;
+        long now = nanoClock.getAsLong();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(now);
+        }
+    }
+
+    /**
+     * 토큰 하나를 소비합니다.
+     * @return 허용되면 0, 거부되면 다음 토큰까지 남은 나노초
+     */
+    public long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        Stripe stripe = stripes[(key.hashCode() ^ (key.hashCode() >>> 16)) & (STRIPES - 1)];
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            bucket = stripe.bucketForNewKey(key, now);
+        }
+        while (true) {
+            // nanoTime 값은 차이로만 비교합니다.
+            long arrival = bucket.get();
+            long base = arrival - now > 0 ? arrival : now;
+            long wait = base - tolerance - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, base + emissionInterval)) {
+                return 0;
+            }
+        }
+    }
+
+    /** @return 현재 추적 중인 클라이언트 수 */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    private final class Stripe {
+
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        // 가득 찬 구역을 요청마다 훑지 않도록, 정리에 실패하면 토큰 하나가 채워질 때까지 다시 시도하지 않음
+        private final AtomicLong nextSweepAt;
+        private final AtomicLong overflow;
+
+        private Stripe(long now) {
+            this.nextSweepAt = new AtomicLong(now);
+            this.overflow = new AtomicLong(now);
+        }
+
+        private AtomicLong bucketForNewKey(String key, long now) {
+            if (buckets.size() >= maxKeysPerStripe) {
+                long sweepAt = nextSweepAt.get();
+                if (now - sweepAt >= 0 && nextSweepAt.compareAndSet(sweepAt, now + emissionInterval)) {
+                    // 경쟁 중인 요청이 지워진 버킷으로 한 번 더 허용될 수 있지만, 지워지는 버킷은 어차피 가득 찬 상태입니다.
+                    buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+                }
+                if (buckets.size() >= maxKeysPerStripe) {
+                    return overflow;
+                }
+            }
+            return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+    }
+}
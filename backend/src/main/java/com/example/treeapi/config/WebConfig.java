@@ -1,9 +1,16 @@
 package com.example.treeapi.config;
 
+import com.example.treeapi.controller.NodeController;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
@@ -13,6 +20,17 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOrigins("http://localhost:3000") // "http://localhost:3000"からのオリジンを許可
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS") // 허용할 HTTP 메서드
                 .allowedHeaders("*") // 모든 헤더를 허용
+                .exposedHeaders("X-Total-Count", "X-Result-Truncated", "Retry-After") // 검색 결과 잘림 여부와 429 재시도 시각을 클라이언트에 노출
                 .allowCredentials(true); // 자격 증명(쿠키 등)을 허용
     }
+
+    // 압축 표현(application/vnd.tree.compact+cbor)을 CBOR 로 직렬화하는 컨버터를 추가합니다.
+    // +json 압축 표현은 기본 JSON 컨버터가 application/*+json 으로 처리합니다.
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        MappingJackson2CborHttpMessageConverter cbor =
+                new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor().build());
+        cbor.setSupportedMediaTypes(List.of(MediaType.parseMediaType(NodeController.COMPACT_CBOR_VALUE)));
+        converters.add(cbor);
+    }
 }
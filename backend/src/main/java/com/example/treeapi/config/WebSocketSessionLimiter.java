@@ -0,0 +1,60 @@
+package com.example.treeapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 동시 STOMP 세션 수를 app.websocket.max-sessions 로 제한합니다.
+ * 한도를 넘는 CONNECT 는 거부되어 클라이언트가 ERROR 프레임을 받습니다.
+ * 연결이 비정상 종료되어도 STOMP 핸들러가 DISCONNECT 를 보내므로 세션이 정리됩니다.
+ */
+@Slf4j
+@Component
+public class WebSocketSessionLimiter implements ChannelInterceptor {
+
+    private final int maxSessions;
+    private final Set<String> sessions = new HashSet<>();
+
+    public WebSocketSessionLimiter(@Value("${app.websocket.max-sessions:1000}") int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getSessionId() == null) {
+            return message;
+        }
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            synchronized (sessions) {
+                if (sessions.size() >= maxSessions && !sessions.contains(accessor.getSessionId())) {
+                    log.warn("Rejecting WebSocket session {}: {} sessions already open", accessor.getSessionId(), maxSessions);
+                    throw new MessageDeliveryException("Too many WebSocket sessions");
+                }
+                sessions.add(accessor.getSessionId());
+            }
+        } else if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            synchronized (sessions) {
+                sessions.remove(accessor.getSessionId());
+            }
+        }
+        return message;
+    }
+
+    public int activeSessions() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.treeapi.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes one JSON document per line (application/x-ndjson) and flushes every {@link #FLUSH_EVERY} lines,
+ * so a client sees the first results while the rest are still being read.
+ */
+class NdjsonWriter implements Consumer<Object>, Closeable {
+
+    static final int FLUSH_EVERY = 100;
+
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+    private int unflushed;
+
+    NdjsonWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Lines are separated by the newline written after each value, not by Jackson's default space
+        this.generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void accept(Object value) {
+        try {
+            writer.writeValue(generator, value);
+            generator.writeRaw('\n');
+            if (++unflushed == FLUSH_EVERY) {
+                generator.flush();
+                unflushed = 0;
+            }
+        } catch (IOException e) {
+            // Usually the client went away; abort the query that feeds us
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
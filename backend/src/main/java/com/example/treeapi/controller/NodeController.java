@@ -1,44 +1,176 @@
 package com.example.treeapi.controller;
 
+import com.example.treeapi.dto.ChildrenBatchEntry;
+import com.example.treeapi.dto.ChildrenBatchRequest;
+import com.example.treeapi.dto.ChildrenPage;
+import com.example.treeapi.dto.CompactNode;
+import com.example.treeapi.dto.CompactSearchResults;
 import com.example.treeapi.dto.NodeDto;
 import com.example.treeapi.dto.RevealPathDto;
 import com.example.treeapi.dto.SearchRequest;
 import com.example.treeapi.dto.SearchResultDto;
+import com.example.treeapi.dto.SearchResultPage;
+import com.example.treeapi.service.ChildrenVersion;
 import com.example.treeapi.service.TreeDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Validated
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class NodeController {
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    public static final String TRUNCATED_HEADER = "X-Result-Truncated";
+    // Opt-in compact representations (see CompactNode), chosen with the Accept header
+    public static final String COMPACT_JSON_VALUE = "application/vnd.tree.compact+json";
+    public static final String COMPACT_CBOR_VALUE = "application/vnd.tree.compact+cbor";
+
     private final TreeDataService treeDataService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/nodes/root")
-    public List<NodeDto> getRootNodes() {
-        return treeDataService.getRootNodes();
+    public ResponseEntity<List<NodeDto>> getRootNodes(WebRequest request) {
+        return conditional(request, treeDataService.rootNodesVersion(), treeDataService::getRootNodes,
+                ChildrenVersion::of);
     }
 
     @GetMapping("/nodes/{id}/children")
-    public List<NodeDto> getChildren(@PathVariable Long id) {
-        return treeDataService.getChildrenOf(id);
+    public ResponseEntity<List<NodeDto>> getChildren(@PathVariable Long id, WebRequest request) {
+        return conditional(request, treeDataService.childrenVersion(id), () -> treeDataService.getChildrenOf(id),
+                ChildrenVersion::of);
+    }
+
+    @GetMapping(value = "/nodes/root", produces = {COMPACT_JSON_VALUE, COMPACT_CBOR_VALUE})
+    public ResponseEntity<List<CompactNode>> getRootNodesCompact(WebRequest request) {
+        return conditional(request, treeDataService.rootNodesVersion(), treeDataService::getRootNodes,
+                ChildrenVersion::of, NodeController::compact, true);
+    }
+
+    @GetMapping(value = "/nodes/{id}/children", produces = {COMPACT_JSON_VALUE, COMPACT_CBOR_VALUE})
+    public ResponseEntity<List<CompactNode>> getChildrenCompact(@PathVariable Long id, WebRequest request) {
+        return conditional(request, treeDataService.childrenVersion(id), () -> treeDataService.getChildrenOf(id),
+                ChildrenVersion::of, NodeController::compact, true);
+    }
+
+    // Streaming variant for very wide nodes, chosen with Accept: application/x-ndjson; one child per line
+    @GetMapping(value = "/nodes/{id}/children", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamChildren(@PathVariable Long id) {
+        return ndjson(sink -> treeDataService.streamChildren(id, sink));
+    }
+
+    // Keyset-paginated variant for very wide nodes: /nodes/{id}/children?limit=N[&after=<nextCursor>]
+    @GetMapping(value = "/nodes/{id}/children", params = "limit")
+    public ChildrenPage getChildrenPage(@PathVariable Long id,
+                                        @RequestParam(required = false) String after,
+                                        @RequestParam @Min(1) int limit) {
+        return treeDataService.getChildrenPage(id, after, limit);
+    }
+
+    // One round trip for every expanded node; entries the client already has at the same version carry no children
+    @PostMapping("/nodes/children:batch")
+    public Map<String, ChildrenBatchEntry> getChildrenBatch(@RequestBody @Valid ChildrenBatchRequest request) {
+        return treeDataService.getChildrenBatch(request.getParentIds(), request.getVersions());
     }
 
     @PostMapping("/nodes/search")
     public ResponseEntity<List<SearchResultDto>> searchNodes(
             @RequestBody @Valid SearchRequest request) {
-        List<SearchResultDto> results = treeDataService.searchNodes(request.getQuery());
-        return ResponseEntity.ok(results);
+        // The body stays a plain array; truncation is reported in headers so existing clients keep working.
+        SearchResultPage page = treeDataService.search(request.getQuery());
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(page.getTotalCount()))
+                .header(TRUNCATED_HEADER, String.valueOf(page.isTruncated()))
+                .body(page.getResults());
+    }
+
+    // Ancestors shared by many hits are sent once in a node table instead of once per hit
+    @PostMapping(value = "/nodes/search", produces = {COMPACT_JSON_VALUE, COMPACT_CBOR_VALUE})
+    public ResponseEntity<CompactSearchResults> searchNodesCompact(@RequestBody @Valid SearchRequest request) {
+        SearchResultPage page = treeDataService.search(request.getQuery());
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(page.getTotalCount()))
+                .header(TRUNCATED_HEADER, String.valueOf(page.isTruncated()))
+                .body(CompactSearchResults.of(page));
+    }
+
+    // Streaming variant, chosen with Accept: application/x-ndjson. Results are written as they are read, one per line,
+    // so broad queries start rendering early and are not limited to app.search.max-results.
+    @PostMapping(value = "/nodes/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearch(@RequestBody @Valid SearchRequest request) {
+        return ndjson(sink -> treeDataService.streamSearch(request.getQuery(), sink));
+    }
+
+    // Branch export for reporting jobs: the node and all of its descendants with their sensors, depth first,
+    // one per line. Replaces crawling /children recursively.
+    @GetMapping(value = "/nodes/{id}/subtree", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSubtree(@PathVariable Long id) {
+        return ndjson(sink -> treeDataService.streamSubtree(id, sink));
     }
 
     @GetMapping("/nodes/reveal-path/{nodeId}")
-    public RevealPathDto revealPath(@PathVariable Long nodeId) {
-        return treeDataService.revealPath(nodeId);
+    public ResponseEntity<RevealPathDto> revealPath(@PathVariable Long nodeId, WebRequest request) {
+        return conditional(request, treeDataService.revealPathVersion(nodeId), () -> treeDataService.revealPath(nodeId),
+                ChildrenVersion::of);
+    }
+
+    // The body runs on an async request thread after the headers are sent; the reader opens its own transaction there.
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<Object>> producer) {
+        StreamingResponseBody body = out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out)) {
+                producer.accept(writer);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Strong ETag = content version. When the service already knows the version (snapshot loaded), a matching
+    // If-None-Match is answered with 304 before anything is loaded. Otherwise the tag is hashed from the body and
+    // Spring still answers 304 for a match, skipping serialization.
+    // The returned tag is always computed from the body itself, so it cannot describe a different snapshot.
+    private <T> ResponseEntity<T> conditional(WebRequest request, String knownVersion,
+                                              Supplier<T> body, Function<T, String> versionOf) {
+        return conditional(request, knownVersion, body, versionOf, Function.identity(), false);
+    }
+
+    // Compact representations carry the same content, so they get the same version as a weak tag;
+    // If-None-Match uses weak comparison, and Vary keeps caches from mixing the representations.
+    private <T, R> ResponseEntity<R> conditional(WebRequest request, String knownVersion, Supplier<T> body,
+                                                 Function<T, String> versionOf, Function<T, R> representation,
+                                                 boolean weak) {
+        if (knownVersion != null && request.checkNotModified(eTag(knownVersion, weak))) {
+            return null;
+        }
+        T value = body.get();
+        return ResponseEntity.ok()
+                .eTag(eTag(versionOf.apply(value), weak))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(representation.apply(value));
+    }
+
+    private static String eTag(String version, boolean weak) {
+        return weak ? "W/\"" + version + "\"" : "\"" + version + "\"";
+    }
+
+    private static List<CompactNode> compact(List<NodeDto> nodes) {
+        List<CompactNode> compact = new ArrayList<>(nodes.size());
+        nodes.forEach(node -> compact.add(CompactNode.of(node, null)));
+        return compact;
     }
 }
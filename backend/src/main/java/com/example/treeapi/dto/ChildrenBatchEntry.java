@@ -0,0 +1,31 @@
+package com.example.treeapi.dto;
+
+import java.util.List;
+
+public class ChildrenBatchEntry {
+    private String version;
+    private boolean notModified;
+    private List<NodeDto> children;
+
+    public ChildrenBatchEntry(String version, boolean notModified, List<NodeDto> children) {
+        this.version = version;
+        this.notModified = notModified;
+        this.children = children;
+    }
+
+    public static ChildrenBatchEntry of(String version, List<NodeDto> children) {
+        return new ChildrenBatchEntry(version, false, children);
+    }
+
+    public static ChildrenBatchEntry notModified(String version) {
+        return new ChildrenBatchEntry(version, true, null);
+    }
+
+    // Getters and Setters
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+    public boolean isNotModified() { return notModified; }
+    public void setNotModified(boolean notModified) { this.notModified = notModified; }
+    public List<NodeDto> getChildren() { return children; }
+    public void setChildren(List<NodeDto> children) { this.children = children; }
+}
@@ -0,0 +1,19 @@
+package com.example.treeapi.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class ChildrenBatchRequest {
+    @NotEmpty(message = "parentIds cannot be empty.")
+    @Size(max = 1000, message = "parentIds cannot exceed 1000 entries.")
+    private List<@NotNull Long> parentIds;
+
+    // parentId -> version the client already holds; matching entries come back without children
+    private Map<String, String> versions;
+}
@@ -0,0 +1,23 @@
+package com.example.treeapi.dto;
+
+import java.util.List;
+
+public class ChildrenPage {
+    private List<NodeDto> items;
+    private String nextCursor;
+    private long totalCount;
+
+    public ChildrenPage(List<NodeDto> items, String nextCursor, long totalCount) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.totalCount = totalCount;
+    }
+
+    // Getters and Setters
+    public List<NodeDto> getItems() { return items; }
+    public void setItems(List<NodeDto> items) { this.items = items; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    public long getTotalCount() { return totalCount; }
+    public void setTotalCount(long totalCount) { this.totalCount = totalCount; }
+}
@@ -0,0 +1,39 @@
+package com.example.treeapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Compact form of {@link SearchResultDto}. The path is not repeated: {@code node} is the index of the last path
+ * element in {@link CompactSearchResults#getNodes()}, and the rest of the path follows the {@code parent} indexes.
+ */
+public class CompactHit {
+    private long id;
+    private String name;
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private int type;
+    // null when the path is empty
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer node;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer occurrences;
+
+    public CompactHit(long id, String name, int type, Integer node, Integer occurrences) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.node = node;
+        this.occurrences = occurrences;
+    }
+
+    // Getters and Setters
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public int getType() { return type; }
+    public void setType(int type) { this.type = type; }
+    public Integer getNode() { return node; }
+    public void setNode(Integer node) { this.node = node; }
+    public Integer getOccurrences() { return occurrences; }
+    public void setOccurrences(Integer occurrences) { this.occurrences = occurrences; }
+}
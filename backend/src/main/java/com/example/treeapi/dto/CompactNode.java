@@ -0,0 +1,51 @@
+package com.example.treeapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Compact form of {@link NodeDto}: numeric id, a type code instead of the type name, and defaults left out
+ * ({@code type} 0 = folder, {@code hasChildren} false, no {@code parent}). Metadata is always empty and is not sent.
+ */
+public class CompactNode {
+    public static final int FOLDER = 0;
+    public static final int SENSOR = 1;
+
+    private long id;
+    private String name;
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private int type;
+    // Index of the parent in the enclosing node table; only set inside CompactSearchResults
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer parent;
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean hasChildren;
+
+    public CompactNode(long id, String name, int type, Integer parent, boolean hasChildren) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.parent = parent;
+        this.hasChildren = hasChildren;
+    }
+
+    public static CompactNode of(NodeDto node, Integer parent) {
+        return new CompactNode(Long.parseLong(node.getId()), node.getName(), typeCode(node.getType()), parent,
+                node.getHasChildren());
+    }
+
+    public static int typeCode(String type) {
+        return "sensor".equals(type) ? SENSOR : FOLDER;
+    }
+
+    // Getters and Setters
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public int getType() { return type; }
+    public void setType(int type) { this.type = type; }
+    public Integer getParent() { return parent; }
+    public void setParent(Integer parent) { this.parent = parent; }
+    public boolean getHasChildren() { return hasChildren; }
+    public void setHasChildren(boolean hasChildren) { this.hasChildren = hasChildren; }
+}
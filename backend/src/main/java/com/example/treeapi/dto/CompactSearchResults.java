@@ -0,0 +1,55 @@
+package com.example.treeapi.dto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact form of a {@link SearchResultPage}: every node on any hit's path appears once in {@code nodes},
+ * parents before children, and hits refer to it by index.
+ */
+public class CompactSearchResults {
+    private List<CompactNode> nodes;
+    private List<CompactHit> hits;
+    private boolean truncated;
+    private long totalCount;
+
+    public CompactSearchResults(List<CompactNode> nodes, List<CompactHit> hits, boolean truncated, long totalCount) {
+        this.nodes = nodes;
+        this.hits = hits;
+        this.truncated = truncated;
+        this.totalCount = totalCount;
+    }
+
+    public static CompactSearchResults of(SearchResultPage page) {
+        List<CompactNode> nodes = new ArrayList<>();
+        Map<String, Integer> indexById = new HashMap<>();
+        List<CompactHit> hits = new ArrayList<>(page.getResults().size());
+        for (SearchResultDto result : page.getResults()) {
+            Integer parent = null;
+            for (NodeDto node : result.getPath()) {
+                Integer index = indexById.get(node.getId());
+                if (index == null) {
+                    index = nodes.size();
+                    nodes.add(CompactNode.of(node, parent));
+                    indexById.put(node.getId(), index);
+                }
+                parent = index;
+            }
+            hits.add(new CompactHit(Long.parseLong(result.getId()), result.getName(),
+                    CompactNode.typeCode(result.getType()), parent, result.getOccurrences()));
+        }
+        return new CompactSearchResults(nodes, hits, page.isTruncated(), page.getTotalCount());
+    }
+
+    // Getters and Setters
+    public List<CompactNode> getNodes() { return nodes; }
+    public void setNodes(List<CompactNode> nodes) { this.nodes = nodes; }
+    public List<CompactHit> getHits() { return hits; }
+    public void setHits(List<CompactHit> hits) { this.hits = hits; }
+    public boolean isTruncated() { return truncated; }
+    public void setTruncated(boolean truncated) { this.truncated = truncated; }
+    public long getTotalCount() { return totalCount; }
+    public void setTotalCount(long totalCount) { this.totalCount = totalCount; }
+}
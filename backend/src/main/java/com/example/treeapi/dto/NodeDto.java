@@ -1,5 +1,7 @@
 package com.example.treeapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.Map;
 
 public class NodeDto {
@@ -9,6 +11,13 @@ public class NodeDto {
     private String parentId;
     private boolean hasChildren;
     private Map<String, String> metadata;
+    // Folders and sensor memberships below a folder. Only the in-memory snapshot has them precomputed; the database
+    // reader would need a recursive count per folder, so it leaves them null and they are left out of the JSON.
+    // Clients must treat a missing count as unknown, not as zero.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer descendantFolders;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer descendantSensors;
 
     public NodeDto() {
     }
@@ -62,4 +71,20 @@ public class NodeDto {
     public void setMetadata(Map<String, String> metadata) {
         this.metadata = metadata;
     }
+
+    public Integer getDescendantFolders() {
+        return descendantFolders;
+    }
+
+    public void setDescendantFolders(Integer descendantFolders) {
+        this.descendantFolders = descendantFolders;
+    }
+
+    public Integer getDescendantSensors() {
+        return descendantSensors;
+    }
+
+    public void setDescendantSensors(Integer descendantSensors) {
+        this.descendantSensors = descendantSensors;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.example.treeapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public class SearchResultDto {
@@ -7,6 +9,9 @@ public class SearchResultDto {
     private String name;
     private String type;
     private List<NodeDto> path;
+    // Sensors only: how many folders the sensor appears under, so one sensor's hits can be shown as a group
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer occurrences;
 
     public SearchResultDto(String id, String name, String type, List<NodeDto> path) {
         this.id = id;
@@ -24,5 +29,7 @@ public class SearchResultDto {
     public void setType(String type) { this.type = type; }
     public List<NodeDto> getPath() { return path; }
     public void setPath(List<NodeDto> path) { this.path = path; }
+    public Integer getOccurrences() { return occurrences; }
+    public void setOccurrences(Integer occurrences) { this.occurrences = occurrences; }
 }
 
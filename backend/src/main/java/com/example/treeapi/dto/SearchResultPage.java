@@ -0,0 +1,27 @@
+package com.example.treeapi.dto;
+
+import java.util.List;
+
+public class SearchResultPage {
+    private List<SearchResultDto> results;
+    private boolean truncated;
+    private long totalCount;
+
+    public SearchResultPage(List<SearchResultDto> results, boolean truncated, long totalCount) {
+        this.results = results;
+        this.truncated = truncated;
+        this.totalCount = totalCount;
+    }
+
+    public static SearchResultPage of(List<SearchResultDto> results) {
+        return new SearchResultPage(results, false, results.size());
+    }
+
+    // Getters and Setters
+    public List<SearchResultDto> getResults() { return results; }
+    public void setResults(List<SearchResultDto> results) { this.results = results; }
+    public boolean isTruncated() { return truncated; }
+    public void setTruncated(boolean truncated) { this.truncated = truncated; }
+    public long getTotalCount() { return totalCount; }
+    public void setTotalCount(long totalCount) { this.totalCount = totalCount; }
+}
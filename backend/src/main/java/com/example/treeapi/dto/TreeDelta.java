@@ -0,0 +1,44 @@
+package com.example.treeapi.dto;
+
+/**
+ * One change to a child list pushed over WebSocket.
+ * For {@link Type#REMOVED} only {@code id} and {@code nodeType} are set; otherwise {@code node} is the new state.
+ */
+public class TreeDelta {
+
+    public enum Type { ADDED, REMOVED, UPDATED }
+
+    private Type type;
+    private String id;
+    private String nodeType;
+    private NodeDto node;
+
+    public TreeDelta(Type type, String id, String nodeType, NodeDto node) {
+        this.type = type;
+        this.id = id;
+        this.nodeType = nodeType;
+        this.node = node;
+    }
+
+    public static TreeDelta added(NodeDto node) {
+        return new TreeDelta(Type.ADDED, node.getId(), node.getType(), node);
+    }
+
+    public static TreeDelta updated(NodeDto node) {
+        return new TreeDelta(Type.UPDATED, node.getId(), node.getType(), node);
+    }
+
+    public static TreeDelta removed(NodeDto node) {
+        return new TreeDelta(Type.REMOVED, node.getId(), node.getType(), null);
+    }
+
+    // Getters and Setters
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getNodeType() { return nodeType; }
+    public void setNodeType(String nodeType) { this.nodeType = nodeType; }
+    public NodeDto getNode() { return node; }
+    public void setNode(NodeDto node) { this.node = node; }
+}
@@ -0,0 +1,22 @@
+package com.example.treeapi.dto;
+
+import java.util.List;
+
+/**
+ * Coalesced changes to the children of one parent, sent to {@code /topic/nodes/{parentId}}.
+ */
+public class TreeDeltaBatch {
+    private String parentId;
+    private List<TreeDelta> deltas;
+
+    public TreeDeltaBatch(String parentId, List<TreeDelta> deltas) {
+        this.parentId = parentId;
+        this.deltas = deltas;
+    }
+
+    // Getters and Setters
+    public String getParentId() { return parentId; }
+    public void setParentId(String parentId) { this.parentId = parentId; }
+    public List<TreeDelta> getDeltas() { return deltas; }
+    public void setDeltas(List<TreeDelta> deltas) { this.deltas = deltas; }
+}
@@ -1,19 +1,197 @@
 package com.example.treeapi.repository;
 
 import com.example.treeapi.domain.Node;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface NodeRepository extends JpaRepository<Node, Long> {
 
+    // 스트리밍 조회에서 한 번의 왕복으로 가져오는 행 수
+    String STREAM_FETCH_SIZE = "500";
+    // 서브트리 내보내기는 행이 작고 많으므로 왕복 횟수를 더 줄입니다.
+    String SUBTREE_FETCH_SIZE = "2000";
+
+    // NODE_PATH 정렬에서 구분자 '|' 를 대신하는 가장 작은 문자. 부모 경로가 같은 이름으로 시작하는 형제보다 먼저 정렬되어 깊이 우선 순서가 됩니다.
+    String PATH_ORDER_SEPARATOR = "\u0001";
+
+    // 검색 순위의 경로 깊이: 일치한 노드(hitId)에서 PARENT_ID 를 따라 올라간 노드 수. 가상 루트(ID=1)는 세지 않습니다.
+    // 재귀 CTE chain 은 SEED 의 FROM/WHERE 절과 STEP 으로 만들고, DEPTH 로 hitId 별 깊이를 구합니다.
+    String HIT_CHAIN_SEED = "  SELECT n.id AS hitId, n.id AS id, n.parentId AS parentId";
+    String HIT_CHAIN_STEP = "  UNION ALL" +
+            "  SELECT c.hitId AS hitId, p.id AS id, p.parentId AS parentId FROM Node p JOIN chain c ON p.id = c.parentId";
+    String HIT_DEPTH = "SELECT c.hitId AS hitId, SUM(CASE WHEN c.id = 1 THEN 0 ELSE 1 END) AS depth " +
+            "FROM chain c GROUP BY c.hitId";
+
     List<Node> findByParentId(Long parentId);
 
+    /**
+     * 자식 폴더를 자식/센서 수와 함께 이름 → ID 순으로 조회합니다. 정렬은 DB 에서 끝나므로 호출 측에서 다시 정렬하지 않습니다.
+     */
+    @Query("SELECT n.id AS id, n.nodeName AS nodeName, n.parentId AS parentId, " +
+           "(SELECT COUNT(c) FROM Node c WHERE c.parentId = n.id) AS childCount, " +
+           "SIZE(n.sensors) AS sensorCount " +
+           "FROM Node n WHERE n.parentId = :parentId " +
+           "ORDER BY n.nodeName, n.id")
+    List<NodeSummary> findChildSummariesByParentId(@Param("parentId") Long parentId);
+
+    /**
+     * 여러 부모의 자식 폴더를 한 번에 이름 → ID 순으로 조회합니다. 호출 측에서 parentId 별로 묶으면 부모마다 정렬이 유지됩니다.
+     * Oracle 의 IN 목록 제한(1000개)을 넘지 않도록 호출 측에서 나누어 전달해야 합니다.
+     */
+    @Query("SELECT n.id AS id, n.nodeName AS nodeName, n.parentId AS parentId, " +
+           "(SELECT COUNT(c) FROM Node c WHERE c.parentId = n.id) AS childCount, " +
+           "SIZE(n.sensors) AS sensorCount " +
+           "FROM Node n WHERE n.parentId IN :parentIds " +
+           "ORDER BY n.nodeName, n.id")
+    List<NodeSummary> findChildSummariesByParentIdIn(@Param("parentIds") Collection<Long> parentIds);
+
+    /**
+     * 자식 폴더를 이름 → ID 순으로 정렬하여 첫 페이지만 조회합니다.
+     */
+    @Query("SELECT n.id AS id, n.nodeName AS nodeName, n.parentId AS parentId, " +
+           "(SELECT COUNT(c) FROM Node c WHERE c.parentId = n.id) AS childCount, " +
+           "SIZE(n.sensors) AS sensorCount " +
+           "FROM Node n WHERE n.parentId = :parentId " +
+           "ORDER BY n.nodeName, n.id")
+    List<NodeSummary> findChildSummaryPage(@Param("parentId") Long parentId, Pageable pageable);
+
+    /**
+     * (name, id) 키셋 이후의 자식 폴더를 이름 → ID 순으로 조회합니다. OFFSET 없이 (PARENT_ID, NODE_NAME, ID) 인덱스를 탈 수 있습니다.
+     * 이름이 null 인 행은 정렬상 맨 뒤(NULLS LAST)이므로 항상 키셋 이후에 포함됩니다.
+     */
+    @Query("SELECT n.id AS id, n.nodeName AS nodeName, n.parentId AS parentId, " +
+           "(SELECT COUNT(c) FROM Node c WHERE c.parentId = n.id) AS childCount, " +
+           "SIZE(n.sensors) AS sensorCount " +
+           "FROM Node n WHERE n.parentId = :parentId " +
+           "AND (n.nodeName > :name OR (n.nodeName = :name AND n.id > :id) OR n.nodeName IS NULL) " +
+           "ORDER BY n.nodeName, n.id")
+    List<NodeSummary> findChildSummaryPageAfter(@Param("parentId") Long parentId, @Param("name") String name,
+                                                @Param("id") Long id, Pageable pageable);
+
+    /**
+     * 이름이 null 인 키셋 (null, id) 이후의 자식 폴더, 즉 이름이 null 이고 ID 가 더 큰 폴더를 ID 순으로 조회합니다.
+     */
+    @Query("SELECT n.id AS id, n.nodeName AS nodeName, n.parentId AS parentId, " +
+           "(SELECT COUNT(c) FROM Node c WHERE c.parentId = n.id) AS childCount, " +
+           "SIZE(n.sensors) AS sensorCount " +
+           "FROM Node n WHERE n.parentId = :parentId AND n.nodeName IS NULL AND n.id > :id " +
+           "ORDER BY n.id")
+    List<NodeSummary> findChildSummaryPageAfterNullName(@Param("parentId") Long parentId, @Param("id") Long id,
+                                                        Pageable pageable);
+
+    /**
+     * {@link #findChildSummariesByParentId} 와 같은 순서로 자식 폴더를 스트리밍합니다. 트랜잭션 안에서 소비하고 닫아야 합니다.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT n.id AS id, n.nodeName AS nodeName, n.parentId AS parentId, " +
+           "(SELECT COUNT(c) FROM Node c WHERE c.parentId = n.id) AS childCount, " +
+           "SIZE(n.sensors) AS sensorCount " +
+           "FROM Node n WHERE n.parentId = :parentId " +
+           "ORDER BY n.nodeName, n.id")
+    Stream<NodeSummary> streamChildSummariesByParentId(@Param("parentId") Long parentId);
+
+    long countByParentId(Long parentId);
+
+    /**
+     * 노드 자신과 모든 조상을 루트부터 순서대로 한 번의 재귀 CTE 로 조회합니다.
+     * HQL CTE 이므로 Hibernate 가 방언에 맞게 (H2: WITH RECURSIVE, Oracle: WITH) 변환합니다.
+     */
+    @Query("WITH ancestors AS (" +
+           "  SELECT n.id AS id, n.parentId AS parentId, 0 AS depth FROM Node n WHERE n.id = :nodeId" +
+           "  UNION ALL" +
+           "  SELECT p.id AS id, p.parentId AS parentId, a.depth + 1 AS depth" +
+           "  FROM Node p JOIN ancestors a ON p.id = a.parentId" +
+           ") " +
+           "SELECT n.id AS id, n.nodeName AS nodeName, n.parentId AS parentId, " +
+           "(SELECT COUNT(c) FROM Node c WHERE c.parentId = n.id) AS childCount, " +
+           "SIZE(n.sensors) AS sensorCount " +
+           "FROM Node n JOIN ancestors a ON n.id = a.id " +
+           "ORDER BY a.depth DESC")
+    List<NodeSummary> findPathSummaries(@Param("nodeId") Long nodeId);
+
+    /**
+     * 여러 노드와 그 조상 전체의 합집합을 한 번에 조회합니다. (순서 없음, 중복 없음)
+     * Oracle 의 IN 목록 제한(1000개)을 넘지 않도록 호출 측에서 나누어 전달해야 합니다.
+     */
+    @Query("WITH ancestors AS (" +
+           "  SELECT n.id AS id, n.parentId AS parentId FROM Node n WHERE n.id IN :nodeIds" +
+           "  UNION ALL" +
+           "  SELECT p.id AS id, p.parentId AS parentId FROM Node p JOIN ancestors a ON p.id = a.parentId" +
+           ") " +
+           "SELECT n.id AS id, n.nodeName AS nodeName, n.parentId AS parentId, " +
+           "(SELECT COUNT(c) FROM Node c WHERE c.parentId = n.id) AS childCount, " +
+           "SIZE(n.sensors) AS sensorCount " +
+           "FROM Node n WHERE n.id IN (SELECT a.id FROM ancestors a)")
+    List<NodeSummary> findAncestorSummaries(@Param("nodeIds") Collection<Long> nodeIds);
+
     List<Node> findByNodeNameContainingIgnoreCase(String nodeName);
 
-    @Query("SELECT n FROM Node n WHERE n.nodePath LIKE :pathPrefix%")
+    long countByNodeNameContainingIgnoreCase(String nodeName);
+
+    /**
+     * 이름 검색 결과를 일치 순위(정확 > 접두 > 부분) → 경로 깊이 → 이름 → ID 순으로 정렬하여 필요한 만큼만 조회합니다.
+     * 인자는 모두 대문자여야 하며, prefix / contains 패턴의 LIKE 특수문자는 '\' 로 이스케이프되어 있어야 합니다.
+     * 경로 깊이는 NODE_PATH 가 아니라 PARENT_ID 를 따라 올라간 조상 수(가상 루트 제외)로, 응답의 경로 및 스냅샷 검색과 같은 기준입니다.
+     * 재귀 CTE 는 일치한 노드에서만 출발하므로 트리 크기가 아니라 일치 수 × 깊이만큼 읽습니다.
+     */
+    @Query("WITH chain AS (" + HIT_CHAIN_SEED +
+           "  FROM Node n WHERE UPPER(n.nodeName) LIKE :contains ESCAPE '\\'" + HIT_CHAIN_STEP + ") " +
+           "SELECT n FROM Node n JOIN (" + HIT_DEPTH + ") d ON d.hitId = n.id " +
+           "ORDER BY CASE WHEN UPPER(n.nodeName) = :exact THEN 0 " +
+           "WHEN UPPER(n.nodeName) LIKE :prefix ESCAPE '\\' THEN 1 ELSE 2 END, " +
+           "d.depth, n.nodeName, n.id")
+    List<Node> findRankedByNodeName(@Param("exact") String exact, @Param("prefix") String prefix,
+                                    @Param("contains") String contains, Pageable pageable);
+
+    /**
+     * 이름 검색 결과 전체를 일치 순위 → 경로 깊이 → 이름 → ID 순으로 스트리밍합니다. 인자와 경로 깊이의 규칙은 {@link #findRankedByNodeName} 과 같습니다.
+     * 엔티티 대신 프로젝션을 읽으므로 영속성 컨텍스트에 쌓이지 않습니다. 트랜잭션 안에서 소비하고 닫아야 합니다.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("WITH chain AS (" + HIT_CHAIN_SEED +
+           "  FROM Node n WHERE UPPER(n.nodeName) LIKE :contains ESCAPE '\\'" + HIT_CHAIN_STEP + ") " +
+           "SELECT n.id AS id, n.nodeName AS name, n.id AS nodeId, " +
+           "CASE WHEN UPPER(n.nodeName) = :exact THEN 0 " +
+           "WHEN UPPER(n.nodeName) LIKE :prefix ESCAPE '\\' THEN 1 ELSE 2 END AS matchRank, " +
+           "d.depth AS depth " +
+           "FROM Node n JOIN (" + HIT_DEPTH + ") d ON d.hitId = n.id " +
+           "ORDER BY CASE WHEN UPPER(n.nodeName) = :exact THEN 0 " +
+           "WHEN UPPER(n.nodeName) LIKE :prefix ESCAPE '\\' THEN 1 ELSE 2 END, " +
+           "d.depth, n.nodeName, n.id")
+    Stream<SearchHitRow> streamRankedByNodeName(@Param("exact") String exact, @Param("prefix") String prefix,
+                                                @Param("contains") String contains);
+
+    // 없는 노드이거나 경로가 비어 있으면 null
+    @Query("SELECT n.nodePath FROM Node n WHERE n.id = :nodeId")
+    String findNodePathById(@Param("nodeId") Long nodeId);
+
+    /**
+     * 노드 자신과 NODE_PATH 가 {@code pathPrefix} 로 시작하는 모든 하위 노드를 매핑된 센서와 함께 깊이 우선 순서로 스트리밍합니다.
+     * NODE_PATH 인덱스의 범위 스캔 하나로 읽으며, 순서는 경로 → ID → 센서 이름 → 센서 ID 입니다.
+     * PARENT_ID 가 경로와 맞지 않는 행도 포함되므로 호출 측에서 걸러야 합니다 ({@code RepositoryTreeReader#streamSubtree}).
+     * {@code pathPrefix} 는 LIKE 특수문자를 '\' 로 이스케이프한 "경로|%" 형태여야 합니다. 트랜잭션 안에서 소비하고 닫아야 합니다.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = SUBTREE_FETCH_SIZE))
+    @Query("SELECT n.id AS id, n.nodeName AS nodeName, n.parentId AS parentId, n.nodePath AS nodePath, " +
+           "CASE WHEN s.id IS NOT NULL OR EXISTS (SELECT c.id FROM Node c WHERE c.parentId = n.id) " +
+           "THEN true ELSE false END AS hasChildren, " +
+           "s.id AS sensorId, s.sensorName AS sensorName " +
+           "FROM Node n LEFT JOIN n.sensors s " +
+           "WHERE n.id = :nodeId OR n.nodePath LIKE :pathPrefix ESCAPE '\\' " +
+           "ORDER BY REPLACE(n.nodePath, '|', '" + PATH_ORDER_SEPARATOR + "'), n.id, s.sensorName, s.id")
+    Stream<SubtreeRow> streamSubtree(@Param("nodeId") Long nodeId, @Param("pathPrefix") String pathPrefix);
+
+    // pathPrefix 는 그대로 비교되므로 '%', '_' 는 와일드카드로 해석됩니다.
+    @Query("SELECT n FROM Node n WHERE n.nodePath LIKE CONCAT(:pathPrefix, '%')")
     List<Node> findByNodePathStartingWith(@Param("pathPrefix") String pathPrefix);
 
     @Query("SELECT CASE WHEN COUNT(n) > 0 THEN true ELSE false END FROM Node n WHERE n.parentId = :nodeId")
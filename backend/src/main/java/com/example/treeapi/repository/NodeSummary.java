@@ -0,0 +1,18 @@
+package com.example.treeapi.repository;
+
+/**
+ * 노드와 자식 폴더 수, 매핑된 센서 수를 함께 담는 조회용 프로젝션.
+ * hasChildren 계산을 위해 노드마다 추가 쿼리를 실행하지 않도록 한 번의 SELECT 로 채워집니다.
+ */
+public interface NodeSummary {
+
+    Long getId();
+
+    String getNodeName();
+
+    Long getParentId();
+
+    long getChildCount();
+
+    long getSensorCount();
+}
@@ -0,0 +1,18 @@
+package com.example.treeapi.repository;
+
+/**
+ * 스트리밍 검색의 한 행을 담는 조회용 프로젝션. 폴더는 노드 자신, 센서는 매핑된 노드마다 한 행입니다.
+ * matchRank 는 일치 순위(정확 0 > 접두 1 > 부분 2), depth 는 PARENT_ID 로 따라 올라간 경로 깊이(가상 루트 제외)입니다.
+ */
+public interface SearchHitRow {
+
+    Long getId();
+
+    String getName();
+
+    Long getNodeId();
+
+    int getMatchRank();
+
+    int getDepth();
+}
@@ -0,0 +1,9 @@
+package com.example.treeapi.repository;
+
+/**
+ * 센서 검색 결과의 한 행. {@link SearchHitRow} 에 더해, 그 센서가 매핑된 노드 수(occurrences)를 함께 담습니다.
+ */
+public interface SensorHitRow extends SearchHitRow {
+
+    int getOccurrences();
+}
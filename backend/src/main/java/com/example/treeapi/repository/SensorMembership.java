@@ -0,0 +1,14 @@
+package com.example.treeapi.repository;
+
+/**
+ * NODE_SENSOR_MAP 의 한 행을 센서 이름과 함께 담는 조회용 프로젝션.
+ * 여러 노드의 센서를 한 번의 조인으로 읽은 뒤 노드별로 묶을 때 사용합니다.
+ */
+public interface SensorMembership {
+
+    Long getNodeId();
+
+    Long getId();
+
+    String getSensorName();
+}
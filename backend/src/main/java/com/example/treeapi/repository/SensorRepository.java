@@ -1,12 +1,109 @@
 package com.example.treeapi.repository;
 
 import com.example.treeapi.domain.Sensor;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface SensorRepository extends JpaRepository<Sensor, Long> {
 
+    // 이름이 :contains 와 일치하는 센서가 매핑된 노드 ID. 검색 깊이 CTE 의 출발점입니다.
+    String MATCHING_NODE_IDS = "(SELECT m.id FROM Sensor ms JOIN ms.nodes m " +
+            "WHERE UPPER(ms.sensorName) LIKE :contains ESCAPE '\\')";
+
     List<Sensor> findBySensorNameContainingIgnoreCase(String sensorName);
 
+    /**
+     * 센서 이름 검색 결과를 매핑된 노드마다 한 행으로, 일치 순위(정확 > 접두 > 부분) → 노드 경로 깊이 → 이름 → ID → 노드 ID 순으로
+     * 필요한 만큼만 조회합니다. NODE_SENSOR_MAP 을 한 번 조인하므로 센서 수와 관계없이 문장 하나입니다.
+     * 인자와 경로 깊이의 규칙은 {@link NodeRepository#findRankedByNodeName} 과 같습니다.
+     */
+    @Query("WITH chain AS (" + NodeRepository.HIT_CHAIN_SEED + " FROM Node n WHERE n.id IN " + MATCHING_NODE_IDS +
+           NodeRepository.HIT_CHAIN_STEP + ") " +
+           "SELECT s.id AS id, s.sensorName AS name, n.id AS nodeId, " +
+           "CASE WHEN UPPER(s.sensorName) = :exact THEN 0 " +
+           "WHEN UPPER(s.sensorName) LIKE :prefix ESCAPE '\\' THEN 1 ELSE 2 END AS matchRank, " +
+           "d.depth AS depth, SIZE(s.nodes) AS occurrences " +
+           "FROM Node n JOIN n.sensors s JOIN (" + NodeRepository.HIT_DEPTH + ") d ON d.hitId = n.id " +
+           "WHERE UPPER(s.sensorName) LIKE :contains ESCAPE '\\' " +
+           "ORDER BY CASE WHEN UPPER(s.sensorName) = :exact THEN 0 " +
+           "WHEN UPPER(s.sensorName) LIKE :prefix ESCAPE '\\' THEN 1 ELSE 2 END, " +
+           "d.depth, s.sensorName, s.id, n.id")
+    List<SensorHitRow> findRankedMembershipsBySensorName(@Param("exact") String exact, @Param("prefix") String prefix,
+                                                         @Param("contains") String contains, Pageable pageable);
+
+    // 센서는 매핑된 노드마다 하나의 검색 결과가 되므로, 센서 수가 아닌 매핑 수를 셉니다.
+    @Query("SELECT COUNT(s) FROM Node n JOIN n.sensors s WHERE UPPER(s.sensorName) LIKE :contains ESCAPE '\\'")
+    long countMembershipsBySensorName(@Param("contains") String contains);
+
+    // 노드에 매핑된 센서를 이름 → ID 순으로 조회합니다.
+    @Query("SELECT s FROM Node n JOIN n.sensors s WHERE n.id = :nodeId ORDER BY s.sensorName, s.id")
+    List<Sensor> findAllByNodeId(@Param("nodeId") Long nodeId);
+
+    /**
+     * 여러 노드에 매핑된 센서를 한 번의 조인으로 이름 → ID 순으로 조회합니다. 호출 측에서 nodeId 별로 묶어 사용합니다.
+     * Oracle 의 IN 목록 제한(1000개)을 넘지 않도록 호출 측에서 나누어 전달해야 합니다.
+     */
+    @Query("SELECT n.id AS nodeId, s.id AS id, s.sensorName AS sensorName " +
+           "FROM Node n JOIN n.sensors s WHERE n.id IN :nodeIds ORDER BY s.sensorName, s.id")
+    List<SensorMembership> findMembershipsByNodeIdIn(@Param("nodeIds") Collection<Long> nodeIds);
+
+    @Query("SELECT s FROM Node n JOIN n.sensors s WHERE n.id = :nodeId ORDER BY s.sensorName, s.id")
+    List<Sensor> findPageByNodeId(@Param("nodeId") Long nodeId, Pageable pageable);
+
+    /**
+     * (name, id) 키셋 이후의 센서를 이름 → ID 순으로 조회합니다. 규칙은 {@link NodeRepository#findChildSummaryPageAfter} 와 같습니다.
+     */
+    @Query("SELECT s FROM Node n JOIN n.sensors s WHERE n.id = :nodeId " +
+           "AND (s.sensorName > :name OR (s.sensorName = :name AND s.id > :id) OR s.sensorName IS NULL) " +
+           "ORDER BY s.sensorName, s.id")
+    List<Sensor> findPageByNodeIdAfter(@Param("nodeId") Long nodeId, @Param("name") String name,
+                                       @Param("id") Long id, Pageable pageable);
+
+    /**
+     * 이름이 null 인 키셋 이후의 센서를 조회합니다. 규칙은 {@link NodeRepository#findChildSummaryPageAfterNullName} 와 같습니다.
+     */
+    @Query("SELECT s FROM Node n JOIN n.sensors s WHERE n.id = :nodeId AND s.sensorName IS NULL AND s.id > :id " +
+           "ORDER BY s.id")
+    List<Sensor> findPageByNodeIdAfterNullName(@Param("nodeId") Long nodeId, @Param("id") Long id,
+                                               Pageable pageable);
+
+    @Query("SELECT COUNT(s) FROM Node n JOIN n.sensors s WHERE n.id = :nodeId")
+    long countByNodeId(@Param("nodeId") Long nodeId);
+
+    /**
+     * 노드에 매핑된 센서를 이름 → ID 순으로 스트리밍합니다. 트랜잭션 안에서 소비하고 닫아야 합니다.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = NodeRepository.STREAM_FETCH_SIZE))
+    @Query("SELECT n.id AS nodeId, s.id AS id, s.sensorName AS sensorName " +
+           "FROM Node n JOIN n.sensors s WHERE n.id = :nodeId ORDER BY s.sensorName, s.id")
+    Stream<SensorMembership> streamMembershipsByNodeId(@Param("nodeId") Long nodeId);
+
+    /**
+     * {@link #findRankedMembershipsBySensorName} 의 결과 전체를 같은 순서로 스트리밍합니다. 트랜잭션 안에서 소비하고 닫아야 합니다.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = NodeRepository.STREAM_FETCH_SIZE))
+    @Query("WITH chain AS (" + NodeRepository.HIT_CHAIN_SEED + " FROM Node n WHERE n.id IN " + MATCHING_NODE_IDS +
+           NodeRepository.HIT_CHAIN_STEP + ") " +
+           "SELECT s.id AS id, s.sensorName AS name, n.id AS nodeId, " +
+           "CASE WHEN UPPER(s.sensorName) = :exact THEN 0 " +
+           "WHEN UPPER(s.sensorName) LIKE :prefix ESCAPE '\\' THEN 1 ELSE 2 END AS matchRank, " +
+           "d.depth AS depth, SIZE(s.nodes) AS occurrences " +
+           "FROM Node n JOIN n.sensors s JOIN (" + NodeRepository.HIT_DEPTH + ") d ON d.hitId = n.id " +
+           "WHERE UPPER(s.sensorName) LIKE :contains ESCAPE '\\' " +
+           "ORDER BY CASE WHEN UPPER(s.sensorName) = :exact THEN 0 " +
+           "WHEN UPPER(s.sensorName) LIKE :prefix ESCAPE '\\' THEN 1 ELSE 2 END, " +
+           "d.depth, s.sensorName, s.id, n.id")
+    Stream<SensorHitRow> streamRankedMembershipsBySensorName(@Param("exact") String exact,
+                                                             @Param("prefix") String prefix,
+                                                             @Param("contains") String contains);
+
 }
@@ -0,0 +1,22 @@
+package com.example.treeapi.repository;
+
+/**
+ * 서브트리 내보내기의 한 행. 노드마다 매핑된 센서 하나당 한 행이며, 센서가 없는 노드는 sensorId / sensorName 이 null 인 한 행입니다.
+ * hasChildren 은 자식 폴더나 센서가 하나라도 있는지 여부입니다.
+ */
+public interface SubtreeRow {
+
+    Long getId();
+
+    String getNodeName();
+
+    Long getParentId();
+
+    String getNodePath();
+
+    boolean getHasChildren();
+
+    Long getSensorId();
+
+    String getSensorName();
+}
@@ -0,0 +1,88 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.dto.NodeDto;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Builds root-first paths for many nodes while sharing work between them.
+ * <p>
+ * Every node is mapped to a single {@link NodeDto} instance, and every path prefix is built once and reused,
+ * so hits under the same branch share both the ancestor objects and the prefix lists.
+ * Returned paths are unmodifiable. Instances are not thread-safe and are meant to live for one request.
+ */
+class AncestorPaths {
+
+    private static final Long VIRTUAL_ROOT_ID = 1L;
+
+    private final Function<Long, NodeDto> lookup;
+    private final Map<Long, NodeDto> nodes = new HashMap<>();
+    private final Map<Long, List<NodeDto>> paths = new HashMap<>();
+
+    /**
+     * @param lookup resolves a node id to its DTO, or {@code null} if the node does not exist
+     */
+    AncestorPaths(Function<Long, NodeDto> lookup) {
+        this.lookup = lookup;
+    }
+
+    /**
+     * @return the path from the topmost known ancestor down to the node itself, excluding the virtual root (ID=1);
+     * empty if the node does not exist
+     */
+    List<NodeDto> pathTo(Long nodeId) {
+        List<NodeDto> cached = paths.get(nodeId);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Climb until we reach an ancestor whose path is already known, or the top of the chain.
+        // A PARENT_ID cycle ends the chain at the first node met twice.
+        Deque<NodeDto> chain = new ArrayDeque<>();
+        Set<Long> climbed = new HashSet<>();
+        List<NodeDto> prefix = null;
+        Long current = nodeId;
+        while (current != null && climbed.add(current)) {
+            List<NodeDto> known = paths.get(current);
+            if (known != null) {
+                prefix = known;
+                break;
+            }
+            NodeDto dto = node(current);
+            if (dto == null) {
+                break;
+            }
+            chain.push(dto);
+            current = dto.getParentId() == null ? null : Long.valueOf(dto.getParentId());
+        }
+        if (prefix == null) {
+            prefix = List.of();
+            // The absolute root (ID=1) is virtual, so it never appears at the top of a path
+            if (!chain.isEmpty() && VIRTUAL_ROOT_ID.toString().equals(chain.peek().getId())) {
+                paths.put(VIRTUAL_ROOT_ID, prefix);
+                chain.pop();
+            }
+        }
+
+        List<NodeDto> path = prefix;
+        while (!chain.isEmpty()) {
+            NodeDto dto = chain.pop();
+            List<NodeDto> extended = new ArrayList<>(path.size() + 1);
+            extended.addAll(path);
+            extended.add(dto);
+            path = Collections.unmodifiableList(extended);
+            paths.put(Long.valueOf(dto.getId()), path);
+        }
+        return path;
+    }
+
+    private NodeDto node(Long nodeId) {
+        NodeDto dto = nodes.get(nodeId);
+        if (dto == null && !nodes.containsKey(nodeId)) {
+            dto = lookup.apply(nodeId);
+            nodes.put(nodeId, dto);
+        }
+        return dto;
+    }
+}
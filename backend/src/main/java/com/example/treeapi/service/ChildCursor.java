@@ -0,0 +1,46 @@
+package com.example.treeapi.service;
+
+/**
+ * Position in a merged child listing, ordered by name (null names last), then folders before sensors, then id.
+ * <p>
+ * The wire format is {@code <name>,<f|s><id>}, e.g. {@code NODE1,f104} or {@code SENSOR1,s201}.
+ * The name may itself contain commas, so the last comma is the separator.
+ * A null name is written as an empty name with an upper-case type, e.g. {@code ,F104}, so it stays distinct from
+ * an empty name.
+ */
+public record ChildCursor(String name, boolean sensor, long id) {
+
+    public static ChildCursor folder(String name, long id) {
+        return new ChildCursor(name, false, id);
+    }
+
+    public static ChildCursor sensor(String name, long id) {
+        return new ChildCursor(name, true, id);
+    }
+
+    public static ChildCursor parse(String value) {
+        int separator = value.lastIndexOf(',');
+        if (separator < 0 || separator + 2 >= value.length()) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+        char type = value.charAt(separator + 1);
+        boolean nullName = type == 'F' || type == 'S';
+        if ((type != 'f' && type != 's' && !nullName) || (nullName && separator > 0)) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+        try {
+            return new ChildCursor(nullName ? null : value.substring(0, separator), type == 's' || type == 'S',
+                    Long.parseLong(value.substring(separator + 2)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (name == null) {
+            return "," + (sensor ? 'S' : 'F') + id;
+        }
+        return name + ',' + (sensor ? 's' : 'f') + id;
+    }
+}
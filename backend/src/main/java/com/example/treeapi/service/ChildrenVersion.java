@@ -0,0 +1,82 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.dto.NodeDto;
+import com.example.treeapi.dto.RevealPathDto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Content version of a child list: a 64-bit FNV-1a hash over each child's type, id, name, hasChildren and, when
+ * present, descendant counts, in order.
+ * Equal lists always get the same version, on every instance and for both readers, so clients can skip unchanged lists.
+ * The same versions serve as the strong ETags of the node endpoints.
+ */
+public final class ChildrenVersion {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ChildrenVersion() {
+    }
+
+    public static String of(List<NodeDto> children) {
+        return format(mix(FNV_OFFSET_BASIS, children));
+    }
+
+    /**
+     * Version of a reveal-path response: the path itself, then the version of each ancestor's child list in path order.
+     */
+    public static String of(RevealPathDto revealPath) {
+        return ofRevealPath(revealPath.getPath(), id -> {
+            List<NodeDto> children = revealPath.getChildrenMap().get(id);
+            return children == null ? null : of(children);
+        });
+    }
+
+    /**
+     * Same as {@link #of(RevealPathDto)}, from the path and the child list version of each ancestor id
+     * ({@code null} for ids whose list is not part of the response), so known list versions can be reused.
+     */
+    public static String ofRevealPath(List<NodeDto> path, Function<String, String> childrenVersions) {
+        long hash = mix(FNV_OFFSET_BASIS, path);
+        for (NodeDto ancestor : path) {
+            String children = childrenVersions.apply(ancestor.getId());
+            if (children != null) {
+                hash = mix(mix(hash, ancestor.getId()), children);
+            }
+        }
+        return format(hash);
+    }
+
+    private static long mix(long hash, List<NodeDto> nodes) {
+        for (NodeDto node : nodes) {
+            hash = mix(hash, node.getType());
+            hash = mix(hash, node.getId());
+            hash = mix(hash, node.getName());
+            hash = mix(hash, node.getHasChildren() ? "1" : "0");
+            // Absent counts add nothing, so versions of lists without them are unchanged
+            if (node.getDescendantFolders() != null || node.getDescendantSensors() != null) {
+                hash = mix(hash, node.getDescendantFolders() + "/" + node.getDescendantSensors());
+            }
+        }
+        // List terminator, so consecutive lists cannot shift into each other
+        return (hash ^ 0x2ff) * FNV_PRIME;
+    }
+
+    private static String format(long hash) {
+        return String.format("%016x", hash);
+    }
+
+    private static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+                hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+            }
+        }
+        // Field separator, so ("ab", "c") and ("a", "bc") differ; null is distinguished from ""
+        return (hash ^ (value == null ? 0x1ff : 0x100)) * FNV_PRIME;
+    }
+}
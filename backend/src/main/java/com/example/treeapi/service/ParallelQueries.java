@@ -0,0 +1,153 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.config.SqlStatementCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs an independent query on {@code treeQueryExecutor} while the caller runs its own, so the two database round
+ * trips overlap. Opt-in with {@code app.tree.parallel-queries.enabled}; when disabled, every fork runs inline.
+ * <p>
+ * At most {@code app.tree.parallel-queries.max-concurrency} forks run at once. A forked query borrows its own
+ * connection while the caller keeps the one from its transaction, so the bound must stay below the connection
+ * pool size. When no permit is free the query runs inline instead of waiting, which keeps a saturated pool from
+ * deadlocking on itself.
+ * <p>
+ * A forked query runs outside the caller's transaction, so it only sees committed data and must not return
+ * anything that needs lazy loading later; mapping to DTOs inside the query is the safe pattern.
+ * Use {@link Fork} with try-with-resources so a fork never outlives the call that started it:
+ * <pre>{@code
+ * try (ParallelQueries.Fork<List<NodeDto>> folders = parallelQueries.fork(() -> loadFolders(parentId))) {
+ *     List<NodeDto> sensors = loadSensors(parentId);
+ *     return merge(folders.join(), sensors);
+ * }
+ * }</pre>
+ */
+@Component
+public class ParallelQueries {
+
+    private final ExecutorService executor;
+    private final boolean enabled;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final Timer waitTimer;
+    private final Counter parallelForks;
+    private final Counter inlineForks;
+
+    public ParallelQueries(@Qualifier("treeQueryExecutor") ExecutorService executor,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.tree.parallel-queries.enabled:false}") boolean enabled,
+                           @Value("${app.tree.parallel-queries.max-concurrency:8}") int maxConcurrency) {
+        this.executor = executor;
+        this.enabled = enabled;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        // Queue time between fork and start; near zero unless the executor itself is the bottleneck
+        this.waitTimer = Timer.builder("tree.query.fork.wait")
+                .description("Time a forked tree query waited for a thread")
+                .register(meterRegistry);
+        this.parallelForks = Counter.builder("tree.query.forks").tag("mode", "parallel").register(meterRegistry);
+        // Inline forks while enabled mean max-concurrency was reached
+        this.inlineForks = Counter.builder("tree.query.forks").tag("mode", "inline").register(meterRegistry);
+        Gauge.builder("tree.query.fork.active", permits, p -> maxConcurrency - p.availablePermits())
+                .description("Forked tree queries currently running")
+                .register(meterRegistry);
+    }
+
+    public <T> Fork<T> fork(Supplier<T> query) {
+        if (!enabled || !permits.tryAcquire()) {
+            inlineForks.increment();
+            return Fork.completed(query.get());
+        }
+        parallelForks.increment();
+        // Statements of the forked query count towards the caller's request (see SqlStatementCounter)
+        Supplier<T> counted = SqlStatementCounter.propagate(query);
+        long submittedAt = System.nanoTime();
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    return null; // Closed before it started; the permit was released by close()
+                }
+                waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return counted.get();
+                } finally {
+                    permits.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            // Executor shutting down: give the permit back and answer inline
+            permits.release();
+            return Fork.completed(query.get());
+        }
+        return new Fork<>(future, () -> {
+            if (started.compareAndSet(false, true)) {
+                permits.release();
+                future.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * Result of a forked query. Closing it without {@link #join()} cancels the query if it has not started yet,
+     * or waits for it to finish, so the fork never outlives its scope.
+     */
+    public static final class Fork<T> implements AutoCloseable {
+
+        private final CompletableFuture<T> future;
+        private final Runnable cancelIfNotStarted;
+
+        private Fork(CompletableFuture<T> future, Runnable cancelIfNotStarted) {
+            this.future = future;
+            this.cancelIfNotStarted = cancelIfNotStarted;
+        }
+
+        private static <T> Fork<T> completed(T value) {
+            return new Fork<>(CompletableFuture.completedFuture(value), () -> { });
+        }
+
+        public T join() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (future.isDone()) {
+                return;
+            }
+            cancelIfNotStarted.run();
+            try {
+                future.join();
+            } catch (CompletionException | CancellationException ignored) {
+                // The caller is already failing or has its result; the fork only has to be over
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.domain.Node;
+import com.example.treeapi.domain.Sensor;
+import com.example.treeapi.dto.ChildrenPage;
+import com.example.treeapi.dto.NodeDto;
+import com.example.treeapi.dto.RevealPathDto;
+import com.example.treeapi.dto.SearchResultDto;
+import com.example.treeapi.dto.SearchResultPage;
+import com.example.treeapi.repository.NodeRepository;
+import com.example.treeapi.repository.NodeSummary;
+import com.example.treeapi.repository.SearchHitRow;
+import com.example.treeapi.repository.SensorHitRow;
+import com.example.treeapi.repository.SensorMembership;
+import com.example.treeapi.repository.SensorRepository;
+import com.example.treeapi.repository.SubtreeRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * JPA 리포지토리를 통해 매 요청마다 DB 에서 트리를 조회하는 {@link TreeReader}.
+ * 스냅샷 모드가 꺼져 있거나 스냅샷이 아직 적재되지 않은 경우에 사용됩니다.
+ * 하위 폴더/센서 수(descendantFolders, descendantSensors)는 폴더마다 재귀 집계가 필요하므로 채우지 않습니다 (JSON 에서 빠짐).
+ */
+@Component
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class RepositoryTreeReader implements TreeReader {
+
+    // Oracle rejects IN lists longer than 1000 elements
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    // Same order as the repositories' ORDER BY name: nulls sort last in Oracle and in H2 (DEFAULT_NULL_ORDERING=HIGH)
+    private static final Comparator<NodeDto> NAME_ORDER =
+            Comparator.comparing(NodeDto::getName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final NodeRepository nodeRepository;
+    private final SensorRepository sensorRepository;
+    private final ParallelQueries parallelQueries;
+
+    @Override
+    public List<NodeDto> getRootNodes() {
+        // In the new schema, root nodes are children of a virtual node with ID 1.
+        // The query already returns them ordered by name.
+        return nodeRepository.findChildSummariesByParentId(1L).stream()
+                .map(this::toNodeDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<NodeDto> getChildrenOf(Long parentId) {
+        if (parentId == null) {
+            return getRootNodes();
+        }
+
+        // Child counts come back with the children, so the statement count does not depend on fan-out.
+        // The folder query is mapped to DTOs where it runs, so it may run on another connection (see ParallelQueries).
+        try (ParallelQueries.Fork<List<NodeDto>> childNodes = parallelQueries.fork(() ->
+                nodeRepository.findChildSummariesByParentId(parentId).stream()
+                        .map(this::toNodeDto)
+                        .collect(Collectors.toList()))) {
+
+            // Since the relationship is ManyToMany, the parent's sensors are read through the map table in one join.
+            List<NodeDto> sensorDtos = sensorRepository.findAllByNodeId(parentId).stream()
+                    .map(sensor -> toSensorDto(sensor, parentId))
+                    .collect(Collectors.toList());
+
+            // Both lists arrive ordered by name, so a linear merge replaces sorting the combined list.
+            return SortedMerge.merge(List.of(childNodes.join(), sensorDtos), NAME_ORDER);
+        }
+    }
+
+    @Override
+    public Map<Long, List<NodeDto>> getChildrenOfAll(Collection<Long> parentIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(parentIds));
+
+        // One folder query and one sensor query per 1000 parents, grouped here by parent.
+        Map<Long, List<NodeDto>> folders = new HashMap<>();
+        Map<Long, List<NodeDto>> sensors = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST_SIZE, ids.size()));
+            nodeRepository.findChildSummariesByParentIdIn(chunk).forEach(child ->
+                    folders.computeIfAbsent(child.getParentId(), id -> new ArrayList<>()).add(toNodeDto(child)));
+            sensorRepository.findMembershipsByNodeIdIn(chunk).forEach(membership ->
+                    sensors.computeIfAbsent(membership.getNodeId(), id -> new ArrayList<>()).add(toSensorDto(membership)));
+        }
+
+        Map<Long, List<NodeDto>> children = new LinkedHashMap<>();
+        for (Long parentId : ids) {
+            children.put(parentId, SortedMerge.merge(List.of(
+                    folders.getOrDefault(parentId, List.of()), sensors.getOrDefault(parentId, List.of())), NAME_ORDER));
+        }
+        return children;
+    }
+
+    @Override
+    public ChildrenPage getChildrenPage(Long parentId, ChildCursor after, int limit) {
+        // Each source returns at most limit + 1 rows after the cursor, which is enough to fill the window
+        // and to know whether anything follows it.
+        Pageable window = PageRequest.of(0, limit + 1);
+        List<NodeSummary> folders;
+        List<Sensor> sensors;
+        if (after == null) {
+            folders = nodeRepository.findChildSummaryPage(parentId, window);
+            sensors = sensorRepository.findPageByNodeId(parentId, window);
+        } else {
+            // Folders sort before sensors on equal names, so a sensor cursor skips every folder with that name
+            // and a folder cursor keeps every sensor with that name. Null names sort last.
+            long folderId = after.sensor() ? Long.MAX_VALUE : after.id();
+            long sensorId = after.sensor() ? after.id() : Long.MIN_VALUE;
+            if (after.name() == null) {
+                folders = nodeRepository.findChildSummaryPageAfterNullName(parentId, folderId, window);
+                sensors = sensorRepository.findPageByNodeIdAfterNullName(parentId, sensorId, window);
+            } else {
+                folders = nodeRepository.findChildSummaryPageAfter(parentId, after.name(), folderId, window);
+                sensors = sensorRepository.findPageByNodeIdAfter(parentId, after.name(), sensorId, window);
+            }
+        }
+
+        List<NodeDto> items = SortedMerge.merge(List.of(
+                folders.stream().map(this::toNodeDto).collect(Collectors.toList()),
+                sensors.stream().map(sensor -> toSensorDto(sensor, parentId)).collect(Collectors.toList())),
+                NAME_ORDER, limit);
+        String nextCursor = null;
+        if (folders.size() + sensors.size() > items.size()) {
+            NodeDto last = items.get(items.size() - 1);
+            nextCursor = new ChildCursor(last.getName(), "sensor".equals(last.getType()), Long.parseLong(last.getId()))
+                    .toString();
+        }
+        long totalCount = nodeRepository.countByParentId(parentId) + sensorRepository.countByNodeId(parentId);
+        return new ChildrenPage(items, nextCursor, totalCount);
+    }
+
+    @Override
+    public SearchResultPage search(String query, int limit) {
+        String exact = query.toUpperCase(Locale.ROOT);
+        String escaped = escapeLike(exact);
+        String contains = "%" + escaped + "%";
+        // Ask for one row more than we can return so truncation is known without a count query.
+        Pageable candidates = PageRequest.of(0, limit + 1);
+        // Only basic fields of the folder hits are read, so that query may run on another connection.
+        // Sensor hits come back as one row per membership from a single NODE_SENSOR_MAP join, already in hit order,
+        // so no sensor's node collection is ever loaded.
+        List<Node> nodes;
+        List<SensorHitRow> sensorHits;
+        try (ParallelQueries.Fork<List<Node>> nodeHits = parallelQueries.fork(() ->
+                nodeRepository.findRankedByNodeName(exact, escaped + "%", contains, candidates))) {
+            sensorHits = sensorRepository.findRankedMembershipsBySensorName(exact, escaped + "%", contains, candidates);
+            nodes = nodeHits.join();
+        }
+
+        // Resolve the ancestors of every candidate in one pass so shared prefixes are fetched and built once.
+        Set<Long> hitNodeIds = new HashSet<>();
+        nodes.forEach(node -> hitNodeIds.add(node.getId()));
+        sensorHits.forEach(row -> hitNodeIds.add(row.getNodeId()));
+        AncestorPaths paths = new AncestorPaths(findAncestors(hitNodeIds)::get);
+
+        TopK<SearchHit> top = new TopK<>(limit, SearchHit.ORDER);
+        for (Node node : nodes) {
+            top.offer(SearchHit.folder(SearchHit.rank(node.getNodeName(), exact), paths.pathTo(node.getId()).size(),
+                    node.getNodeName(), node.getId()));
+        }
+        for (SensorHitRow row : sensorHits) {
+            top.offer(SearchHit.sensor(row.getMatchRank(), paths.pathTo(row.getNodeId()).size(), row.getName(),
+                    row.getId(), row.getNodeId(), row.getOccurrences()));
+        }
+
+        long totalCount = (nodes.size() > limit ? nodeRepository.countByNodeNameContainingIgnoreCase(query) : nodes.size())
+                + (sensorHits.size() > limit ? sensorRepository.countMembershipsBySensorName(contains) : sensorHits.size());
+        List<SearchResultDto> results = top.toSortedList().stream()
+                .map(hit -> hit.toDto(paths.pathTo(hit.nodeId())))
+                .collect(Collectors.toList());
+        return new SearchResultPage(results, totalCount > results.size(), totalCount);
+    }
+
+    @Override
+    public void streamChildren(Long parentId, Consumer<? super NodeDto> sink) {
+        if (parentId == null) {
+            getRootNodes().forEach(sink);
+            return;
+        }
+        // Two open cursors on the same connection, merged row by row; rows are projections, so nothing piles up
+        // in the persistence context.
+        try (Stream<NodeSummary> folders = nodeRepository.streamChildSummariesByParentId(parentId);
+             Stream<SensorMembership> sensors = sensorRepository.streamMembershipsByNodeId(parentId)) {
+            SortedMerge.merge(List.of(folders.map(this::toNodeDto).iterator(), sensors.map(this::toSensorDto).iterator()),
+                    NAME_ORDER, Long.MAX_VALUE, sink);
+        }
+    }
+
+    @Override
+    public long streamSearch(String query, long limit, Consumer<? super SearchResultDto> sink) {
+        String exact = query.toUpperCase(Locale.ROOT);
+        String escaped = escapeLike(exact);
+        String contains = "%" + escaped + "%";
+        SearchResultChunks chunks = new SearchResultChunks(nodeIds -> findAncestors(nodeIds)::get, sink);
+        long emitted;
+        try (Stream<SearchHitRow> folders = nodeRepository.streamRankedByNodeName(exact, escaped + "%", contains);
+             Stream<SensorHitRow> sensors = sensorRepository.streamRankedMembershipsBySensorName(
+                     exact, escaped + "%", contains)) {
+            emitted = SortedMerge.merge(List.of(
+                    folders.map(row -> SearchHit.folder(row.getMatchRank(), row.getDepth(), row.getName(), row.getId()))
+                            .iterator(),
+                    sensors.map(row -> SearchHit.sensor(row.getMatchRank(), row.getDepth(), row.getName(), row.getId(),
+                            row.getNodeId(), row.getOccurrences())).iterator()), SearchHit.ORDER, limit, chunks);
+        }
+        chunks.finish();
+        return emitted;
+    }
+
+    @Override
+    public void streamSubtree(Long nodeId, Consumer<? super NodeDto> sink) {
+        // The virtual root (ID=1) is not an ancestor by path, so its subtree is exported one root at a time.
+        if (nodeId == 1L) {
+            getRootNodes().forEach(root -> streamSubtree(Long.valueOf(root.getId()), sink));
+            return;
+        }
+        // One NODE_PATH range scan on a forward-only cursor; a node's rows are adjacent, one per sensor.
+        // An unknown id has no path and matches nothing.
+        String path = nodeRepository.findNodePathById(nodeId);
+        String pathPrefix = path == null ? null : escapeLike(path) + "|%";
+        try (Stream<SubtreeRow> rows = nodeRepository.streamSubtree(nodeId, pathPrefix)) {
+            // Exported nodes whose paths enclose the current row, innermost first: at most one per path level
+            Deque<SubtreeRow> enclosing = new ArrayDeque<>();
+            Long current = null;
+            boolean exported = false;
+            for (Iterator<SubtreeRow> it = rows.iterator(); it.hasNext(); ) {
+                SubtreeRow row = it.next();
+                if (!row.getId().equals(current)) {
+                    current = row.getId();
+                    exported = row.getId().equals(nodeId) || isFiledUnderParent(row, enclosing);
+                    if (exported) {
+                        enclosing.push(row);
+                        sink.accept(toNodeDto(row));
+                    }
+                }
+                if (exported && row.getSensorId() != null) {
+                    sink.accept(toSensorDto(row));
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the row's PARENT_ID is an exported node whose path the row's path lies under. A row filed under one
+     * path but parented elsewhere is left out, with everything below it, as {@link SnapshotTreeReader} does.
+     * Pops the nodes whose paths no longer enclose the row.
+     */
+    private static boolean isFiledUnderParent(SubtreeRow row, Deque<SubtreeRow> enclosing) {
+        String path = row.getNodePath();
+        while (!enclosing.isEmpty() && !path.equals(enclosing.peek().getNodePath())
+                && !path.startsWith(enclosing.peek().getNodePath() + "|")) {
+            enclosing.pop();
+        }
+        for (SubtreeRow ancestor : enclosing) {
+            if (ancestor.getId().equals(row.getParentId())) {
+                return path.startsWith(ancestor.getNodePath() + "|");
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public RevealPathDto revealPath(Long nodeId) {
+        // An unknown id yields an empty path, so no separate existence check is needed.
+        List<NodeDto> path = findPath(nodeId);
+        if (path.isEmpty()) {
+            return new RevealPathDto(Collections.emptyList(), Collections.emptyMap());
+        }
+        List<Long> ancestorIds = path.stream()
+                .map(p -> Long.valueOf(p.getId()))
+                .filter(id -> !id.equals(nodeId)) // Exclude the target node itself
+                .collect(Collectors.toList());
+        Map<String, List<NodeDto>> childrenMap = new HashMap<>();
+        getChildrenOfAll(ancestorIds).forEach((parentId, children) -> childrenMap.put(parentId.toString(), children));
+        return new RevealPathDto(path, childrenMap);
+    }
+
+    private List<NodeDto> findPath(Long nodeId) {
+        // One recursive query returns the node and all of its ancestors, root first.
+        List<NodeDto> path = nodeRepository.findPathSummaries(nodeId).stream()
+                .map(this::toNodeDto)
+                .collect(Collectors.toCollection(LinkedList::new));
+        // The absolute root (ID=1) is virtual, so remove it if it's in the path
+        if (!path.isEmpty() && "1".equals(path.get(0).getId())) {
+            path.remove(0);
+        }
+        return path;
+    }
+
+    private Map<Long, NodeDto> findAncestors(Collection<Long> nodeIds) {
+        Map<Long, NodeDto> ancestors = new HashMap<>();
+        List<Long> ids = new ArrayList<>(nodeIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST_SIZE, ids.size()));
+            nodeRepository.findAncestorSummaries(chunk).forEach(node -> ancestors.put(node.getId(), toNodeDto(node)));
+        }
+        return ancestors;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private NodeDto toNodeDto(NodeSummary node) {
+        NodeDto dto = new NodeDto();
+        dto.setId(node.getId().toString());
+        dto.setName(node.getNodeName());
+        dto.setType("folder");
+        if (node.getParentId() != null) {
+            dto.setParentId(node.getParentId().toString());
+        }
+        dto.setHasChildren(node.getChildCount() > 0 || node.getSensorCount() > 0);
+        dto.setMetadata(Collections.emptyMap());
+        return dto;
+    }
+
+    private NodeDto toNodeDto(SubtreeRow row) {
+        NodeDto dto = new NodeDto();
+        dto.setId(row.getId().toString());
+        dto.setName(row.getNodeName());
+        dto.setType("folder");
+        if (row.getParentId() != null) {
+            dto.setParentId(row.getParentId().toString());
+        }
+        dto.setHasChildren(row.getHasChildren());
+        dto.setMetadata(Collections.emptyMap());
+        return dto;
+    }
+
+    private NodeDto toSensorDto(SubtreeRow row) {
+        NodeDto dto = new NodeDto();
+        dto.setId(row.getSensorId().toString());
+        dto.setName(row.getSensorName());
+        dto.setType("sensor");
+        dto.setParentId(row.getId().toString());
+        dto.setHasChildren(false);
+        dto.setMetadata(Collections.emptyMap());
+        return dto;
+    }
+
+    private NodeDto toSensorDto(SensorMembership membership) {
+        NodeDto dto = new NodeDto();
+        dto.setId(membership.getId().toString());
+        dto.setName(membership.getSensorName());
+        dto.setType("sensor");
+        dto.setParentId(membership.getNodeId().toString());
+        dto.setHasChildren(false);
+        dto.setMetadata(Collections.emptyMap());
+        return dto;
+    }
+
+    private NodeDto toSensorDto(Sensor sensor, Long parentId) {
+        NodeDto dto = new NodeDto();
+        dto.setId(sensor.getId().toString());
+        dto.setName(sensor.getSensorName());
+        dto.setType("sensor");
+        dto.setParentId(parentId.toString());
+        dto.setHasChildren(false);
+        dto.setMetadata(Collections.emptyMap());
+        return dto;
+    }
+}
\ No newline at end of file
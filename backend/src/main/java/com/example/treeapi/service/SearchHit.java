@@ -0,0 +1,55 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.dto.NodeDto;
+import com.example.treeapi.dto.SearchResultDto;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A search candidate before its DTO is built.
+ *
+ * @param rank   {@link #EXACT}, {@link #PREFIX} or {@link #SUBSTRING}
+ * @param depth  length of the path to the hit
+ * @param nodeId      the folder itself, or the folder a sensor hit is shown under
+ * @param occurrences for a sensor, the number of folders it appears under; 0 for a folder
+ */
+record SearchHit(int rank, int depth, String name, String type, long id, long nodeId, int occurrences) {
+
+    static final int EXACT = 0;
+    static final int PREFIX = 1;
+    static final int SUBSTRING = 2;
+
+    /** Exact match first, then prefix, then substring, then the shortest path; the rest only makes it total. */
+    static final Comparator<SearchHit> ORDER = Comparator.comparingInt((SearchHit hit) -> hit.rank())
+            .thenComparingInt(SearchHit::depth)
+            .thenComparing(SearchHit::name, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(SearchHit::type)
+            .thenComparingLong(SearchHit::id)
+            .thenComparingLong(SearchHit::nodeId);
+
+    static SearchHit folder(int rank, int depth, String name, long id) {
+        return new SearchHit(rank, depth, name, "folder", id, id, 0);
+    }
+
+    static SearchHit sensor(int rank, int depth, String name, long id, long nodeId, int occurrences) {
+        return new SearchHit(rank, depth, name, "sensor", id, nodeId, occurrences);
+    }
+
+    static int rank(String name, String upperQuery) {
+        String upperName = name.toUpperCase(Locale.ROOT);
+        if (upperName.equals(upperQuery)) {
+            return EXACT;
+        }
+        return upperName.startsWith(upperQuery) ? PREFIX : SUBSTRING;
+    }
+
+    SearchResultDto toDto(List<NodeDto> path) {
+        SearchResultDto dto = new SearchResultDto(Long.toString(id), name, type, path);
+        if (occurrences > 0) {
+            dto.setOccurrences(occurrences);
+        }
+        return dto;
+    }
+}
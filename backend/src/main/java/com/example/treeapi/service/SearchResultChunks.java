@@ -0,0 +1,61 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.dto.NodeDto;
+import com.example.treeapi.dto.SearchResultDto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Turns ordered {@link SearchHit}s into {@link SearchResultDto}s a chunk at a time.
+ * <p>
+ * The paths of each chunk are resolved together, so the database reader needs one ancestor query per chunk
+ * instead of one per hit, while memory stays bounded by the chunk size however many hits there are.
+ * Call {@link #finish()} after the last hit.
+ */
+final class SearchResultChunks implements Consumer<SearchHit> {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final Function<Collection<Long>, Function<Long, NodeDto>> ancestorsOf;
+    private final Consumer<? super SearchResultDto> sink;
+    private final List<SearchHit> chunk = new ArrayList<>(CHUNK_SIZE);
+
+    /**
+     * @param ancestorsOf given the node ids of one chunk, returns a lookup covering those nodes and all their ancestors
+     */
+    SearchResultChunks(Function<Collection<Long>, Function<Long, NodeDto>> ancestorsOf,
+                       Consumer<? super SearchResultDto> sink) {
+        this.ancestorsOf = ancestorsOf;
+        this.sink = sink;
+    }
+
+    @Override
+    public void accept(SearchHit hit) {
+        chunk.add(hit);
+        if (chunk.size() == CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    void finish() {
+        if (!chunk.isEmpty()) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        Set<Long> nodeIds = new HashSet<>();
+        chunk.forEach(hit -> nodeIds.add(hit.nodeId()));
+        AncestorPaths paths = new AncestorPaths(ancestorsOf.apply(nodeIds));
+        for (SearchHit hit : chunk) {
+            sink.accept(hit.toDto(paths.pathTo(hit.nodeId())));
+        }
+        chunk.clear();
+    }
+}
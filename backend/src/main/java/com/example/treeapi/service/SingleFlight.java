@@ -0,0 +1,69 @@
+package com.example.treeapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a key is in flight, further callers with the same key wait
+ * for its {@link CompletableFuture} instead of running their own, so the load grows with the number of distinct keys
+ * rather than the number of callers.
+ * <p>
+ * The first caller (the leader) runs the call on its own thread, inside its own transaction; followers get the same
+ * result instance, or the same exception, and must treat it as read-only, as they already do with cached values.
+ * A follower may receive a result whose query started slightly before its own request; nothing is kept once the
+ * call completes, so that window is at most one query long. The key {@code null} is allowed.
+ */
+final class SingleFlight<K, V> {
+
+    private static final Object NULL_KEY = new Object();
+
+    private final ConcurrentHashMap<Object, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    SingleFlight(String operation, MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("tree.query.coalesced")
+                .description("Calls that shared an identical in-flight tree query instead of running their own")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    V execute(K key, Supplier<? extends V> call) {
+        Object mapKey = key == null ? NULL_KEY : key;
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(mapKey, flight);
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+        try {
+            V value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(mapKey, flight);
+        }
+    }
+
+    // Rethrow the leader's exception itself so exception handlers see the same type it would have seen.
+    private static <V> V await(CompletableFuture<V> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.dto.ChildrenPage;
+import com.example.treeapi.dto.NodeDto;
+import com.example.treeapi.dto.RevealPathDto;
+import com.example.treeapi.dto.SearchResultDto;
+import com.example.treeapi.dto.SearchResultPage;
+import com.example.treeapi.service.snapshot.TreeSnapshot;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * {@link TreeReader} that answers entirely from an immutable {@link TreeSnapshot}, without any database access.
+ * Results are identical to {@link RepositoryTreeReader} for the same data, except that folders also carry
+ * their precomputed descendant counts.
+ * <p>
+ * Child list versions are computed on first use and remembered for the lifetime of the snapshot, so a reader
+ * should be shared by every request against the same snapshot. Only ids the snapshot knows are remembered;
+ * unknown ids get no version, so requests for random ids cannot grow the memo.
+ * Reveal path versions are composed from the remembered child list versions along the path.
+ */
+@Slf4j
+public class SnapshotTreeReader implements TreeReader {
+
+    // ConcurrentHashMap rejects null keys, so the root list is stored under an id no node can have
+    private static final Long ROOT_KEY = TreeSnapshot.NO_PARENT;
+
+    private final TreeSnapshot snapshot;
+    private final Map<Long, String> childrenVersions = new ConcurrentHashMap<>();
+
+    public SnapshotTreeReader(TreeSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public TreeSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public String childrenVersion(Long parentId) {
+        // Rows may name a parent id that has no row of its own, so a child list alone also counts as known
+        if (parentId != null && snapshot.indexOfNode(parentId) < 0 && snapshot.childFoldersOf(parentId).length == 0) {
+            return null;
+        }
+        Long key = parentId == null ? ROOT_KEY : parentId;
+        return childrenVersions.computeIfAbsent(key, id -> ChildrenVersion.of(getChildrenOf(parentId)));
+    }
+
+    @Override
+    public String revealPathVersion(Long nodeId) {
+        int node = snapshot.indexOfNode(nodeId);
+        if (node < 0) {
+            return null;
+        }
+        // Same as ChildrenVersion.of(revealPath(nodeId)), without building the ancestors' child lists
+        String target = nodeId.toString();
+        return ChildrenVersion.ofRevealPath(findPath(node),
+                id -> id.equals(target) ? null : childrenVersion(Long.parseLong(id)));
+    }
+
+    @Override
+    public List<NodeDto> getRootNodes() {
+        int[] roots = snapshot.childFoldersOf(TreeSnapshot.VIRTUAL_ROOT_ID);
+        List<NodeDto> result = new ArrayList<>(roots.length);
+        for (int node : roots) {
+            result.add(toNodeDto(node));
+        }
+        return result;
+    }
+
+    @Override
+    public List<NodeDto> getChildrenOf(Long parentId) {
+        if (parentId == null) {
+            return getRootNodes();
+        }
+
+        List<NodeDto> childNodes = new ArrayList<>();
+        streamChildren(parentId, childNodes::add);
+        return childNodes;
+    }
+
+    @Override
+    public void streamChildren(Long parentId, Consumer<? super NodeDto> sink) {
+        if (parentId == null) {
+            getRootNodes().forEach(sink);
+            return;
+        }
+
+        // Both lists are pre-sorted by name, so a linear merge keeps folders ahead of sensors on equal names.
+        int[] folders = snapshot.childFoldersOf(parentId);
+        int parent = snapshot.indexOfNode(parentId);
+        int[] sensors = parent < 0 ? new int[0] : snapshot.sensorsOf(parent);
+        int f = 0;
+        int s = 0;
+        while (f < folders.length || s < sensors.length) {
+            if (s == sensors.length || (f < folders.length
+                    && compareNames(snapshot.nodeName(folders[f]), snapshot.sensorName(sensors[s])) <= 0)) {
+                sink.accept(toNodeDto(folders[f++]));
+            } else {
+                sink.accept(toSensorDto(sensors[s++], parentId));
+            }
+        }
+    }
+
+    @Override
+    public Map<Long, List<NodeDto>> getChildrenOfAll(Collection<Long> parentIds) {
+        Map<Long, List<NodeDto>> children = new LinkedHashMap<>();
+        for (Long parentId : parentIds) {
+            children.computeIfAbsent(parentId, this::getChildrenOf);
+        }
+        return children;
+    }
+
+    @Override
+    public ChildrenPage getChildrenPage(Long parentId, ChildCursor after, int limit) {
+        int[] folders = snapshot.childFoldersOf(parentId);
+        int parent = snapshot.indexOfNode(parentId);
+        int[] sensors = parent < 0 ? new int[0] : snapshot.sensorsOf(parent);
+        int f = 0;
+        int s = 0;
+        if (after != null) {
+            // Same keyset rule as the database reader: a sensor cursor skips every folder with that name,
+            // a folder cursor keeps every sensor with that name.
+            f = firstAfter(folders, snapshot::nodeName, snapshot::nodeId, after.name(),
+                    after.sensor() ? Long.MAX_VALUE : after.id());
+            s = firstAfter(sensors, snapshot::sensorName, snapshot::sensorId, after.name(),
+                    after.sensor() ? after.id() : Long.MIN_VALUE);
+        }
+
+        List<NodeDto> items = new ArrayList<>(Math.min(limit, folders.length - f + sensors.length - s));
+        ChildCursor last = null;
+        while (items.size() < limit && (f < folders.length || s < sensors.length)) {
+            if (s == sensors.length || (f < folders.length
+                    && compareNames(snapshot.nodeName(folders[f]), snapshot.sensorName(sensors[s])) <= 0)) {
+                int folder = folders[f++];
+                items.add(toNodeDto(folder));
+                last = ChildCursor.folder(snapshot.nodeName(folder), snapshot.nodeId(folder));
+            } else {
+                int sensor = sensors[s++];
+                items.add(toSensorDto(sensor, parentId));
+                last = ChildCursor.sensor(snapshot.sensorName(sensor), snapshot.sensorId(sensor));
+            }
+        }
+        boolean hasMore = f < folders.length || s < sensors.length;
+        return new ChildrenPage(items, hasMore ? last.toString() : null, folders.length + sensors.length);
+    }
+
+    @Override
+    public SearchResultPage search(String query, int limit) {
+        // Rank every hit cheaply from the index; DTOs and paths are only built for the top K.
+        TopK<SearchHit> top = topHits(query, limit);
+
+        AncestorPaths paths = new AncestorPaths(this::findNodeDto);
+        List<SearchResultDto> results = new ArrayList<>();
+        for (SearchHit hit : top.toSortedList()) {
+            results.add(hit.toDto(paths.pathTo(hit.nodeId())));
+        }
+        return new SearchResultPage(results, top.offered() > results.size(), top.offered());
+    }
+
+    @Override
+    public long streamSearch(String query, long limit, Consumer<? super SearchResultDto> sink) {
+        // Only the best limit hits are kept, and their DTOs and paths are built chunk by chunk.
+        List<SearchHit> hits = topHits(query, (int) Math.min(limit, Integer.MAX_VALUE)).toSortedList();
+        SearchResultChunks chunks = new SearchResultChunks(nodeIds -> this::findNodeDto, sink);
+        hits.forEach(chunks);
+        chunks.finish();
+        return hits.size();
+    }
+
+    private TopK<SearchHit> topHits(String query, int limit) {
+        String exact = query.toUpperCase(Locale.ROOT);
+        TopK<SearchHit> top = new TopK<>(limit, SearchHit.ORDER);
+        for (int node : snapshot.findNodesByName(query)) {
+            String name = snapshot.nodeName(node);
+            top.offer(SearchHit.folder(SearchHit.rank(name, exact), depthOf(node), name, snapshot.nodeId(node)));
+        }
+        for (int sensor : snapshot.findSensorsByName(query)) {
+            String name = snapshot.sensorName(sensor);
+            int rank = SearchHit.rank(name, exact);
+            int[] nodes = snapshot.nodesOf(sensor);
+            for (int node : nodes) {
+                top.offer(SearchHit.sensor(rank, depthOf(node), name, snapshot.sensorId(sensor), snapshot.nodeId(node),
+                        nodes.length));
+            }
+        }
+        return top;
+    }
+
+    @Override
+    public void streamSubtree(Long nodeId, Consumer<? super NodeDto> sink) {
+        int[] tops;
+        if (nodeId == TreeSnapshot.VIRTUAL_ROOT_ID) {
+            tops = snapshot.childFoldersOf(TreeSnapshot.VIRTUAL_ROOT_ID);
+        } else {
+            int node = snapshot.indexOfNode(nodeId);
+            tops = node < 0 ? new int[0] : new int[] {node};
+        }
+        for (int top : tops) {
+            for (int node : subtreeInPathOrder(top)) {
+                long id = snapshot.nodeId(node);
+                sink.accept(toNodeDto(node));
+                for (int sensor : snapshot.sensorsOf(node)) {
+                    sink.accept(toSensorDto(sensor, id));
+                }
+            }
+        }
+    }
+
+    /**
+     * {@code top} and the child folders filed under their parent's path, recursively, in the order of the database
+     * export: by path with '|' sorting first, then by id. A child whose path is not under its parent's is left out
+     * with everything below it; since paths only grow, a PARENT_ID cycle ends there too.
+     */
+    private List<Integer> subtreeInPathOrder(int top) {
+        List<Integer> members = new ArrayList<>();
+        members.add(top);
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(top);
+        while (!pending.isEmpty()) {
+            int node = pending.pop();
+            String path = snapshot.nodePath(node);
+            if (path == null) {
+                continue;
+            }
+            for (int child : snapshot.childFoldersOf(snapshot.nodeId(node))) {
+                String childPath = snapshot.nodePath(child);
+                if (childPath != null && childPath.startsWith(path + "|")) {
+                    members.add(child);
+                    pending.push(child);
+                }
+            }
+        }
+        members.subList(1, members.size()).sort(Comparator
+                .comparing((Integer node) -> snapshot.nodePath(node).replace('|', '\u0001'))
+                .thenComparingLong(snapshot::nodeId));
+        return members;
+    }
+
+    @Override
+    public RevealPathDto revealPath(Long nodeId) {
+        int node = snapshot.indexOfNode(nodeId);
+        if (node < 0) {
+            return new RevealPathDto(Collections.emptyList(), Collections.emptyMap());
+        }
+        List<NodeDto> path = findPath(node);
+        Map<String, List<NodeDto>> childrenMap = new HashMap<>();
+        path.stream()
+            .filter(p -> !p.getId().equals(nodeId.toString())) // Exclude the target node itself
+            .forEach(p -> childrenMap.put(p.getId(), getChildrenOf(Long.parseLong(p.getId()))));
+        return new RevealPathDto(path, childrenMap);
+    }
+
+    private List<NodeDto> findPath(int node) {
+        LinkedList<NodeDto> path = new LinkedList<>();
+        int current = node;
+        for (int steps = 0; current >= 0 && steps < snapshot.nodeCount(); current = snapshot.parentIndex(current), steps++) {
+            path.addFirst(toNodeDto(current));
+        }
+        warnIfCycle(node, current);
+        // The absolute root (ID=1) is virtual, so remove it if it's in the path
+        if (!path.isEmpty() && "1".equals(path.getFirst().getId())) {
+            path.removeFirst();
+        }
+        return path;
+    }
+
+    // Same length as the path built by findPath, without building it
+    private int depthOf(int node) {
+        int depth = 0;
+        int top = node;
+        int current = node;
+        for (; current >= 0 && depth < snapshot.nodeCount(); current = snapshot.parentIndex(current)) {
+            depth++;
+            top = current;
+        }
+        warnIfCycle(node, current);
+        return snapshot.nodeId(top) == TreeSnapshot.VIRTUAL_ROOT_ID ? depth - 1 : depth;
+    }
+
+    // A walk up the PARENT_ID links stops after one step per node; if it had not reached a root by then, it ran into a cycle
+    private void warnIfCycle(int node, int stoppedAt) {
+        if (stoppedAt >= 0) {
+            log.warn("PARENT_ID cycle above node {}; path cut after {} nodes", snapshot.nodeId(node), snapshot.nodeCount());
+        }
+    }
+
+    private NodeDto findNodeDto(Long nodeId) {
+        int node = snapshot.indexOfNode(nodeId);
+        return node < 0 ? null : toNodeDto(node);
+    }
+
+    private NodeDto toNodeDto(int node) {
+        NodeDto dto = new NodeDto();
+        dto.setId(Long.toString(snapshot.nodeId(node)));
+        dto.setName(snapshot.nodeName(node));
+        dto.setType("folder");
+        if (snapshot.parentId(node) != TreeSnapshot.NO_PARENT) {
+            dto.setParentId(Long.toString(snapshot.parentId(node)));
+        }
+        dto.setHasChildren(snapshot.hasChildren(node));
+        dto.setMetadata(Collections.emptyMap());
+        dto.setDescendantFolders(snapshot.descendantCounts().folders(node));
+        dto.setDescendantSensors(snapshot.descendantCounts().sensors(node));
+        return dto;
+    }
+
+    private NodeDto toSensorDto(int sensor, Long parentId) {
+        NodeDto dto = new NodeDto();
+        dto.setId(Long.toString(snapshot.sensorId(sensor)));
+        dto.setName(snapshot.sensorName(sensor));
+        dto.setType("sensor");
+        dto.setParentId(parentId.toString());
+        dto.setHasChildren(false);
+        dto.setMetadata(Collections.emptyMap());
+        return dto;
+    }
+
+    // Binary search over a list sorted by (name, id) for the first entry after (name, id)
+    private static int firstAfter(int[] sorted, IntFunction<String> nameOf, IntToLongFunction idOf, String name, long id) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareNames(nameOf.apply(sorted[mid]), name);
+            if (cmp < 0 || (cmp == 0 && idOf.applyAsLong(sorted[mid]) <= id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compareNames(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        return a.compareTo(b);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.treeapi.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Linear k-way merge of lists that are each already sorted, used to combine the separately queried folder and
+ * sensor children without re-sorting them.
+ * <p>
+ * Ties go to the earlier source, so passing folders before sensors keeps folders first on equal names.
+ * The sources must be sorted by the same {@code order}; for names that means the database has to sort them
+ * with a binary collation (Oracle's default {@code NLS_SORT=BINARY}, H2), which matches {@link String#compareTo}.
+ * List sources are read by index and should be random-access lists; iterator sources must not yield {@code null}.
+ */
+final class SortedMerge {
+
+    private SortedMerge() {
+    }
+
+    static <T> List<T> merge(List<? extends List<? extends T>> sources, Comparator<? super T> order) {
+        return merge(sources, order, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the first {@code limit} elements of the merged sequence
+     */
+    static <T> List<T> merge(List<? extends List<? extends T>> sources, Comparator<? super T> order, int limit) {
+        int total = 0;
+        for (List<? extends T> source : sources) {
+            total += source.size();
+        }
+        List<T> merged = new ArrayList<>(Math.min(total, limit));
+        int[] positions = new int[sources.size()];
+        // k is tiny (folders and sensors), so scanning the heads beats a heap.
+        while (merged.size() < limit) {
+            int best = -1;
+            T bestHead = null;
+            for (int k = 0; k < positions.length; k++) {
+                List<? extends T> source = sources.get(k);
+                if (positions[k] < source.size()) {
+                    T head = source.get(positions[k]);
+                    if (best < 0 || order.compare(head, bestHead) < 0) {
+                        best = k;
+                        bestHead = head;
+                    }
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            merged.add(bestHead);
+            positions[best]++;
+        }
+        return merged;
+    }
+
+    /**
+     * Streaming variant: pulls from the sources one element at a time and hands the first {@code limit} merged
+     * elements to {@code sink}, so only the current head of each source is held.
+     *
+     * @return the number of elements handed to {@code sink}
+     */
+    static <T> long merge(List<? extends Iterator<? extends T>> sources, Comparator<? super T> order, long limit,
+                          Consumer<? super T> sink) {
+        List<T> heads = new ArrayList<>(sources.size());
+        for (Iterator<? extends T> source : sources) {
+            heads.add(source.hasNext() ? source.next() : null);
+        }
+        long emitted = 0;
+        while (emitted < limit) {
+            int best = -1;
+            for (int k = 0; k < heads.size(); k++) {
+                T head = heads.get(k);
+                if (head != null && (best < 0 || order.compare(head, heads.get(best)) < 0)) {
+                    best = k;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            sink.accept(heads.get(best));
+            emitted++;
+            Iterator<? extends T> source = sources.get(best);
+            heads.set(best, source.hasNext() ? source.next() : null);
+        }
+        return emitted;
+    }
+}
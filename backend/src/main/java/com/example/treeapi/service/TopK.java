@@ -0,0 +1,46 @@
+package com.example.treeapi.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the {@code k} smallest elements offered to it, using a bounded max-heap.
+ * Memory stays O(k) no matter how many candidates are offered.
+ */
+class TopK<T> {
+
+    private final int k;
+    private final Comparator<T> order;
+    private final PriorityQueue<T> heap;
+    private long offered;
+
+    TopK(int k, Comparator<T> order) {
+        this.k = k;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, order.reversed());
+    }
+
+    void offer(T candidate) {
+        offered++;
+        if (heap.size() < k) {
+            heap.add(candidate);
+        } else if (k > 0 && order.compare(candidate, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+
+    /** Number of candidates offered so far, kept or not. */
+    long offered() {
+        return offered;
+    }
+
+    /** The kept elements, best first. */
+    List<T> toSortedList() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.config.CacheConfig;
+import com.example.treeapi.dto.RevealPathDto;
+import com.example.treeapi.service.snapshot.TreeSnapshot;
+import com.example.treeapi.service.snapshot.TreeSnapshotRefreshedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts cached tree responses when the underlying hierarchy changes.
+ * Does nothing when caching is disabled ({@code cache.enabled=false}).
+ */
+@Slf4j
+@Component
+public class TreeCacheInvalidator {
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public TreeCacheInvalidator(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Evicts every cached response that contains the child list of {@code parentId}:
+     * the children entry itself, the root list for the virtual root, and any reveal path that expanded it.
+     * If the change also flips the parent's own {@code hasChildren}, invalidate the grandparent as well.
+     */
+    public void invalidateChildren(Long parentId) {
+        CacheManager manager = cacheManager.getIfAvailable();
+        if (manager == null || parentId == null) {
+            return;
+        }
+        evict(manager.getCache(CacheConfig.CHILDREN), parentId);
+        if (parentId == TreeSnapshot.VIRTUAL_ROOT_ID) {
+            Cache rootNodes = manager.getCache(CacheConfig.ROOT_NODES);
+            if (rootNodes != null) {
+                rootNodes.clear();
+            }
+        }
+        if (manager.getCache(CacheConfig.REVEAL_PATH) instanceof CaffeineCache revealPath) {
+            String key = parentId.toString();
+            revealPath.getNativeCache().asMap().values()
+                    .removeIf(value -> value instanceof RevealPathDto dto && dto.getChildrenMap().containsKey(key));
+        }
+    }
+
+    public void invalidateAll() {
+        CacheManager manager = cacheManager.getIfAvailable();
+        if (manager == null) {
+            return;
+        }
+        manager.getCacheNames().forEach(name -> {
+            Cache cache = manager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        });
+    }
+
+    @EventListener
+    public void onSnapshotRefreshed(TreeSnapshotRefreshedEvent event) {
+        if (event.changedParentIds() == null) {
+            log.debug("Tree snapshot v{} published, clearing tree caches", event.current().getVersion());
+            invalidateAll();
+            return;
+        }
+        log.debug("Tree snapshot v{} patched, evicting {} child lists",
+                event.current().getVersion(), event.changedParentIds().size());
+        event.changedParentIds().forEach(this::invalidateChildren);
+    }
+
+    private static void evict(Cache cache, Object key) {
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+}
@@ -1,126 +1,220 @@
 package com.example.treeapi.service;
 
-import com.example.treeapi.domain.Node;
-import com.example.treeapi.domain.Sensor;
+import com.example.treeapi.config.CacheConfig;
+import com.example.treeapi.dto.ChildrenBatchEntry;
+import com.example.treeapi.dto.ChildrenPage;
 import com.example.treeapi.dto.NodeDto;
 import com.example.treeapi.dto.RevealPathDto;
 import com.example.treeapi.dto.SearchResultDto;
-import com.example.treeapi.repository.NodeRepository;
-import com.example.treeapi.repository.SensorRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.treeapi.dto.SearchResultPage;
+import com.example.treeapi.service.snapshot.TreeSnapshot;
+import com.example.treeapi.service.snapshot.TreeSnapshotHolder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
-@RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class TreeDataService {
 
-    private final NodeRepository nodeRepository;
-    private final SensorRepository sensorRepository;
+    private final RepositoryTreeReader repositoryTreeReader;
+    private final TreeSnapshotHolder snapshotHolder;
+    private final int maxSearchResults;
+    private final int maxChildrenPageSize;
+    private final long maxStreamedResults;
+    private final TreeMetrics metrics;
+    private volatile SnapshotTreeReader snapshotReader;
+
+    // Identical concurrent cache misses share one query (see SingleFlight); the root listing is the null parent.
+    private final SingleFlight<Long, List<NodeDto>> childrenFlights;
+    private final SingleFlight<Long, RevealPathDto> revealPathFlights;
+    private final SingleFlight<String, SearchResultPage> searchFlights;
+
+    public TreeDataService(RepositoryTreeReader repositoryTreeReader,
+                           TreeSnapshotHolder snapshotHolder,
+                           TreeMetrics metrics,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.search.max-results:1000}") int maxSearchResults,
+                           @Value("${app.tree.children.max-page-size:1000}") int maxChildrenPageSize,
+                           @Value("${app.search.max-streamed-results:100000}") long maxStreamedResults) {
+        this.repositoryTreeReader = repositoryTreeReader;
+        this.snapshotHolder = snapshotHolder;
+        this.maxSearchResults = maxSearchResults;
+        this.maxChildrenPageSize = maxChildrenPageSize;
+        this.maxStreamedResults = maxStreamedResults;
+        this.metrics = metrics;
+        this.childrenFlights = new SingleFlight<>("children", meterRegistry);
+        this.revealPathFlights = new SingleFlight<>("reveal-path", meterRegistry);
+        this.searchFlights = new SingleFlight<>("search", meterRegistry);
+    }
 
+    @Cacheable(CacheConfig.ROOT_NODES)
     public List<NodeDto> getRootNodes() {
-        // In the new schema, root nodes are children of a virtual node with ID 1.
-        return nodeRepository.findByParentId(1L).stream()
-                .map(this::toNodeDto)
-                .sorted(Comparator.comparing(NodeDto::getName))
-                .collect(Collectors.toList());
+        return metrics.record("roots", () -> childrenFlights.execute(null, () -> reader().getRootNodes()), List::size);
+    }
+
+    /**
+     * {@link ChildrenVersion} of {@link #getRootNodes()} when it is known without loading the list, else {@code null}.
+     * This is the case while a snapshot is loaded; the node endpoints use it to answer {@code If-None-Match} early.
+     */
+    public String rootNodesVersion() {
+        return reader().childrenVersion(null);
+    }
+
+    /** Like {@link #rootNodesVersion()}, for {@link #getChildrenOf(Long)}. */
+    public String childrenVersion(Long parentId) {
+        return reader().childrenVersion(parentId);
+    }
+
+    /** Like {@link #rootNodesVersion()}, for {@link #revealPath(Long)}. */
+    public String revealPathVersion(Long nodeId) {
+        return reader().revealPathVersion(nodeId);
     }
 
+    @Cacheable(cacheNames = CacheConfig.CHILDREN, condition = "#parentId != null")
     public List<NodeDto> getChildrenOf(Long parentId) {
-        if (parentId == null) {
-            return getRootNodes();
-        }
+        return metrics.record("children",
+                () -> childrenFlights.execute(parentId, () -> reader().getChildrenOf(parentId)), List::size);
+    }
 
-        List<NodeDto> childNodes = nodeRepository.findByParentId(parentId).stream()
-                .map(this::toNodeDto)
-                .collect(Collectors.toList());
-
-        // Since the relationship is now ManyToMany, we fetch the parent and get sensors.
-        nodeRepository.findById(parentId).ifPresent(parent -> {
-            List<NodeDto> sensorDtos = parent.getSensors().stream()
-                    .map(sensor -> {
-                        NodeDto dto = toSensorDto(sensor);
-                        dto.setParentId(parent.getId().toString()); // Set correct parent ID
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
-            childNodes.addAll(sensorDtos);
+    /**
+     * Children of many parents in a constant number of statements, each with its {@link ChildrenVersion}.
+     * Parents whose version matches {@code knownVersions} come back as not modified, without children.
+     */
+    public Map<String, ChildrenBatchEntry> getChildrenBatch(List<Long> parentIds, Map<String, String> knownVersions) {
+        return metrics.record("children-batch", () -> loadChildrenBatch(parentIds, knownVersions), Map::size);
+    }
+
+    private Map<String, ChildrenBatchEntry> loadChildrenBatch(List<Long> parentIds, Map<String, String> knownVersions) {
+        Map<String, String> known = knownVersions == null ? Map.of() : knownVersions;
+        TreeReader reader = reader();
+        Map<String, ChildrenBatchEntry> entries = new LinkedHashMap<>();
+        List<Long> toLoad = new ArrayList<>();
+        for (Long parentId : parentIds) {
+            // With a snapshot, unchanged parents are recognised from the remembered version alone
+            String key = parentId.toString();
+            String version = reader.childrenVersion(parentId);
+            if (version != null && version.equals(known.get(key))) {
+                entries.put(key, ChildrenBatchEntry.notModified(version));
+            } else {
+                entries.put(key, null);
+                toLoad.add(parentId);
+            }
+        }
+        reader.getChildrenOfAll(toLoad).forEach((parentId, children) -> {
+            String key = parentId.toString();
+            String version = ChildrenVersion.of(children);
+            entries.put(key, version.equals(known.get(key))
+                    ? ChildrenBatchEntry.notModified(version)
+                    : ChildrenBatchEntry.of(version, children));
         });
+        return entries;
+    }
 
-        childNodes.sort(Comparator.comparing(NodeDto::getName));
+    /**
+     * Returns one window of the children of {@code parentId}, ordered by name with folders before sensors on ties.
+     * Pass the previous page's {@link ChildrenPage#getNextCursor()} as {@code after} to continue;
+     * {@code limit} is capped at {@code app.tree.children.max-page-size}. Windows are not cached.
+     */
+    public ChildrenPage getChildrenPage(Long parentId, String after, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        ChildCursor cursor = after == null || after.isEmpty() ? null : ChildCursor.parse(after);
+        return metrics.record("children-page",
+                () -> reader().getChildrenPage(parentId, cursor, Math.min(limit, maxChildrenPageSize)),
+                page -> page.getItems().size());
+    }
 
-        return childNodes;
+    /**
+     * Returns the best {@code app.search.max-results} hits: exact name matches first, then prefix,
+     * then substring matches, each ordered by the shortest path.
+     * Matching ignores case, so concurrent searches that differ only in case share one query.
+     */
+    public SearchResultPage search(String query) {
+        SearchResultPage page = metrics.record("search",
+                () -> searchFlights.execute(query.toUpperCase(Locale.ROOT), () -> reader().search(query, maxSearchResults)),
+                result -> result.getResults().size());
+        page.getResults().forEach(result -> metrics.recordPathDepth("search", result.getPath().size()));
+        return page;
     }
 
     public List<SearchResultDto> searchNodes(String query) {
-        List<SearchResultDto> nodeResults = nodeRepository.findByNodeNameContainingIgnoreCase(query).stream()
-                .map(node -> new SearchResultDto(node.getId().toString(), node.getNodeName(), "folder", findPath(node)))
-                .collect(Collectors.toList());
+        return search(query).getResults();
+    }
+
+    /**
+     * Streaming counterpart of {@link #getChildrenOf(Long)}: same children, same order, handed over one at a time.
+     * Not cached.
+     */
+    public void streamChildren(Long parentId, Consumer<? super NodeDto> sink) {
+        metrics.record("children-stream", () -> {
+            long[] streamed = {0};
+            reader().streamChildren(parentId, child -> {
+                streamed[0]++;
+                sink.accept(child);
+            });
+            return streamed[0];
+        }, Long::longValue);
+    }
 
-        List<SearchResultDto> sensorResults = sensorRepository.findBySensorNameContainingIgnoreCase(query).stream()
-                .flatMap(sensor -> sensor.getNodes().stream()
-                        .map(node -> new SearchResultDto(sensor.getId().toString(), sensor.getSensorName(), "sensor", findPath(node))))
-                .collect(Collectors.toList());
+    /**
+     * Streaming counterpart of {@link #search(String)}: hits in the same order, handed over as their paths are
+     * resolved. Up to {@code app.search.max-streamed-results} hits; memory does not grow with the number of hits.
+     *
+     * @return the number of hits handed to {@code sink}
+     */
+    public long streamSearch(String query, Consumer<? super SearchResultDto> sink) {
+        return metrics.record("search-stream", () -> reader().streamSearch(query, maxStreamedResults, result -> {
+            metrics.recordPathDepth("search-stream", result.getPath().size());
+            sink.accept(result);
+        }), Long::longValue);
+    }
 
-        return Stream.concat(nodeResults.stream(), sensorResults.stream()).collect(Collectors.toList());
+    /**
+     * Streams {@code nodeId} and everything below it, with sensors, depth first (see {@link TreeReader#streamSubtree}).
+     * Meant for exports: memory does not grow with the size of the subtree. Not cached.
+     */
+    public void streamSubtree(Long nodeId, Consumer<? super NodeDto> sink) {
+        metrics.record("subtree-stream", () -> {
+            long[] streamed = {0};
+            reader().streamSubtree(nodeId, node -> {
+                streamed[0]++;
+                sink.accept(node);
+            });
+            return streamed[0];
+        }, Long::longValue);
     }
 
+    @Cacheable(CacheConfig.REVEAL_PATH)
     public RevealPathDto revealPath(Long nodeId) {
-        return nodeRepository.findById(nodeId)
-                .map(node -> {
-                    List<NodeDto> path = findPath(node);
-                    Map<String, List<NodeDto>> childrenMap = new HashMap<>();
-                    path.stream()
-                        .filter(p -> !p.getId().equals(nodeId.toString())) // Exclude the target node itself
-                        .forEach(p -> childrenMap.put(p.getId(), getChildrenOf(Long.parseLong(p.getId()))));
-                    return new RevealPathDto(path, childrenMap);
-                })
-                .orElse(new RevealPathDto(Collections.emptyList(), Collections.emptyMap()));
-    }
-
-    private List<NodeDto> findPath(Node node) {
-        LinkedList<NodeDto> path = new LinkedList<>();
-        Node currentNode = node;
-        while (currentNode != null && currentNode.getParentId() != null) {
-            path.addFirst(toNodeDto(currentNode));
-            currentNode = nodeRepository.findById(currentNode.getParentId()).orElse(null);
-        }
-        if (currentNode != null) {
-            path.addFirst(toNodeDto(currentNode));
-        }
-        // The absolute root (ID=1) is virtual, so remove it if it's in the path
-        if (!path.isEmpty() && "1".equals(path.getFirst().getId())) {
-            path.removeFirst();
-        }
-        return path;
+        RevealPathDto revealed = metrics.record("reveal-path",
+                () -> revealPathFlights.execute(nodeId, () -> reader().revealPath(nodeId)),
+                result -> result.getChildrenMap().values().stream().mapToLong(List::size).sum());
+        metrics.recordPathDepth("reveal-path", revealed.getPath().size());
+        return revealed;
     }
 
-    private NodeDto toNodeDto(Node node) {
-        NodeDto dto = new NodeDto();
-        dto.setId(node.getId().toString());
-        dto.setName(node.getNodeName());
-        dto.setType("folder");
-        if (node.getParentId() != null) {
-            dto.setParentId(node.getParentId().toString());
+    // Answer from the in-memory snapshot when one is loaded, so the hot path never opens a transaction.
+    // A single snapshot reference is used for the whole call, which keeps each response consistent across a refresh.
+    // One snapshot reader is kept per snapshot so that the versions it remembers survive across requests.
+    private TreeReader reader() {
+        TreeSnapshot snapshot = snapshotHolder.current();
+        if (snapshot == null) {
+            return repositoryTreeReader;
+        }
+        SnapshotTreeReader reader = snapshotReader;
+        if (reader == null || reader.getSnapshot() != snapshot) {
+            reader = new SnapshotTreeReader(snapshot);
+            snapshotReader = reader;
         }
-        // Compute hasChildren on the fly
-        dto.setHasChildren(nodeRepository.hasChildren(node.getId()) || !node.getSensors().isEmpty());
-        dto.setMetadata(Collections.emptyMap());
-        return dto;
-    }
-
-    private NodeDto toSensorDto(Sensor sensor) {
-        NodeDto dto = new NodeDto();
-        dto.setId(sensor.getId().toString());
-        dto.setName(sensor.getSensorName());
-        dto.setType("sensor");
-        dto.setHasChildren(false);
-        dto.setMetadata(Collections.emptyMap());
-        return dto;
-    }
-}
\ No newline at end of file
+        return reader;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.config.SqlStatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Meters for the {@link TreeDataService} operations, tagged by operation:
+ * <ul>
+ *   <li>{@code tree.service} latency histogram, also tagged by outcome</li>
+ *   <li>{@code tree.service.results} items returned per call</li>
+ *   <li>{@code tree.service.statements} SQL statements per call, including those of forked queries
+ *       (see {@link SqlStatementCounter}); zero while a snapshot answers</li>
+ *   <li>{@code tree.service.path.depth} length of each returned path</li>
+ * </ul>
+ * The service methods are recorded inside their cache, so these measure what a cache miss costs;
+ * {@code http.server.requests} covers the endpoints end to end.
+ */
+@Component
+public class TreeMetrics {
+
+    private final MeterRegistry registry;
+
+    public TreeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    <T> T record(String operation, Supplier<T> call, ToLongFunction<? super T> resultSize) {
+        Timer.Sample sample = Timer.start(registry);
+        LongAdder statements = new LongAdder();
+        String outcome = "error";
+        try {
+            T result = SqlStatementCounter.count(statements, call);
+            summary("tree.service.results", operation, 100_000).record(resultSize.applyAsLong(result));
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(Timer.builder("tree.service")
+                    .description("Latency of tree service operations")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry));
+            summary("tree.service.statements", operation, 1_000).record(statements.sum());
+        }
+    }
+
+    void recordPathDepth(String operation, int depth) {
+        summary("tree.service.path.depth", operation, 256).record(depth);
+    }
+
+    private DistributionSummary summary(String name, String operation, double maximumExpectedValue) {
+        return DistributionSummary.builder(name)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(maximumExpectedValue)
+                .register(registry);
+    }
+}
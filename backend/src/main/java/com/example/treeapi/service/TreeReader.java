@@ -0,0 +1,79 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.dto.ChildrenPage;
+import com.example.treeapi.dto.NodeDto;
+import com.example.treeapi.dto.RevealPathDto;
+import com.example.treeapi.dto.SearchResultDto;
+import com.example.treeapi.dto.SearchResultPage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link TreeDataService} 가 위임하는 트리 조회 연산.
+ * 구현체는 DB 조회({@link RepositoryTreeReader})와 메모리 스냅샷 조회({@link SnapshotTreeReader}) 두 가지입니다.
+ */
+public interface TreeReader {
+
+    List<NodeDto> getRootNodes();
+
+    List<NodeDto> getChildrenOf(Long parentId);
+
+    /**
+     * Children of several parents at once, keyed by parent id. Every requested id has an entry (empty if unknown),
+     * and each list equals {@link #getChildrenOf(Long)} for that parent.
+     */
+    Map<Long, List<NodeDto>> getChildrenOfAll(Collection<Long> parentIds);
+
+    /**
+     * Returns at most {@code limit} children that come after {@code after} (or from the start when it is null),
+     * in the order described by {@link ChildCursor}.
+     */
+    ChildrenPage getChildrenPage(Long parentId, ChildCursor after, int limit);
+
+    /**
+     * Returns at most {@code limit} hits ranked by {@link SearchHit#ORDER}, with the total number of hits.
+     */
+    SearchResultPage search(String query, int limit);
+
+    RevealPathDto revealPath(Long nodeId);
+
+    /**
+     * Hands the children of {@code parentId} to {@code sink} in {@link #getChildrenOf(Long)} order without building
+     * the whole list.
+     */
+    void streamChildren(Long parentId, Consumer<? super NodeDto> sink);
+
+    /**
+     * Hands at most {@code limit} hits to {@code sink} in {@link SearchHit#ORDER}, resolving their paths in chunks,
+     * so memory does not grow with the number of hits.
+     *
+     * @return the number of hits handed to {@code sink}
+     */
+    long streamSearch(String query, long limit, Consumer<? super SearchResultDto> sink);
+
+    /**
+     * Hands {@code nodeId} and its descendants to {@code sink} in NODE_PATH order (depth first, '|' sorting before
+     * any name character, ties by id): each folder, then its sensors in name order. A descendant is one whose PARENT_ID
+     * is in the subtree and whose path lies under its parent's; a folder whose path and parent disagree is left out
+     * with everything below it. For the virtual root, the subtree of every root node in turn. Nothing for an unknown id.
+     */
+    void streamSubtree(Long nodeId, Consumer<? super NodeDto> sink);
+
+    /**
+     * {@link ChildrenVersion} of {@code getChildrenOf(parentId)} (the root nodes for {@code null}),
+     * or {@code null} if this reader cannot tell without loading the list.
+     */
+    default String childrenVersion(Long parentId) {
+        return null;
+    }
+
+    /**
+     * {@link ChildrenVersion} of {@code revealPath(nodeId)}, or {@code null} if this reader cannot tell without loading it.
+     */
+    default String revealPathVersion(Long nodeId) {
+        return null;
+    }
+}
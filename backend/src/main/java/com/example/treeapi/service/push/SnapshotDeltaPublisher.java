@@ -0,0 +1,66 @@
+package com.example.treeapi.service.push;
+
+import com.example.treeapi.dto.NodeDto;
+import com.example.treeapi.dto.TreeDelta;
+import com.example.treeapi.service.SnapshotTreeReader;
+import com.example.treeapi.service.snapshot.TreeSnapshot;
+import com.example.treeapi.service.snapshot.TreeSnapshotRefreshedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Turns a snapshot refresh into add/remove/update deltas for every subscribed parent.
+ * Only subscribed child lists are compared, so the cost follows what clients have expanded, not the tree size;
+ * after an incremental patch, only the subscribed lists the patch touched.
+ * Runs on the thread that refreshed the snapshot, never on a request thread.
+ */
+@Component
+@RequiredArgsConstructor
+public class SnapshotDeltaPublisher {
+
+    private final TreeSubscriptions subscriptions;
+    private final TreeDeltaBroadcaster broadcaster;
+
+    @EventListener
+    public void onSnapshotRefreshed(TreeSnapshotRefreshedEvent event) {
+        if (event.previous() == null) {
+            return;
+        }
+        SnapshotTreeReader before = new SnapshotTreeReader(event.previous());
+        SnapshotTreeReader after = new SnapshotTreeReader(event.current());
+        Set<Long> changed = event.changedParentIds();
+        for (Long parentId : subscriptions.subscribedParentIds()) {
+            if (changed != null && !changed.contains(parentId)) {
+                continue;
+            }
+            diff(childrenOf(before, parentId), childrenOf(after, parentId))
+                    .forEach(delta -> broadcaster.enqueue(parentId, delta));
+        }
+    }
+
+    private static List<NodeDto> childrenOf(SnapshotTreeReader reader, Long parentId) {
+        // The root topic mirrors /api/nodes/root
+        return parentId == TreeSnapshot.VIRTUAL_ROOT_ID ? reader.getRootNodes() : reader.getChildrenOf(parentId);
+    }
+
+    static List<TreeDelta> diff(List<NodeDto> before, List<NodeDto> after) {
+        Map<String, NodeDto> previous = new HashMap<>();
+        before.forEach(node -> previous.put(node.getType() + ':' + node.getId(), node));
+        List<TreeDelta> deltas = new ArrayList<>();
+        for (NodeDto node : after) {
+            NodeDto old = previous.remove(node.getType() + ':' + node.getId());
+            if (old == null) {
+                deltas.add(TreeDelta.added(node));
+            } else if (!Objects.equals(old.getName(), node.getName()) || old.getHasChildren() != node.getHasChildren()
+                    || !Objects.equals(old.getDescendantFolders(), node.getDescendantFolders())
+                    || !Objects.equals(old.getDescendantSensors(), node.getDescendantSensors())) {
+                deltas.add(TreeDelta.updated(node));
+            }
+        }
+        previous.values().forEach(node -> deltas.add(TreeDelta.removed(node)));
+        return deltas;
+    }
+}
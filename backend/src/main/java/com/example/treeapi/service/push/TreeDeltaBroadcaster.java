@@ -0,0 +1,119 @@
+package com.example.treeapi.service.push;
+
+import com.example.treeapi.dto.TreeDelta;
+import com.example.treeapi.dto.TreeDeltaBatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers child-list deltas per parent and pushes them to {@code /topic/nodes/{parentId}}.
+ * <p>
+ * Deltas for the same child are coalesced while buffered (e.g. added then removed cancels out), and the buffer
+ * is flushed on {@code webSocketScheduler} every {@code app.websocket.batch-interval}, or as soon as it holds
+ * {@code app.websocket.batch-size} deltas. A message never carries more than batch-size deltas.
+ */
+@Slf4j
+@Component
+public class TreeDeltaBroadcaster {
+
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final ScheduledExecutorService scheduler;
+    private final int batchSize;
+    private final Duration batchInterval;
+
+    private final Object lock = new Object();
+    private Map<Long, Map<String, TreeDelta>> pending = new LinkedHashMap<>();
+    private int pendingCount;
+    private boolean flushScheduled;
+
+    public TreeDeltaBroadcaster(SimpMessageSendingOperations messagingTemplate,
+                                @Qualifier("webSocketScheduler") ScheduledExecutorService scheduler,
+                                @Value("${app.websocket.batch-size:50}") int batchSize,
+                                @Value("${app.websocket.batch-interval:100ms}") Duration batchInterval) {
+        this.messagingTemplate = messagingTemplate;
+        this.scheduler = scheduler;
+        this.batchSize = batchSize;
+        this.batchInterval = batchInterval;
+    }
+
+    public void enqueue(Long parentId, TreeDelta delta) {
+        boolean flushNow;
+        boolean scheduleFlush = false;
+        synchronized (lock) {
+            Map<String, TreeDelta> deltas = pending.computeIfAbsent(parentId, id -> new LinkedHashMap<>());
+            String key = delta.getNodeType() + ':' + delta.getId();
+            int before = deltas.size();
+            TreeDelta merged = coalesce(deltas.get(key), delta);
+            if (merged == null) {
+                deltas.remove(key);
+            } else {
+                deltas.put(key, merged);
+            }
+            pendingCount += deltas.size() - before;
+            if (deltas.isEmpty()) {
+                pending.remove(parentId);
+            }
+            flushNow = pendingCount >= batchSize;
+            if (!flushNow && !flushScheduled && pendingCount > 0) {
+                flushScheduled = true;
+                scheduleFlush = true;
+            }
+        }
+        if (flushNow) {
+            scheduler.execute(this::flush);
+        } else if (scheduleFlush) {
+            scheduler.schedule(this::flush, batchInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void flush() {
+        Map<Long, Map<String, TreeDelta>> batch;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            pendingCount = 0;
+        }
+        batch.forEach((parentId, deltas) -> {
+            List<TreeDelta> list = new ArrayList<>(deltas.values());
+            for (int from = 0; from < list.size(); from += batchSize) {
+                List<TreeDelta> chunk = list.subList(from, Math.min(from + batchSize, list.size()));
+                try {
+                    messagingTemplate.convertAndSend(TreeSubscriptions.TOPIC_PREFIX + parentId,
+                            new TreeDeltaBatch(parentId.toString(), new ArrayList<>(chunk)));
+                } catch (RuntimeException e) {
+                    // Clients resynchronise with a normal children reload; one failed send must not stop the rest.
+                    log.warn("Failed to push {} deltas for parent {}", chunk.size(), parentId, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the single delta equivalent to {@code previous} followed by {@code next}, or {@code null} if they cancel out
+     */
+    static TreeDelta coalesce(TreeDelta previous, TreeDelta next) {
+        if (previous == null) {
+            return next;
+        }
+        return switch (previous.getType()) {
+            case ADDED -> next.getType() == TreeDelta.Type.REMOVED ? null : TreeDelta.added(next.getNode());
+            case REMOVED -> next.getType() == TreeDelta.Type.REMOVED ? next : TreeDelta.updated(next.getNode());
+            case UPDATED -> next.getType() == TreeDelta.Type.ADDED ? TreeDelta.updated(next.getNode()) : next;
+        };
+    }
+}
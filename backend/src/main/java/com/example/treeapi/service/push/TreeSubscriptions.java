@@ -0,0 +1,81 @@
+package com.example.treeapi.service.push;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which parent ids have at least one subscriber on {@code /topic/nodes/{parentId}},
+ * so deltas are only computed for child lists that somebody has expanded.
+ */
+@Component
+public class TreeSubscriptions {
+
+    public static final String TOPIC_PREFIX = "/topic/nodes/";
+
+    // session id -> subscription id -> parent id
+    private final Map<String, Map<String, Long>> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> subscriberCounts = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Long parentId = parentIdOf(accessor.getDestination());
+        if (parentId == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        Long previous = sessions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), parentId);
+        if (previous != null) {
+            release(previous);
+        }
+        subscriberCounts.merge(parentId, 1, Integer::sum);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, Long> subscriptions = accessor.getSessionId() == null ? null : sessions.get(accessor.getSessionId());
+        if (subscriptions != null && accessor.getSubscriptionId() != null) {
+            Long parentId = subscriptions.remove(accessor.getSubscriptionId());
+            if (parentId != null) {
+                release(parentId);
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, Long> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    /** @return a copy of the parent ids that currently have subscribers */
+    public Set<Long> subscribedParentIds() {
+        return Set.copyOf(subscriberCounts.keySet());
+    }
+
+    static Long parentIdOf(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(destination.substring(TOPIC_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void release(Long parentId) {
+        subscriberCounts.computeIfPresent(parentId, (id, count) -> count == 1 ? null : count - 1);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.treeapi.service.snapshot;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Number of folders and sensor memberships below each node of a {@link TreeSnapshot}, indexed by node index.
+ * <p>
+ * A sensor mapped to two nodes of a subtree is counted twice, once per row it would show in the fully expanded tree.
+ * Counts are computed in one bottom-up pass. A change to one node only moves the counts on its ancestor chain,
+ * so {@link TreeSnapshotPatch} patches copied arrays along that chain with {@link #addAlongChain} instead of
+ * recomputing the tree. Instances are immutable.
+ * Nodes on a PARENT_ID cycle are never reached from a leaf and keep the counts of whatever hangs off the cycle.
+ */
+public final class DescendantCounts {
+
+    private final int[] folders;
+    private final int[] sensors;
+
+    private DescendantCounts(int[] folders, int[] sensors) {
+        this.folders = folders;
+        this.sensors = sensors;
+    }
+
+    /**
+     * @param parentIndexes parent node index per node, {@code -1} for tops
+     * @param sensorCounts  number of sensors mapped to each node
+     */
+    static DescendantCounts compute(int[] parentIndexes, int[] sensorCounts) {
+        int nodeCount = parentIndexes.length;
+        int[] folders = new int[nodeCount];
+        int[] sensors = sensorCounts.clone();
+        // Kahn-style: a node is final once all of its child folders have been added to it.
+        int[] pendingChildren = new int[nodeCount];
+        for (int parent : parentIndexes) {
+            if (parent >= 0) {
+                pendingChildren[parent]++;
+            }
+        }
+        int[] ready = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (pendingChildren[node] == 0) {
+                ready[tail++] = node;
+            }
+        }
+        while (head < tail) {
+            int node = ready[head++];
+            int parent = parentIndexes[node];
+            if (parent >= 0) {
+                folders[parent] += folders[node] + 1;
+                sensors[parent] += sensors[node];
+                if (--pendingChildren[parent] == 0) {
+                    ready[tail++] = parent;
+                }
+            }
+        }
+        return new DescendantCounts(folders, sensors);
+    }
+
+    public int folders(int node) {
+        return folders[node];
+    }
+
+    public int sensors(int node) {
+        return sensors[node];
+    }
+
+    /** Copies of the two count arrays, grown to {@code nodeCount}, for patching several changes with one copy. */
+    int[][] copyArrays(int nodeCount) {
+        return new int[][] {Arrays.copyOf(folders, nodeCount), Arrays.copyOf(sensors, nodeCount)};
+    }
+
+    static DescendantCounts of(int[] folders, int[] sensors) {
+        return new DescendantCounts(folders, sensors);
+    }
+
+    /**
+     * Adds {@code folderDelta} and {@code sensorDelta} to {@code node} and every ancestor of it, in place,
+     * e.g. {@code (parent, 0, 1)} after mapping a sensor to {@code parent}, or
+     * {@code (parent, 1 + folders(child), sensors(child))} after attaching {@code child}'s subtree under it.
+     * The walk stops after one step per node, so a PARENT_ID cycle cannot loop forever.
+     *
+     * @param parentOf parent index of a node, {@code -1} for tops
+     * @return false if the walk was cut short by a PARENT_ID cycle, leaving the counts to be recomputed
+     */
+    static boolean addAlongChain(int[] folders, int[] sensors, int node, int folderDelta, int sensorDelta,
+                                 IntUnaryOperator parentOf) {
+        int current = node;
+        for (int steps = 0; current >= 0 && steps < folders.length; current = parentOf.applyAsInt(current), steps++) {
+            folders[current] += folderDelta;
+            sensors[current] += sensorDelta;
+        }
+        return current < 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DescendantCounts other
+                && Arrays.equals(folders, other.folders) && Arrays.equals(sensors, other.sensors);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(folders) + Arrays.hashCode(sensors);
+    }
+}
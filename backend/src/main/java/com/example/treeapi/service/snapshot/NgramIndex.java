@@ -0,0 +1,207 @@
+package com.example.treeapi.service.snapshot;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Trigram index over upper-cased names, for case-insensitive substring search without a full scan.
+ * <p>
+ * A query of three or more characters is answered by intersecting the posting lists of its trigrams and then
+ * verifying each candidate with {@link String#contains}, so results are exactly those of
+ * {@code UPPER(name) LIKE '%' || UPPER(query) || '%'}. Shorter queries fall back to a linear scan.
+ * <p>
+ * {@link #patch} reuses the posting lists for a renamed, added or removed name: postings may then point at names
+ * that no longer match, which verification filters out, and the changed names themselves are kept in a small
+ * sorted side list that every query verifies directly.
+ */
+final class NgramIndex {
+
+    private static final int GRAM = 3;
+    // Beyond this many unindexed names (or 1/16 of all names) a patch rebuilds the index instead
+    private static final int MAX_UNINDEXED = 4096;
+
+    private final String[] upperNames;
+    private final LongIntMap gramSlots;
+    private final int[][] postings;
+    private final int[] unindexed;
+
+    private NgramIndex(String[] upperNames, LongIntMap gramSlots, int[][] postings, int[] unindexed) {
+        this.upperNames = upperNames;
+        this.gramSlots = gramSlots;
+        this.postings = postings;
+        this.unindexed = unindexed;
+    }
+
+    static NgramIndex build(String[] names) {
+        String[] upperNames = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            // toUpperCase returns the same instance when nothing changes, so upper-case data costs no extra memory
+            upperNames[i] = names[i] == null ? null : names[i].toUpperCase(Locale.ROOT);
+        }
+
+        // Pass 1: assign a slot to every distinct trigram and count the names containing it.
+        LongIntMap gramSlots = new LongIntMap(Math.max(16, names.length));
+        int[] counts = new int[1024];
+        int[] lastSeen = new int[1024];
+        int slotCount = 0;
+        for (int i = 0; i < upperNames.length; i++) {
+            String name = upperNames[i];
+            if (name == null) {
+                continue;
+            }
+            for (int at = 0; at + GRAM <= name.length(); at++) {
+                long gram = gram(name, at);
+                int slot = gramSlots.get(gram);
+                if (slot < 0) {
+                    slot = slotCount++;
+                    gramSlots.put(gram, slot);
+                    if (slot == counts.length) {
+                        counts = Arrays.copyOf(counts, slot * 2);
+                        lastSeen = Arrays.copyOf(lastSeen, slot * 2);
+                    }
+                    lastSeen[slot] = -1;
+                }
+                if (lastSeen[slot] != i) {
+                    lastSeen[slot] = i;
+                    counts[slot]++;
+                }
+            }
+        }
+
+        // Pass 2: fill posting lists; names are visited in index order, so every list comes out sorted.
+        int[][] postings = new int[slotCount][];
+        for (int slot = 0; slot < slotCount; slot++) {
+            postings[slot] = new int[counts[slot]];
+        }
+        int[] fill = new int[slotCount];
+        for (int i = 0; i < upperNames.length; i++) {
+            String name = upperNames[i];
+            if (name == null) {
+                continue;
+            }
+            for (int at = 0; at + GRAM <= name.length(); at++) {
+                int slot = gramSlots.get(gram(name, at));
+                int[] list = postings[slot];
+                if (fill[slot] == 0 || list[fill[slot] - 1] != i) {
+                    list[fill[slot]++] = i;
+                }
+            }
+        }
+        return new NgramIndex(upperNames, gramSlots, postings, TreeSnapshot.EMPTY);
+    }
+
+    /**
+     * Index over {@code names}, which equal the indexed names except at the {@code changed} indexes
+     * and possibly new entries at the end (which must be among {@code changed}).
+     */
+    NgramIndex patch(String[] names, int[] changed) {
+        int[] merged = union(unindexed, changed);
+        if (merged.length > Math.max(MAX_UNINDEXED, names.length / 16)) {
+            return build(names);
+        }
+        String[] patchedNames = Arrays.copyOf(upperNames, names.length);
+        for (int index : changed) {
+            patchedNames[index] = names[index] == null ? null : names[index].toUpperCase(Locale.ROOT);
+        }
+        return new NgramIndex(patchedNames, gramSlots, postings, merged);
+    }
+
+    /**
+     * @return indexes of all names containing {@code query} (ignoring case), in ascending order
+     */
+    int[] search(String query) {
+        String needle = query.toUpperCase(Locale.ROOT);
+        if (needle.length() < GRAM) {
+            return verify(null, needle);
+        }
+        return unindexed.length == 0 ? searchPostings(needle)
+                : union(searchPostings(needle), verify(unindexed, needle));
+    }
+
+    private int[] searchPostings(String needle) {
+        int gramCount = needle.length() - GRAM + 1;
+        int[][] lists = new int[gramCount][];
+        for (int at = 0; at < gramCount; at++) {
+            int slot = gramSlots.get(gram(needle, at));
+            if (slot < 0) {
+                return TreeSnapshot.EMPTY;
+            }
+            lists[at] = postings[slot];
+        }
+        // Intersect from the rarest trigram so the candidate set shrinks as fast as possible.
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+        int[] candidates = lists[0];
+        for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+            if (lists[i] != lists[i - 1]) {
+                candidates = intersect(candidates, lists[i]);
+            }
+        }
+        return verify(candidates, needle);
+    }
+
+    private int[] verify(int[] candidates, String needle) {
+        int size = candidates == null ? upperNames.length : candidates.length;
+        int[] matches = new int[Math.min(size, 64)];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int index = candidates == null ? i : candidates[i];
+            String name = upperNames[index];
+            if (name != null && name.contains(needle)) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, Math.min(size, count * 2));
+                }
+                matches[count++] = index;
+            }
+        }
+        return count == 0 ? TreeSnapshot.EMPTY : Arrays.copyOf(matches, count);
+    }
+
+    // Sorted, distinct union of two sorted arrays
+    private static int[] union(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            int[] sorted = b.clone();
+            Arrays.sort(sorted);
+            return Arrays.stream(sorted).distinct().toArray();
+        }
+        int[] sortedB = b.clone();
+        Arrays.sort(sortedB);
+        int[] result = new int[a.length + sortedB.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < sortedB.length) {
+            int next = j == sortedB.length || (i < a.length && a[i] <= sortedB[j]) ? a[i++] : sortedB[j++];
+            if (count == 0 || result[count - 1] != next) {
+                result[count++] = next;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static long gram(String s, int at) {
+        return ((long) s.charAt(at) << 32) | ((long) s.charAt(at + 1) << 16) | s.charAt(at + 2);
+    }
+}
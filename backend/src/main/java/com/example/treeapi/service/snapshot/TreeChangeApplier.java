@@ -0,0 +1,241 @@
+package com.example.treeapi.service.snapshot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the live {@link TreeSnapshot} within a few seconds of the database by polling TREE_CHANGE_LOG, which
+ * row triggers on NODE_INFO, SENSOR_INFO and NODE_SENSOR_MAP fill (see {@code db/oracle/tree-change-log.sql}).
+ * <p>
+ * Each poll reads the log rows after the last applied SEQ, re-reads the current state of only the rows they name,
+ * and patches it into the snapshot through {@link TreeSnapshotHolder#apply}. The log carries ids, not values, so
+ * a row logged twice, or already contained in a full load, is simply applied again with the same result.
+ * Database load follows the change rate, not the tree size.
+ * <p>
+ * SEQ values are handed out at insert time but become visible at commit, so a lower SEQ can appear after a
+ * higher one. Missing SEQs below the highest applied one are re-checked on every poll until they show up or
+ * {@code gap-timeout} passes (a rollback or a discarded sequence cache never fills them).
+ * The first poll after a snapshot is published starts from the position stored with it
+ * ({@link TreeSnapshotHolder#changeLogSeq()}), so a snapshot warm-started from an older file is brought up to date.
+ * Runs on the {@code treeSnapshotScheduler} thread, between full refreshes.
+ */
+@Slf4j
+@Component
+public class TreeChangeApplier {
+
+    // Oracle accepts at most 1000 expressions in an IN list
+    private static final int IN_LIST_LIMIT = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TreeSnapshotHolder holder;
+    private final ScheduledExecutorService scheduler;
+    private final boolean enabled;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final Counter changes;
+    private final Timer patchTimer;
+
+    // Highest SEQ applied, and the missing SEQs below it with the time they were first noticed
+    private long appliedThrough = -1;
+    private final Map<Long, Long> gaps = new TreeMap<>();
+
+    public TreeChangeApplier(JdbcTemplate jdbcTemplate,
+                             TreeSnapshotHolder holder,
+                             @Qualifier("treeSnapshotScheduler") ScheduledExecutorService scheduler,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.tree.snapshot.enabled:false}") boolean snapshotEnabled,
+                             @Value("${app.tree.snapshot.change-log.enabled:false}") boolean enabled,
+                             @Value("${app.tree.snapshot.change-log.poll-interval:2s}") Duration pollInterval,
+                             @Value("${app.tree.snapshot.change-log.batch-size:5000}") int batchSize,
+                             @Value("${app.tree.snapshot.change-log.gap-timeout:30s}") Duration gapTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.holder = holder;
+        this.scheduler = scheduler;
+        this.enabled = snapshotEnabled && enabled;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.changes = Counter.builder("tree.snapshot.changes")
+                .description("TREE_CHANGE_LOG rows applied to the live snapshot")
+                .register(meterRegistry);
+        this.patchTimer = Timer.builder("tree.snapshot.patch")
+                .description("Time to re-read changed rows and patch them into the live snapshot")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        long interval = pollInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts at the position the live snapshot was read at (see {@link TreeSnapshotLoader#changeLogPosition()}),
+     * so changes still settling then are applied once more. Without one, the whole log is replayed.
+     */
+    void init() {
+        appliedThrough = Math.max(holder.changeLogSeq(), 0);
+        gaps.clear();
+        log.info("Applying tree changes after TREE_CHANGE_LOG SEQ {}", appliedThrough);
+    }
+
+    /**
+     * Applies pending log rows, a batch at a time until caught up.
+     *
+     * @return number of log rows applied
+     */
+    int poll() {
+        if (holder.current() == null) {
+            return 0;
+        }
+        if (appliedThrough < 0) {
+            init();
+        }
+        int applied = 0;
+        List<LogRow> batch;
+        do {
+            batch = jdbcTemplate.query("SELECT SEQ, CHANGE_TYPE, NODE_ID, SENSOR_ID FROM TREE_CHANGE_LOG"
+                            + " WHERE SEQ > ? ORDER BY SEQ FETCH FIRST " + batchSize + " ROWS ONLY",
+                    (rs, rowNum) -> LogRow.read(rs), appliedThrough);
+            List<LogRow> rows = new ArrayList<>(gaps.isEmpty() ? List.of() : filledGaps());
+            rows.addAll(batch);
+            if (!rows.isEmpty()) {
+                patchTimer.record(() -> holder.apply(() -> readCurrentRows(rows)));
+                advance(batch, rows);
+                changes.increment(rows.size());
+                applied += rows.size();
+            }
+        } while (batch.size() == batchSize);
+        expireGaps();
+        return applied;
+    }
+
+    private List<LogRow> filledGaps() {
+        List<LogRow> rows = new ArrayList<>();
+        forEachChunk(List.copyOf(gaps.keySet()), IN_LIST_LIMIT, chunk -> rows.addAll(jdbcTemplate.query(
+                "SELECT SEQ, CHANGE_TYPE, NODE_ID, SENSOR_ID FROM TREE_CHANGE_LOG"
+                        + " WHERE SEQ IN (" + placeholders(chunk.size(), "?") + ")",
+                (rs, rowNum) -> LogRow.read(rs), chunk.toArray())));
+        return rows;
+    }
+
+    private void advance(List<LogRow> batch, List<LogRow> rows) {
+        rows.forEach(row -> gaps.remove(row.seq()));
+        long now = System.nanoTime();
+        for (LogRow row : batch) {
+            long missing = row.seq() - appliedThrough - 1;
+            if (missing > 0 && missing <= batchSize) {
+                for (long seq = appliedThrough + 1; seq < row.seq(); seq++) {
+                    gaps.put(seq, now);
+                }
+            } else if (missing > 0) {
+                // A jump this large is a reset or re-created sequence, not transactions still in flight
+                log.info("TREE_CHANGE_LOG SEQ jumped from {} to {}, not waiting for the values between",
+                        appliedThrough, row.seq());
+            }
+            appliedThrough = row.seq();
+        }
+    }
+
+    private void expireGaps() {
+        long expired = System.nanoTime() - gapTimeout.toNanos();
+        gaps.values().removeIf(firstSeen -> firstSeen - expired < 0);
+    }
+
+    // Runs under the holder's lock: re-reads the current state of every row the log names
+    private TreeSnapshotPatch readCurrentRows(List<LogRow> rows) {
+        Set<Long> nodeIds = new LinkedHashSet<>();
+        Set<Long> sensorIds = new LinkedHashSet<>();
+        Set<List<Long>> mappings = new LinkedHashSet<>();
+        for (LogRow row : rows) {
+            switch (row.type()) {
+                case "N" -> nodeIds.add(row.nodeId());
+                case "S" -> sensorIds.add(row.sensorId());
+                case "M" -> mappings.add(List.of(row.nodeId(), row.sensorId()));
+                default -> log.warn("Ignoring TREE_CHANGE_LOG row {} of unknown type {}", row.seq(), row.type());
+            }
+        }
+
+        TreeSnapshotPatch patch = new TreeSnapshotPatch();
+        Set<Long> foundNodes = new HashSet<>();
+        forEachChunk(List.copyOf(nodeIds), IN_LIST_LIMIT, chunk -> jdbcTemplate.query(
+                "SELECT ID, PARENT_ID, NODE_NAME, NODE_PATH FROM NODE_INFO"
+                        + " WHERE ID IN (" + placeholders(chunk.size(), "?") + ")",
+                rs -> {
+                    long parentId = rs.getLong(2);
+                    patch.putNode(rs.getLong(1), rs.wasNull() ? null : parentId, rs.getString(3), rs.getString(4));
+                    foundNodes.add(rs.getLong(1));
+                }, chunk.toArray()));
+        nodeIds.stream().filter(id -> !foundNodes.contains(id)).forEach(patch::removeNode);
+
+        Set<Long> foundSensors = new HashSet<>();
+        forEachChunk(List.copyOf(sensorIds), IN_LIST_LIMIT, chunk -> jdbcTemplate.query(
+                "SELECT ID, SENSOR_NAME FROM SENSOR_INFO WHERE ID IN (" + placeholders(chunk.size(), "?") + ")",
+                rs -> {
+                    patch.putSensor(rs.getLong(1), rs.getString(2));
+                    foundSensors.add(rs.getLong(1));
+                }, chunk.toArray()));
+        sensorIds.stream().filter(id -> !foundSensors.contains(id)).forEach(patch::removeSensor);
+
+        Set<List<Long>> foundMappings = new HashSet<>();
+        forEachChunk(List.copyOf(mappings), IN_LIST_LIMIT / 2, chunk -> jdbcTemplate.query(
+                "SELECT NODE_ID, SENSOR_ID FROM NODE_SENSOR_MAP WHERE (NODE_ID, SENSOR_ID) IN ("
+                        + placeholders(chunk.size(), "(?, ?)") + ")",
+                rs -> {
+                    patch.putMapping(rs.getLong(1), rs.getLong(2));
+                    foundMappings.add(List.of(rs.getLong(1), rs.getLong(2)));
+                }, chunk.stream().flatMap(List::stream).toArray()));
+        mappings.stream().filter(mapping -> !foundMappings.contains(mapping))
+                .forEach(mapping -> patch.removeMapping(mapping.get(0), mapping.get(1)));
+        return patch;
+    }
+
+    private static <T> void forEachChunk(List<T> values, int size, Consumer<List<T>> action) {
+        for (int from = 0; from < values.size(); from += size) {
+            action.accept(values.subList(from, Math.min(values.size(), from + size)));
+        }
+    }
+
+    private static String placeholders(int count, String placeholder) {
+        return String.join(", ", Collections.nCopies(count, placeholder));
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            // The position only moves after a batch is applied, so the next tick retries it
+            log.error("Failed to apply tree changes", e);
+        }
+    }
+
+    private record LogRow(long seq, String type, Long nodeId, Long sensorId) {
+
+        static LogRow read(ResultSet rs) throws SQLException {
+            long nodeId = rs.getLong(3);
+            Long node = rs.wasNull() ? null : nodeId;
+            long sensorId = rs.getLong(4);
+            return new LogRow(rs.getLong(1), rs.getString(2), node, rs.wasNull() ? null : sensorId);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.treeapi.service.snapshot;
+
+import java.time.Instant;
+import java.util.BitSet;
+
+/**
+ * Immutable in-memory index of NODE_INFO, SENSOR_INFO and NODE_SENSOR_MAP.
+ * <p>
+ * Nodes and sensors are addressed by dense {@code int} indexes; database ids are resolved through
+ * {@link #indexOfNode(long)} / {@link #indexOfSensor(long)}. Child folder lists are keyed by the parent id
+ * (not the parent index) because the virtual root (ID=1) does not have to exist as a row.
+ * Every {@code int[]} returned by this class is shared and must not be modified by callers.
+ * Child folders and node sensors are pre-sorted by name, then id.
+ * <p>
+ * A {@link TreeSnapshotPatch} keeps the slots of removed nodes and sensors until the next full load;
+ * they are no longer reachable by id, and {@link #isLiveNode(int)} / {@link #isLiveSensor(int)} tell them apart.
+ */
+public final class TreeSnapshot {
+
+    /** Root nodes are children of this virtual node. */
+    public static final long VIRTUAL_ROOT_ID = 1L;
+
+    /** Marker stored in {@link #parentId(int)} for nodes whose PARENT_ID is null. */
+    public static final long NO_PARENT = Long.MIN_VALUE;
+
+    static final int[] EMPTY = new int[0];
+
+    // Package-private so TreeSnapshotPatch can share every structure a change does not touch
+    final long version;
+    final Instant createdAt;
+
+    final LongIntMap nodeIndex;
+    final long[] nodeIds;
+    final long[] parentIds;
+    final int[] parentIndexes;
+    final String[] nodeNames;
+    final String[] nodePaths;
+    final LongIntMap childListIndex;
+    final int[][] childLists;
+    final int[][] nodeSensors;
+    final BitSet hasChildren;
+    final DescendantCounts descendantCounts;
+    final NgramIndex nodeNameIndex;
+
+    final LongIntMap sensorIndex;
+    final long[] sensorIds;
+    final String[] sensorNames;
+    final int[][] sensorNodes;
+    final NgramIndex sensorNameIndex;
+
+    TreeSnapshot(long version, Instant createdAt,
+                 LongIntMap nodeIndex, long[] nodeIds, long[] parentIds, int[] parentIndexes,
+                 String[] nodeNames, String[] nodePaths,
+                 LongIntMap childListIndex, int[][] childLists, int[][] nodeSensors, BitSet hasChildren,
+                 DescendantCounts descendantCounts, NgramIndex nodeNameIndex,
+                 LongIntMap sensorIndex, long[] sensorIds, String[] sensorNames, int[][] sensorNodes,
+                 NgramIndex sensorNameIndex) {
+        this.version = version;
+        this.createdAt = createdAt;
+        this.nodeIndex = nodeIndex;
+        this.nodeIds = nodeIds;
+        this.parentIds = parentIds;
+        this.parentIndexes = parentIndexes;
+        this.nodeNames = nodeNames;
+        this.nodePaths = nodePaths;
+        this.childListIndex = childListIndex;
+        this.childLists = childLists;
+        this.nodeSensors = nodeSensors;
+        this.hasChildren = hasChildren;
+        this.descendantCounts = descendantCounts;
+        this.nodeNameIndex = nodeNameIndex;
+        this.sensorIndex = sensorIndex;
+        this.sensorIds = sensorIds;
+        this.sensorNames = sensorNames;
+        this.sensorNodes = sensorNodes;
+        this.sensorNameIndex = sensorNameIndex;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    // --- Nodes ---
+
+    public int nodeCount() {
+        return nodeIds.length;
+    }
+
+    /** @return false for the slot of a node removed by a patch */
+    public boolean isLiveNode(int node) {
+        return nodeIndex.get(nodeIds[node]) == node;
+    }
+
+    /** @return the node index, or {@code -1} if no node has this id */
+    public int indexOfNode(long nodeId) {
+        return nodeIndex.get(nodeId);
+    }
+
+    public long nodeId(int node) {
+        return nodeIds[node];
+    }
+
+    public String nodeName(int node) {
+        return nodeNames[node];
+    }
+
+    public String nodePath(int node) {
+        return nodePaths[node];
+    }
+
+    /** @return the raw PARENT_ID, or {@link #NO_PARENT} */
+    public long parentId(int node) {
+        return parentIds[node];
+    }
+
+    /** @return the index of the parent node, or {@code -1} if the node has no parent or the parent row is missing */
+    public int parentIndex(int node) {
+        return parentIndexes[node];
+    }
+
+    /** Child folders of the given parent id, sorted by name. */
+    public int[] childFoldersOf(long parentId) {
+        int slot = childListIndex.get(parentId);
+        return slot < 0 ? EMPTY : childLists[slot];
+    }
+
+    /** Sensors mapped to the node, sorted by name. */
+    public int[] sensorsOf(int node) {
+        return nodeSensors[node];
+    }
+
+    public boolean hasChildren(int node) {
+        return hasChildren.get(node);
+    }
+
+    /** Folders and sensor memberships below each node, precomputed so rows can show them without a subtree walk. */
+    public DescendantCounts descendantCounts() {
+        return descendantCounts;
+    }
+
+    /** Nodes whose name contains {@code query}, ignoring case, in index order. */
+    public int[] findNodesByName(String query) {
+        return nodeNameIndex.search(query);
+    }
+
+    // --- Sensors ---
+
+    public int sensorCount() {
+        return sensorIds.length;
+    }
+
+    /** @return false for the slot of a sensor removed by a patch */
+    public boolean isLiveSensor(int sensor) {
+        return sensorIndex.get(sensorIds[sensor]) == sensor;
+    }
+
+    /** @return the sensor index, or {@code -1} if no sensor has this id */
+    public int indexOfSensor(long sensorId) {
+        return sensorIndex.get(sensorId);
+    }
+
+    public long sensorId(int sensor) {
+        return sensorIds[sensor];
+    }
+
+    public String sensorName(int sensor) {
+        return sensorNames[sensor];
+    }
+
+    /** Nodes the sensor is mapped to, in node index order. */
+    public int[] nodesOf(int sensor) {
+        return sensorNodes[sensor];
+    }
+
+    /** Sensors whose name contains {@code query}, ignoring case, in index order. */
+    public int[] findSensorsByName(String query) {
+        return sensorNameIndex.search(query);
+    }
+}
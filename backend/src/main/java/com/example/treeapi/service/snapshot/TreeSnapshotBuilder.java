@@ -0,0 +1,237 @@
+package com.example.treeapi.service.snapshot;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Collects raw rows and turns them into a {@link TreeSnapshot}.
+ * Rows may be added in any order; mappings that reference unknown nodes or sensors are ignored.
+ */
+public final class TreeSnapshotBuilder {
+
+    private static final Comparator<String> NAME_ORDER = Comparator.nullsLast(Comparator.naturalOrder());
+
+    private long[] nodeIds = new long[1024];
+    private long[] parentIds = new long[1024];
+    private String[] nodeNames = new String[1024];
+    private String[] nodePaths = new String[1024];
+    private int nodeCount;
+
+    private long[] sensorIds = new long[1024];
+    private String[] sensorNames = new String[1024];
+    private int sensorCount;
+
+    private long[] mappingNodeIds = new long[1024];
+    private long[] mappingSensorIds = new long[1024];
+    private int mappingCount;
+
+    /**
+     * Builder that takes over already collected columns, as read from a {@link TreeSnapshotFile}.
+     * The arrays are owned by the builder afterwards.
+     */
+    static TreeSnapshotBuilder fromColumns(long[] nodeIds, long[] parentIds, String[] nodeNames, String[] nodePaths,
+                                           long[] sensorIds, String[] sensorNames,
+                                           long[] mappingNodeIds, long[] mappingSensorIds) {
+        TreeSnapshotBuilder builder = new TreeSnapshotBuilder();
+        builder.nodeIds = nodeIds;
+        builder.parentIds = parentIds;
+        builder.nodeNames = nodeNames;
+        builder.nodePaths = nodePaths;
+        builder.nodeCount = nodeIds.length;
+        builder.sensorIds = sensorIds;
+        builder.sensorNames = sensorNames;
+        builder.sensorCount = sensorIds.length;
+        builder.mappingNodeIds = mappingNodeIds;
+        builder.mappingSensorIds = mappingSensorIds;
+        builder.mappingCount = mappingNodeIds.length;
+        return builder;
+    }
+
+    public TreeSnapshotBuilder addNode(long id, Long parentId, String name, String path) {
+        if (nodeCount == nodeIds.length) {
+            int capacity = nodeCount * 2;
+            nodeIds = Arrays.copyOf(nodeIds, capacity);
+            parentIds = Arrays.copyOf(parentIds, capacity);
+            nodeNames = Arrays.copyOf(nodeNames, capacity);
+            nodePaths = Arrays.copyOf(nodePaths, capacity);
+        }
+        nodeIds[nodeCount] = id;
+        parentIds[nodeCount] = parentId == null ? TreeSnapshot.NO_PARENT : parentId;
+        nodeNames[nodeCount] = name;
+        nodePaths[nodeCount] = path;
+        nodeCount++;
+        return this;
+    }
+
+    public TreeSnapshotBuilder addSensor(long id, String name) {
+        if (sensorCount == sensorIds.length) {
+            int capacity = sensorCount * 2;
+            sensorIds = Arrays.copyOf(sensorIds, capacity);
+            sensorNames = Arrays.copyOf(sensorNames, capacity);
+        }
+        sensorIds[sensorCount] = id;
+        sensorNames[sensorCount] = name;
+        sensorCount++;
+        return this;
+    }
+
+    public TreeSnapshotBuilder addMapping(long nodeId, long sensorId) {
+        if (mappingCount == mappingNodeIds.length) {
+            int capacity = mappingCount * 2;
+            mappingNodeIds = Arrays.copyOf(mappingNodeIds, capacity);
+            mappingSensorIds = Arrays.copyOf(mappingSensorIds, capacity);
+        }
+        mappingNodeIds[mappingCount] = nodeId;
+        mappingSensorIds[mappingCount] = sensorId;
+        mappingCount++;
+        return this;
+    }
+
+    public TreeSnapshot build(long version) {
+        long[] ids = Arrays.copyOf(nodeIds, nodeCount);
+        long[] parents = Arrays.copyOf(parentIds, nodeCount);
+        String[] names = Arrays.copyOf(nodeNames, nodeCount);
+        String[] paths = Arrays.copyOf(nodePaths, nodeCount);
+
+        LongIntMap nodeIndex = new LongIntMap(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            nodeIndex.put(ids[i], i);
+        }
+        int[] parentIndexes = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            parentIndexes[i] = parents[i] == TreeSnapshot.NO_PARENT ? -1 : nodeIndex.get(parents[i]);
+        }
+
+        // Child lists: walking nodes in (name, id) order fills every list already sorted.
+        LongIntMap childListIndex = new LongIntMap(Math.max(16, nodeCount / 4));
+        int[] childCounts = new int[nodeCount];
+        int slotCount = 0;
+        int[] slotOfNode = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            if (parents[i] == TreeSnapshot.NO_PARENT) {
+                slotOfNode[i] = -1;
+                continue;
+            }
+            int slot = childListIndex.get(parents[i]);
+            if (slot < 0) {
+                slot = slotCount++;
+                childListIndex.put(parents[i], slot);
+            }
+            slotOfNode[i] = slot;
+            childCounts[slot]++;
+        }
+        int[][] childLists = new int[slotCount][];
+        for (int slot = 0; slot < slotCount; slot++) {
+            childLists[slot] = new int[childCounts[slot]];
+        }
+        int[] fill = new int[slotCount];
+        for (int node : sortedOrder(ids, names, nodeCount)) {
+            int slot = slotOfNode[node];
+            if (slot >= 0) {
+                childLists[slot][fill[slot]++] = node;
+            }
+        }
+
+        long[] sIds = Arrays.copyOf(sensorIds, sensorCount);
+        String[] sNames = Arrays.copyOf(sensorNames, sensorCount);
+        LongIntMap sensorIndex = new LongIntMap(sensorCount);
+        for (int i = 0; i < sensorCount; i++) {
+            sensorIndex.put(sIds[i], i);
+        }
+        int[] sensorOrder = sortedOrder(sIds, sNames, sensorCount);
+        int[] sensorRank = new int[sensorCount];
+        for (int rank = 0; rank < sensorCount; rank++) {
+            sensorRank[sensorOrder[rank]] = rank;
+        }
+
+        // Resolve mappings once; node lists hold sensor ranks until they are sorted.
+        int[] mappedNodes = new int[mappingCount];
+        int[] mappedSensors = new int[mappingCount];
+        int[] sensorsPerNode = new int[nodeCount];
+        int[] nodesPerSensor = new int[sensorCount];
+        for (int i = 0; i < mappingCount; i++) {
+            int node = nodeIndex.get(mappingNodeIds[i]);
+            int sensor = sensorIndex.get(mappingSensorIds[i]);
+            mappedNodes[i] = node;
+            mappedSensors[i] = sensor;
+            if (node >= 0 && sensor >= 0) {
+                sensorsPerNode[node]++;
+                nodesPerSensor[sensor]++;
+            }
+        }
+        int[][] nodeSensors = new int[nodeCount][];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeSensors[i] = sensorsPerNode[i] == 0 ? TreeSnapshot.EMPTY : new int[sensorsPerNode[i]];
+        }
+        int[][] sensorNodes = new int[sensorCount][];
+        for (int i = 0; i < sensorCount; i++) {
+            sensorNodes[i] = nodesPerSensor[i] == 0 ? TreeSnapshot.EMPTY : new int[nodesPerSensor[i]];
+        }
+        Arrays.fill(sensorsPerNode, 0);
+        Arrays.fill(nodesPerSensor, 0);
+        for (int i = 0; i < mappingCount; i++) {
+            int node = mappedNodes[i];
+            int sensor = mappedSensors[i];
+            if (node >= 0 && sensor >= 0) {
+                nodeSensors[node][sensorsPerNode[node]++] = sensorRank[sensor];
+                sensorNodes[sensor][nodesPerSensor[sensor]++] = node;
+            }
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            int[] ranks = sortedDistinct(nodeSensors[i]);
+            for (int j = 0; j < ranks.length; j++) {
+                ranks[j] = sensorOrder[ranks[j]];
+            }
+            nodeSensors[i] = ranks;
+        }
+        for (int i = 0; i < sensorCount; i++) {
+            sensorNodes[i] = sortedDistinct(sensorNodes[i]);
+        }
+
+        BitSet hasChildren = new BitSet(nodeCount);
+        int[] sensorCounts = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            int slot = childListIndex.get(ids[i]);
+            if (slot >= 0 || nodeSensors[i].length > 0) {
+                hasChildren.set(i);
+            }
+            sensorCounts[i] = nodeSensors[i].length;
+        }
+
+        return new TreeSnapshot(version, Instant.now(),
+                nodeIndex, ids, parents, parentIndexes, names, paths,
+                childListIndex, childLists, nodeSensors, hasChildren,
+                DescendantCounts.compute(parentIndexes, sensorCounts), NgramIndex.build(names),
+                sensorIndex, sIds, sNames, sensorNodes, NgramIndex.build(sNames));
+    }
+
+    private static int[] sortedOrder(long[] ids, String[] names, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer, String>comparing(i -> names[i], NAME_ORDER)
+                .thenComparingLong(i -> ids[i]));
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    private static int[] sortedDistinct(int[] values) {
+        if (values.length < 2) {
+            return values;
+        }
+        Arrays.sort(values);
+        int distinct = 1;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] != values[distinct - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return distinct == values.length ? values : Arrays.copyOf(values, distinct);
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.treeapi.service.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk form of a {@link TreeSnapshot}: the raw NODE_INFO, SENSOR_INFO and NODE_SENSOR_MAP columns as
+ * little-endian primitive arrays, with every name and path stored once in a UTF-8 string pool.
+ * <p>
+ * Layout: a fixed header (magic, format version, counts, CRC32C of everything after the header, the TREE_CHANGE_LOG
+ * SEQ the data includes or {@code -1}), the database version marker the data was read under, then 8-byte aligned sections: node ids, parent ids, node name refs,
+ * node path refs, sensor ids, sensor name refs, mapping node ids, mapping sensor ids, string offsets, string bytes.
+ * A ref of {@code -1} is a null string.
+ * <p>
+ * {@link #read} maps the file and bulk-copies each section into the arrays {@link TreeSnapshotBuilder} consumes;
+ * only the derived indexes are rebuilt. Files are written to a temporary sibling and moved into place, so a
+ * reader never sees a partial file. A file with another format version, a bad checksum or a wrong length is
+ * rejected with an {@link IOException}, and the caller falls back to the database.
+ */
+public final class TreeSnapshotFile {
+
+    /** "TREESNAP" read as a little-endian long. */
+    private static final long MAGIC = 0x50414E5345455254L;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 56;
+
+    private TreeSnapshotFile() {
+    }
+
+    /**
+     * A snapshot read from disk, the database version marker it was written with, and the TREE_CHANGE_LOG SEQ it
+     * includes ({@code -1} if the change log was not in use).
+     */
+    public record Contents(TreeSnapshot snapshot, String versionMarker, long changeLogSeq) {
+    }
+
+    public static void write(TreeSnapshot snapshot, String versionMarker, long changeLogSeq, Path path)
+            throws IOException {
+        // Slots of rows removed by a patch are left out, so the file always holds a compact snapshot
+        int[] nodes = IntStream.range(0, snapshot.nodeCount()).filter(snapshot::isLiveNode).toArray();
+        int[] sensors = IntStream.range(0, snapshot.sensorCount()).filter(snapshot::isLiveSensor).toArray();
+        int nodeCount = nodes.length;
+        int sensorCount = sensors.length;
+        int mappingCount = 0;
+        for (int node : nodes) {
+            mappingCount += snapshot.sensorsOf(node).length;
+        }
+
+        StringPool pool = new StringPool();
+        int[] nodeNameRefs = new int[nodeCount];
+        int[] nodePathRefs = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeNameRefs[i] = pool.add(snapshot.nodeName(nodes[i]));
+            nodePathRefs[i] = pool.add(snapshot.nodePath(nodes[i]));
+        }
+        int[] sensorNameRefs = new int[sensorCount];
+        for (int i = 0; i < sensorCount; i++) {
+            sensorNameRefs[i] = pool.add(snapshot.sensorName(sensors[i]));
+        }
+        byte[] marker = versionMarker.getBytes(StandardCharsets.UTF_8);
+
+        long size = align(HEADER_SIZE + marker.length)
+                + 8L * nodeCount * 2 + align(4L * nodeCount) * 2
+                + 8L * sensorCount + align(4L * sensorCount)
+                + 8L * mappingCount * 2
+                + align(4L * (pool.size() + 1)) + align(pool.byteCount());
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Tree snapshot of " + size + " bytes exceeds the 2 GB file limit");
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position(HEADER_SIZE);
+            buffer.put(marker);
+            pad(buffer);
+            for (int node : nodes) {
+                buffer.putLong(snapshot.nodeId(node));
+            }
+            for (int node : nodes) {
+                buffer.putLong(snapshot.parentId(node));
+            }
+            putInts(buffer, nodeNameRefs);
+            putInts(buffer, nodePathRefs);
+            for (int sensor : sensors) {
+                buffer.putLong(snapshot.sensorId(sensor));
+            }
+            putInts(buffer, sensorNameRefs);
+            for (int node : nodes) {
+                for (int i = snapshot.sensorsOf(node).length; i > 0; i--) {
+                    buffer.putLong(snapshot.nodeId(node));
+                }
+            }
+            for (int node : nodes) {
+                for (int sensor : snapshot.sensorsOf(node)) {
+                    buffer.putLong(snapshot.sensorId(sensor));
+                }
+            }
+            putInts(buffer, pool.offsets());
+            buffer.put(pool.bytes(), 0, pool.byteCount());
+            pad(buffer);
+
+            buffer.putLong(0, MAGIC)
+                  .putInt(8, FORMAT_VERSION)
+                  .putInt(12, nodeCount)
+                  .putInt(16, sensorCount)
+                  .putInt(20, mappingCount)
+                  .putInt(24, pool.size())
+                  .putInt(28, pool.byteCount())
+                  .putInt(32, marker.length)
+                  .putInt(36, checksum(buffer, (int) size))
+                  .putLong(40, snapshot.getCreatedAt().toEpochMilli())
+                  .putLong(48, changeLogSeq);
+            buffer.force();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Contents read(Path path, long version) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a tree snapshot file: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getLong(0) != MAGIC) {
+            throw new IOException("Not a tree snapshot file: " + path);
+        }
+        if (buffer.getInt(8) != FORMAT_VERSION) {
+            throw new IOException("Unsupported tree snapshot format " + buffer.getInt(8) + ": " + path);
+        }
+        int nodeCount = buffer.getInt(12);
+        int sensorCount = buffer.getInt(16);
+        int mappingCount = buffer.getInt(20);
+        int stringCount = buffer.getInt(24);
+        int byteCount = buffer.getInt(28);
+        int markerLength = buffer.getInt(32);
+        if (nodeCount < 0 || sensorCount < 0 || mappingCount < 0 || stringCount < 0 || byteCount < 0 || markerLength < 0
+                || checksum(buffer, buffer.capacity()) != buffer.getInt(36)) {
+            throw new IOException("Corrupt tree snapshot file: " + path);
+        }
+
+        try {
+            buffer.position(HEADER_SIZE);
+            byte[] marker = new byte[markerLength];
+            buffer.get(marker);
+            skipPadding(buffer);
+            long[] nodeIds = getLongs(buffer, nodeCount);
+            long[] parentIds = getLongs(buffer, nodeCount);
+            int[] nodeNameRefs = getInts(buffer, nodeCount);
+            int[] nodePathRefs = getInts(buffer, nodeCount);
+            long[] sensorIds = getLongs(buffer, sensorCount);
+            int[] sensorNameRefs = getInts(buffer, sensorCount);
+            long[] mappingNodeIds = getLongs(buffer, mappingCount);
+            long[] mappingSensorIds = getLongs(buffer, mappingCount);
+            int[] offsets = getInts(buffer, stringCount + 1);
+            byte[] bytes = new byte[byteCount];
+            buffer.get(bytes);
+
+            // Decoded once per distinct string; every ref to it shares the instance
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                strings[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+            }
+            TreeSnapshot snapshot = TreeSnapshotBuilder.fromColumns(
+                    nodeIds, parentIds, resolve(strings, nodeNameRefs), resolve(strings, nodePathRefs),
+                    sensorIds, resolve(strings, sensorNameRefs),
+                    mappingNodeIds, mappingSensorIds).build(version);
+            return new Contents(snapshot, new String(marker, StandardCharsets.UTF_8), buffer.getLong(48));
+        } catch (RuntimeException e) {
+            // Counts that do not match the sections: a checksum collision or a writer bug
+            throw new IOException("Corrupt tree snapshot file: " + path, e);
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int size) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(HEADER_SIZE).limit(size));
+        return (int) crc.getValue();
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static void pad(ByteBuffer buffer) {
+        while ((buffer.position() & 7) != 0) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static void skipPadding(ByteBuffer buffer) {
+        buffer.position((int) align(buffer.position()));
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + 4 * values.length);
+        pad(buffer);
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        skipPadding(buffer);
+        return values;
+    }
+
+    private static long[] getLongs(ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + 8 * count);
+        return values;
+    }
+
+    private static String[] resolve(String[] strings, int[] refs) {
+        String[] resolved = new String[refs.length];
+        for (int i = 0; i < refs.length; i++) {
+            resolved[i] = refs[i] < 0 ? null : strings[refs[i]];
+        }
+        return resolved;
+    }
+
+    /** Distinct strings in first-seen order, concatenated as UTF-8. */
+    private static final class StringPool {
+
+        private final Map<String, Integer> refs = new HashMap<>();
+        private int[] offsets = new int[1024];
+        private byte[] bytes = new byte[1 << 16];
+        private int byteCount;
+
+        int add(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer ref = refs.get(value);
+            if (ref != null) {
+                return ref;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            int end = Math.addExact(byteCount, encoded.length);
+            if (end > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, end));
+            }
+            System.arraycopy(encoded, 0, bytes, byteCount, encoded.length);
+            byteCount += encoded.length;
+            int next = refs.size();
+            if (next + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[next + 1] = byteCount;
+            refs.put(value, next);
+            return next;
+        }
+
+        int size() {
+            return refs.size();
+        }
+
+        int byteCount() {
+            return byteCount;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int[] offsets() {
+            return Arrays.copyOf(offsets, refs.size() + 1);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.treeapi.service.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Owns the current {@link TreeSnapshot} and swaps in rebuilt snapshots atomically.
+ * <p>
+ * When {@code app.tree.snapshot.enabled} is false, or before the first load completes,
+ * {@link #current()} returns {@code null} and callers fall back to the database.
+ * <p>
+ * With {@code app.tree.snapshot.file.path} set, every refresh also writes the snapshot to that file, and startup
+ * serves from the file first. The database is then only read again if its version marker differs from the
+ * one stored in the file.
+ * <p>
+ * Between full refreshes, {@link TreeChangeApplier} patches row changes into the live snapshot through
+ * {@link #apply}; the file is only rewritten by full refreshes. Each full snapshot carries the TREE_CHANGE_LOG
+ * position it was read at ({@link #changeLogSeq()}), in the file too, and the applier replays the log from there.
+ * A file whose marker is stale is then still used as long as the log reaches back to its position.
+ */
+@Slf4j
+@Component
+public class TreeSnapshotHolder {
+
+    private final AtomicReference<TreeSnapshot> current = new AtomicReference<>();
+    private final TreeSnapshotLoader loader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScheduledExecutorService scheduler;
+    private final boolean enabled;
+    private final Duration refreshInterval;
+    private final Path file;
+    private long changeLogSeq = -1;
+
+    public TreeSnapshotHolder(TreeSnapshotLoader loader,
+                              ApplicationEventPublisher eventPublisher,
+                              @Qualifier("treeSnapshotScheduler") ScheduledExecutorService scheduler,
+                              @Value("${app.tree.snapshot.enabled:false}") boolean enabled,
+                              @Value("${app.tree.snapshot.refresh-interval:0s}") Duration refreshInterval,
+                              @Value("${app.tree.snapshot.file.path:}") String file) {
+        this.loader = loader;
+        this.eventPublisher = eventPublisher;
+        this.scheduler = scheduler;
+        this.enabled = enabled;
+        this.refreshInterval = refreshInterval;
+        this.file = file.isBlank() ? null : Path.of(file);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        scheduler.execute(() -> {
+            if (!warmStartQuietly()) {
+                refreshQuietly();
+            }
+        });
+        if (!refreshInterval.isZero() && !refreshInterval.isNegative()) {
+            long interval = refreshInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::refreshQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** @return the live snapshot, or {@code null} if none is loaded */
+    public TreeSnapshot current() {
+        return current.get();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Rebuilds the snapshot from the database and publishes it. Readers holding the previous
+     * snapshot finish their request against it; new requests see the new one.
+     * A {@link TreeSnapshotRefreshedEvent} is published after the swap, and the snapshot file, if configured,
+     * is rewritten with the version marker and change-log position read before the load.
+     */
+    public synchronized TreeSnapshot refresh() {
+        String versionMarker = file == null ? null : loader.versionMarker();
+        long position = loader.changeLogPosition();
+        TreeSnapshot snapshot = loader.load();
+        publish(snapshot);
+        changeLogSeq = position;
+        if (file != null) {
+            try {
+                TreeSnapshotFile.write(snapshot, versionMarker, position, file);
+            } catch (IOException | RuntimeException e) {
+                // The next start just reads the database again
+                log.warn("Failed to write tree snapshot file {}", file, e);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Patches row changes into the live snapshot and publishes the result if anything differed.
+     * {@code changes} runs under the same lock as {@link #refresh()}, so rows it reads from the database are
+     * never older than the snapshot they are applied to.
+     *
+     * @return the live snapshot afterwards, or {@code null} if none is loaded yet ({@code changes} is not called)
+     */
+    public synchronized TreeSnapshot apply(Supplier<TreeSnapshotPatch> changes) {
+        TreeSnapshot base = current.get();
+        if (base == null) {
+            return null;
+        }
+        TreeSnapshotPatch.Result result = changes.get().apply(base, loader.nextVersion());
+        if (result.snapshot() != base) {
+            current.set(result.snapshot());
+            eventPublisher.publishEvent(
+                    new TreeSnapshotRefreshedEvent(base, result.snapshot(), result.changedParentIds()));
+        }
+        return result.snapshot();
+    }
+
+    /**
+     * TREE_CHANGE_LOG SEQ the last full snapshot, loaded or read from the file, is known to include; patches
+     * applied since do not move it.
+     *
+     * @return the SEQ, or {@code -1} if the change log is off or nothing is loaded
+     */
+    public synchronized long changeLogSeq() {
+        return changeLogSeq;
+    }
+
+    /**
+     * Publishes the snapshot stored in the file, then compares its version marker with the database.
+     *
+     * @return true if the file was loaded and is still current, or the change log still holds every change since
+     * it was written; false if a database refresh is needed
+     */
+    synchronized boolean warmStart() throws IOException {
+        if (file == null || !Files.exists(file)) {
+            return false;
+        }
+        TreeSnapshotFile.Contents contents = loader.loadFile(file);
+        publish(contents.snapshot());
+        changeLogSeq = contents.changeLogSeq();
+        String versionMarker = loader.versionMarker();
+        if (versionMarker.equals(contents.versionMarker())) {
+            return true;
+        }
+        if (loader.changeLogCovers(contents.changeLogSeq())) {
+            log.info("Tree snapshot file {} is behind (marker {} in file, {} in database), "
+                    + "catching up from TREE_CHANGE_LOG SEQ {}", file, contents.versionMarker(), versionMarker,
+                    contents.changeLogSeq());
+            return true;
+        }
+        log.info("Tree snapshot file {} is stale (marker {} in file, {} in database), reloading",
+                file, contents.versionMarker(), versionMarker);
+        return false;
+    }
+
+    private void publish(TreeSnapshot snapshot) {
+        TreeSnapshot previous = current.getAndSet(snapshot);
+        eventPublisher.publishEvent(new TreeSnapshotRefreshedEvent(previous, snapshot));
+    }
+
+    private boolean warmStartQuietly() {
+        try {
+            return warmStart();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not start from tree snapshot file {}, loading from the database", file, e);
+            return false;
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // Keep serving the previous snapshot (or the database) and retry on the next tick.
+            log.error("Failed to refresh tree snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.treeapi.service.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the three hierarchy tables with plain JDBC and builds a {@link TreeSnapshot}.
+ * Entities are not hydrated: each table is scanned once with a large fetch size.
+ */
+@Slf4j
+@Component
+public class TreeSnapshotLoader {
+
+    private static final int FETCH_SIZE = 5000;
+
+    /**
+     * Row counts and highest ids of the three tables: index-only scans that change with every insert or delete.
+     * Renames and re-parenting do not change it, so deployments that edit rows in place should configure a
+     * marker that does (e.g. {@code MAX(ORA_ROWSCN)}), or enable the change log.
+     */
+    static final String DEFAULT_VERSION_QUERY = "SELECT " +
+            "(SELECT COUNT(*) FROM NODE_INFO), (SELECT MAX(ID) FROM NODE_INFO), " +
+            "(SELECT COUNT(*) FROM SENSOR_INFO), (SELECT MAX(ID) FROM SENSOR_INFO), " +
+            "(SELECT COUNT(*) FROM NODE_SENSOR_MAP), (SELECT MAX(NODE_ID) FROM NODE_SENSOR_MAP) FROM DUAL";
+
+    /** With the change log on, every insert, update and delete moves its highest SEQ. */
+    static final String CHANGE_LOG_VERSION_QUERY = "SELECT MAX(SEQ) FROM TREE_CHANGE_LOG";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String versionQuery;
+    private final boolean changeLogEnabled;
+    private final Duration gapTimeout;
+    private final AtomicLong versions = new AtomicLong();
+
+    public TreeSnapshotLoader(JdbcTemplate jdbcTemplate,
+                              @Value("${app.tree.snapshot.file.version-query:}") String versionQuery,
+                              @Value("${app.tree.snapshot.change-log.enabled:false}") boolean changeLogEnabled,
+                              @Value("${app.tree.snapshot.change-log.gap-timeout:30s}") Duration gapTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeLogEnabled = changeLogEnabled;
+        this.gapTimeout = gapTimeout;
+        if (!versionQuery.isBlank()) {
+            this.versionQuery = versionQuery;
+        } else {
+            this.versionQuery = changeLogEnabled ? CHANGE_LOG_VERSION_QUERY : DEFAULT_VERSION_QUERY;
+        }
+    }
+
+    /**
+     * Cheap fingerprint of the hierarchy tables: the columns of the first row of the version query, joined by ':'.
+     * Read it before {@link #load()} so that a change made during the load shows up as a different marker.
+     */
+    public String versionMarker() {
+        return jdbcTemplate.query(versionQuery, rs -> {
+            StringJoiner marker = new StringJoiner(":");
+            if (rs.next()) {
+                for (int column = 1; column <= rs.getMetaData().getColumnCount(); column++) {
+                    marker.add(String.valueOf(rs.getObject(column)));
+                }
+            }
+            return marker.toString();
+        });
+    }
+
+    /**
+     * TREE_CHANGE_LOG position a load started now is sure to include: the last SEQ older than {@code gap-timeout},
+     * since newer ones may still be committing out of order, or just before the first SEQ if every row is newer.
+     * Read it before {@link #load()}; {@link TreeChangeApplier} replays the log from there.
+     *
+     * @return the SEQ, or {@code -1} if the change log is off
+     */
+    public long changeLogPosition() {
+        if (!changeLogEnabled) {
+            return -1;
+        }
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(CASE WHEN CHANGED_AT < ? THEN SEQ END), "
+                        + "MIN(SEQ) - 1, 0) FROM TREE_CHANGE_LOG",
+                Long.class, Timestamp.from(Instant.now().minus(gapTimeout)));
+    }
+
+    /**
+     * Whether every log row after {@code seq} is still in TREE_CHANGE_LOG, i.e. retention has not deleted past it.
+     * A rolled-back SEQ right after it reads as deleted, which only costs a full load.
+     */
+    public boolean changeLogCovers(long seq) {
+        if (!changeLogEnabled || seq < 0) {
+            return false;
+        }
+        Long first = jdbcTemplate.queryForObject("SELECT MIN(SEQ) FROM TREE_CHANGE_LOG", Long.class);
+        return first != null && first <= seq + 1;
+    }
+
+    /** Version for a snapshot derived from the live one, e.g. by a {@link TreeSnapshotPatch}. */
+    public long nextVersion() {
+        return versions.incrementAndGet();
+    }
+
+    /** Reads a snapshot written by {@link TreeSnapshotFile#write}, without touching the database. */
+    public TreeSnapshotFile.Contents loadFile(Path path) throws IOException {
+        long started = System.nanoTime();
+        TreeSnapshotFile.Contents contents = TreeSnapshotFile.read(path, versions.incrementAndGet());
+        TreeSnapshot snapshot = contents.snapshot();
+        log.info("Loaded tree snapshot v{} from {}: {} nodes, {} sensors in {} ms", snapshot.getVersion(), path,
+                snapshot.nodeCount(), snapshot.sensorCount(), (System.nanoTime() - started) / 1_000_000);
+        return contents;
+    }
+
+    @Transactional(readOnly = true)
+    public TreeSnapshot load() {
+        long started = System.nanoTime();
+        JdbcTemplate jdbc = new JdbcTemplate(jdbcTemplate.getDataSource());
+        jdbc.setFetchSize(FETCH_SIZE);
+
+        TreeSnapshotBuilder builder = new TreeSnapshotBuilder();
+        jdbc.query("SELECT ID, PARENT_ID, NODE_NAME, NODE_PATH FROM NODE_INFO", rs -> {
+            long parentId = rs.getLong(2);
+            builder.addNode(rs.getLong(1), rs.wasNull() ? null : parentId, rs.getString(3), rs.getString(4));
+        });
+        jdbc.query("SELECT ID, SENSOR_NAME FROM SENSOR_INFO",
+                rs -> { builder.addSensor(rs.getLong(1), rs.getString(2)); });
+        jdbc.query("SELECT NODE_ID, SENSOR_ID FROM NODE_SENSOR_MAP",
+                rs -> { builder.addMapping(rs.getLong(1), rs.getLong(2)); });
+
+        TreeSnapshot snapshot = builder.build(versions.incrementAndGet());
+        log.info("Loaded tree snapshot v{}: {} nodes, {} sensors in {} ms", snapshot.getVersion(),
+                snapshot.nodeCount(), snapshot.sensorCount(), (System.nanoTime() - started) / 1_000_000);
+        return snapshot;
+    }
+}
@@ -0,0 +1,480 @@
+package com.example.treeapi.service.snapshot;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A batch of row changes to NODE_INFO, SENSOR_INFO and NODE_SENSOR_MAP, applied to a {@link TreeSnapshot}
+ * without reloading it.
+ * <p>
+ * Every entry is the current state of a row, or its absence, so applying a patch twice, or applying rows the
+ * snapshot already has, changes nothing. {@link #apply} copies the top-level arrays of each side it touches once
+ * per batch, and replaces only the child lists, sensor lists and name index entries under the changed rows; all
+ * other lists are shared with the base snapshot, which stays valid for readers still holding it.
+ * Removed nodes and sensors keep their slots until the next full load.
+ */
+public final class TreeSnapshotPatch {
+
+    private static final Comparator<String> NAME_ORDER = Comparator.nullsLast(Comparator.naturalOrder());
+
+    private record NodeRow(Long parentId, String name, String path) {
+    }
+
+    private record SensorRow(String name) {
+    }
+
+    private record Mapping(long nodeId, long sensorId) {
+    }
+
+    // A null value means the row no longer exists
+    private final Map<Long, NodeRow> nodes = new LinkedHashMap<>();
+    private final Map<Long, SensorRow> sensors = new LinkedHashMap<>();
+    private final Map<Mapping, Boolean> mappings = new LinkedHashMap<>();
+
+    /**
+     * @param snapshot         the patched snapshot, or the base itself if no row differed from it
+     * @param changedParentIds ids whose child list may have changed: each changed node, mapping owner or
+     *                         sensor owner, and the parents along its ancestor chain (their descendant counts moved)
+     */
+    public record Result(TreeSnapshot snapshot, Set<Long> changedParentIds) {
+    }
+
+    public TreeSnapshotPatch putNode(long id, Long parentId, String name, String path) {
+        nodes.put(id, new NodeRow(parentId, name, path));
+        return this;
+    }
+
+    public TreeSnapshotPatch removeNode(long id) {
+        nodes.put(id, null);
+        return this;
+    }
+
+    public TreeSnapshotPatch putSensor(long id, String name) {
+        sensors.put(id, new SensorRow(name));
+        return this;
+    }
+
+    public TreeSnapshotPatch removeSensor(long id) {
+        sensors.put(id, null);
+        return this;
+    }
+
+    public TreeSnapshotPatch putMapping(long nodeId, long sensorId) {
+        mappings.put(new Mapping(nodeId, sensorId), true);
+        return this;
+    }
+
+    public TreeSnapshotPatch removeMapping(long nodeId, long sensorId) {
+        mappings.put(new Mapping(nodeId, sensorId), false);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty() && sensors.isEmpty() && mappings.isEmpty();
+    }
+
+    public Result apply(TreeSnapshot base, long version) {
+        return new Patcher(base).apply(version);
+    }
+
+    /** Working copy of one snapshot; each side is copied on its first write. */
+    private final class Patcher {
+
+        private final TreeSnapshot base;
+        private final IntUnaryOperator parentOf = node -> this.parentIndexes[node];
+        private final Set<Long> changedParentIds = new LinkedHashSet<>();
+        private final BitSet changedNodeNames = new BitSet();
+        private final BitSet changedSensorNames = new BitSet();
+        private boolean changed;
+        private boolean countsOnCycle;
+
+        private boolean nodesCopied;
+        private int nodeCount;
+        private LongIntMap nodeIndex;
+        private long[] nodeIds;
+        private long[] parentIds;
+        private int[] parentIndexes;
+        private String[] nodeNames;
+        private String[] nodePaths;
+        private LongIntMap childListIndex;
+        private int[][] childLists;
+        private int childListCount;
+        private int[][] nodeSensors;
+        private BitSet hasChildren;
+        private int[] folderCounts;
+        private int[] sensorCounts;
+
+        private boolean sensorsCopied;
+        private int sensorCount;
+        private LongIntMap sensorIndex;
+        private long[] sensorIds;
+        private String[] sensorNames;
+        private int[][] sensorNodes;
+
+        Patcher(TreeSnapshot base) {
+            this.base = base;
+            nodeCount = base.nodeIds.length;
+            nodeIndex = base.nodeIndex;
+            nodeIds = base.nodeIds;
+            parentIds = base.parentIds;
+            parentIndexes = base.parentIndexes;
+            nodeNames = base.nodeNames;
+            nodePaths = base.nodePaths;
+            childListIndex = base.childListIndex;
+            childLists = base.childLists;
+            childListCount = base.childLists.length;
+            nodeSensors = base.nodeSensors;
+            hasChildren = base.hasChildren;
+            sensorCount = base.sensorIds.length;
+            sensorIndex = base.sensorIndex;
+            sensorIds = base.sensorIds;
+            sensorNames = base.sensorNames;
+            sensorNodes = base.sensorNodes;
+        }
+
+        Result apply(long version) {
+            // Sensors and nodes first, so mappings can refer to rows added in the same batch;
+            // removals last, so they also drop mappings added in the same batch.
+            sensors.forEach((id, row) -> {
+                if (row != null) {
+                    putSensor(id, row.name());
+                }
+            });
+            nodes.forEach((id, row) -> {
+                if (row != null) {
+                    putNode(id, row);
+                }
+            });
+            mappings.forEach((mapping, present) -> setMapping(mapping.nodeId(), mapping.sensorId(), present));
+            nodes.forEach((id, row) -> {
+                if (row == null) {
+                    removeNode(id);
+                }
+            });
+            sensors.forEach((id, row) -> {
+                if (row == null) {
+                    removeSensor(id);
+                }
+            });
+            if (!changed) {
+                return new Result(base, Set.of());
+            }
+
+            NgramIndex nodeNameIndex = changedNodeNames.isEmpty() ? base.nodeNameIndex
+                    : base.nodeNameIndex.patch(nodeNames, changedNodeNames.stream().toArray());
+            NgramIndex sensorNameIndex = changedSensorNames.isEmpty() ? base.sensorNameIndex
+                    : base.sensorNameIndex.patch(sensorNames, changedSensorNames.stream().toArray());
+            DescendantCounts descendantCounts = !nodesCopied ? base.descendantCounts
+                    : countsOnCycle ? recomputeCounts() : DescendantCounts.of(folderCounts, sensorCounts);
+            TreeSnapshot snapshot = new TreeSnapshot(version, Instant.now(),
+                    nodeIndex, nodeIds, parentIds, parentIndexes, nodeNames, nodePaths,
+                    childListIndex, nodesCopied ? Arrays.copyOf(childLists, childListCount) : childLists,
+                    nodeSensors, hasChildren,
+                    descendantCounts, nodeNameIndex,
+                    sensorIndex, sensorIds, sensorNames, sensorNodes, sensorNameIndex);
+            return new Result(snapshot, Collections.unmodifiableSet(changedParentIds));
+        }
+
+        private void putNode(long id, NodeRow row) {
+            long parentId = row.parentId() == null ? TreeSnapshot.NO_PARENT : row.parentId();
+            int node = nodeIndex.get(id);
+            if (node >= 0 && parentIds[node] == parentId && Objects.equals(nodeNames[node], row.name())
+                    && Objects.equals(nodePaths[node], row.path())) {
+                return;
+            }
+            writeNodes();
+            if (node < 0) {
+                node = nodeCount++;
+                nodeIds[node] = id;
+                parentIds[node] = TreeSnapshot.NO_PARENT;
+                parentIndexes[node] = -1;
+                nodeSensors[node] = TreeSnapshot.EMPTY;
+                nodeIndex.put(id, node);
+                // Rows that already named this id as their parent hang under the new node from now on
+                int[] children = childList(id);
+                for (int child : children) {
+                    parentIndexes[child] = node;
+                    folderCounts[node] += 1 + folderCounts[child];
+                    sensorCounts[node] += sensorCounts[child];
+                }
+                hasChildren.set(node, children.length > 0);
+            } else {
+                markChain(node);
+                detach(node);
+            }
+            nodeNames[node] = row.name();
+            nodePaths[node] = row.path();
+            changedNodeNames.set(node);
+            attach(node, parentId);
+            markChain(node);
+            changed = true;
+        }
+
+        private void removeNode(long id) {
+            int node = nodeIndex.get(id);
+            if (node < 0) {
+                return;
+            }
+            writeNodes();
+            markChain(node);
+            detach(node);
+            // Children stay listed under the id, like rows whose parent row is missing
+            for (int child : childList(id)) {
+                parentIndexes[child] = -1;
+            }
+            if (nodeSensors[node].length > 0) {
+                writeSensors();
+                for (int sensor : nodeSensors[node]) {
+                    sensorNodes[sensor] = without(sensorNodes[sensor], node);
+                }
+                nodeSensors[node] = TreeSnapshot.EMPTY;
+            }
+            nodeIndex.remove(id);
+            nodeNames[node] = null;
+            nodePaths[node] = null;
+            changedNodeNames.set(node);
+            hasChildren.clear(node);
+            folderCounts[node] = 0;
+            sensorCounts[node] = 0;
+            changed = true;
+        }
+
+        private void putSensor(long id, String name) {
+            int sensor = sensorIndex.get(id);
+            if (sensor >= 0 && Objects.equals(sensorNames[sensor], name)) {
+                return;
+            }
+            writeSensors();
+            if (sensor < 0) {
+                sensor = sensorCount++;
+                sensorIds[sensor] = id;
+                sensorNames[sensor] = name;
+                sensorNodes[sensor] = TreeSnapshot.EMPTY;
+                sensorIndex.put(id, sensor);
+            } else {
+                sensorNames[sensor] = name;
+                if (sensorNodes[sensor].length > 0) {
+                    // The sensor moves within the name-sorted list of every node it is mapped to
+                    writeNodes();
+                    for (int node : sensorNodes[sensor]) {
+                        nodeSensors[node] = insertSorted(without(nodeSensors[node], sensor), sensor,
+                                this::compareSensors);
+                        changedParentIds.add(nodeIds[node]);
+                    }
+                }
+            }
+            changedSensorNames.set(sensor);
+            changed = true;
+        }
+
+        private void removeSensor(long id) {
+            int sensor = sensorIndex.get(id);
+            if (sensor < 0) {
+                return;
+            }
+            writeSensors();
+            for (int node : sensorNodes[sensor]) {
+                unmap(node, sensor);
+            }
+            sensorNodes[sensor] = TreeSnapshot.EMPTY;
+            sensorIndex.remove(id);
+            sensorNames[sensor] = null;
+            changedSensorNames.set(sensor);
+            changed = true;
+        }
+
+        private void setMapping(long nodeId, long sensorId, boolean present) {
+            int node = nodeIndex.get(nodeId);
+            int sensor = sensorIndex.get(sensorId);
+            if (node < 0 || sensor < 0 || (indexOf(nodeSensors[node], sensor) >= 0) == present) {
+                return;
+            }
+            writeSensors();
+            if (present) {
+                writeNodes();
+                nodeSensors[node] = insertSorted(nodeSensors[node], sensor, this::compareSensors);
+                sensorNodes[sensor] = insertSorted(sensorNodes[sensor], node, Integer::compare);
+                hasChildren.set(node);
+                addAlongChain(node, 0, 1);
+                markChain(node);
+            } else {
+                sensorNodes[sensor] = without(sensorNodes[sensor], node);
+                unmap(node, sensor);
+            }
+            changed = true;
+        }
+
+        // Node side of removing a mapping; the caller updates the sensor's node list
+        private void unmap(int node, int sensor) {
+            writeNodes();
+            nodeSensors[node] = without(nodeSensors[node], sensor);
+            refreshHasChildren(node);
+            addAlongChain(node, 0, -1);
+            markChain(node);
+        }
+
+        // Takes the node and its subtree out of its parent's child list and ancestor counts
+        private void detach(int node) {
+            long parentId = parentIds[node];
+            int parent = parentIndexes[node];
+            addAlongChain(parent, -(1 + folderCounts[node]), -sensorCounts[node]);
+            if (parentId != TreeSnapshot.NO_PARENT) {
+                setChildList(parentId, without(childList(parentId), node));
+                if (parent >= 0) {
+                    refreshHasChildren(parent);
+                }
+            }
+            parentIds[node] = TreeSnapshot.NO_PARENT;
+            parentIndexes[node] = -1;
+        }
+
+        private void attach(int node, long parentId) {
+            parentIds[node] = parentId;
+            if (parentId == TreeSnapshot.NO_PARENT) {
+                return;
+            }
+            int parent = nodeIndex.get(parentId);
+            parentIndexes[node] = parent;
+            setChildList(parentId, insertSorted(childList(parentId), node, this::compareNodes));
+            if (parent >= 0) {
+                hasChildren.set(parent);
+            }
+            addAlongChain(parent, 1 + folderCounts[node], sensorCounts[node]);
+        }
+
+        private void addAlongChain(int node, int folderDelta, int sensorDelta) {
+            if (!DescendantCounts.addAlongChain(folderCounts, sensorCounts, node, folderDelta, sensorDelta, parentOf)) {
+                countsOnCycle = true;
+            }
+        }
+
+        // A chain that ran into a PARENT_ID cycle got the delta once per lap; rare enough to recount everything
+        private DescendantCounts recomputeCounts() {
+            int[] ownSensors = new int[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                ownSensors[node] = nodeSensors[node].length;
+            }
+            return DescendantCounts.compute(Arrays.copyOf(parentIndexes, nodeCount), ownSensors);
+        }
+
+        // The node's own child list and every list that shows the node or one of its ancestors
+        private void markChain(int node) {
+            changedParentIds.add(nodeIds[node]);
+            for (int current = node, steps = 0; current >= 0 && steps < nodeCount;
+                 current = parentIndexes[current], steps++) {
+                if (parentIds[current] != TreeSnapshot.NO_PARENT) {
+                    changedParentIds.add(parentIds[current]);
+                }
+            }
+        }
+
+        private void refreshHasChildren(int node) {
+            hasChildren.set(node, childList(nodeIds[node]).length > 0 || nodeSensors[node].length > 0);
+        }
+
+        private int[] childList(long parentId) {
+            int slot = childListIndex.get(parentId);
+            return slot < 0 ? TreeSnapshot.EMPTY : childLists[slot];
+        }
+
+        private void setChildList(long parentId, int[] children) {
+            int slot = childListIndex.get(parentId);
+            if (slot < 0) {
+                slot = childListCount++;
+                if (slot == childLists.length) {
+                    childLists = Arrays.copyOf(childLists, Math.max(16, slot * 2));
+                }
+                childListIndex.put(parentId, slot);
+            }
+            childLists[slot] = children;
+        }
+
+        private int compareNodes(int a, int b) {
+            int cmp = NAME_ORDER.compare(nodeNames[a], nodeNames[b]);
+            return cmp != 0 ? cmp : Long.compare(nodeIds[a], nodeIds[b]);
+        }
+
+        private int compareSensors(int a, int b) {
+            int cmp = NAME_ORDER.compare(sensorNames[a], sensorNames[b]);
+            return cmp != 0 ? cmp : Long.compare(sensorIds[a], sensorIds[b]);
+        }
+
+        private void writeNodes() {
+            if (nodesCopied) {
+                return;
+            }
+            nodesCopied = true;
+            int length = nodeCount + (int) nodes.entrySet().stream()
+                    .filter(entry -> entry.getValue() != null && base.nodeIndex.get(entry.getKey()) < 0).count();
+            nodeIndex = nodeIndex.copy();
+            nodeIds = Arrays.copyOf(nodeIds, length);
+            parentIds = Arrays.copyOf(parentIds, length);
+            parentIndexes = Arrays.copyOf(parentIndexes, length);
+            nodeNames = Arrays.copyOf(nodeNames, length);
+            nodePaths = Arrays.copyOf(nodePaths, length);
+            childListIndex = childListIndex.copy();
+            childLists = childLists.clone();
+            nodeSensors = Arrays.copyOf(nodeSensors, length);
+            hasChildren = (BitSet) hasChildren.clone();
+            int[][] counts = base.descendantCounts.copyArrays(length);
+            folderCounts = counts[0];
+            sensorCounts = counts[1];
+        }
+
+        private void writeSensors() {
+            if (sensorsCopied) {
+                return;
+            }
+            sensorsCopied = true;
+            int length = sensorCount + (int) sensors.entrySet().stream()
+                    .filter(entry -> entry.getValue() != null && base.sensorIndex.get(entry.getKey()) < 0).count();
+            sensorIndex = sensorIndex.copy();
+            sensorIds = Arrays.copyOf(sensorIds, length);
+            sensorNames = Arrays.copyOf(sensorNames, length);
+            sensorNodes = Arrays.copyOf(sensorNodes, length);
+        }
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] without(int[] values, int value) {
+        int at = indexOf(values, value);
+        if (at < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return TreeSnapshot.EMPTY;
+        }
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, at);
+        System.arraycopy(values, at + 1, result, at, values.length - at - 1);
+        return result;
+    }
+
+    private static int[] insertSorted(int[] values, int value, IntBinaryOperator order) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order.applyAsInt(values[mid], value) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, low);
+        result[low] = value;
+        System.arraycopy(values, low, result, low + 1, values.length - low);
+        return result;
+    }
+}
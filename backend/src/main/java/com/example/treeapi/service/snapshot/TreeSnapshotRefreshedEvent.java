@@ -0,0 +1,18 @@
+package com.example.treeapi.service.snapshot;
+
+import java.util.Set;
+
+/**
+ * Published after a new {@link TreeSnapshot} has been swapped in.
+ *
+ * @param previous         the snapshot that was replaced, or {@code null} on the first load
+ * @param current          the snapshot now being served
+ * @param changedParentIds ids whose child list may differ between the two, or {@code null} after a full load,
+ *                         where any list may have changed
+ */
+public record TreeSnapshotRefreshedEvent(TreeSnapshot previous, TreeSnapshot current, Set<Long> changedParentIds) {
+
+    public TreeSnapshotRefreshedEvent(TreeSnapshot previous, TreeSnapshot current) {
+        this(previous, current, null);
+    }
+}
@@ -0,0 +1,64 @@
+-- 트리 스냅샷 증분 반영용 변경 로그 (app.tree.snapshot.change-log.enabled=true 일 때 TreeChangeApplier 가 폴링)
+-- 값이 아닌 변경된 행의 ID 만 기록하며, 애플리케이션은 해당 행의 현재 상태를 다시 읽어 반영하므로
+-- 같은 행이 여러 번 기록되어도 결과는 같습니다. 운영 DB 에 DBA 가 한 번 적용합니다.
+
+-- RAC 에서는 노드별 캐시 때문에 SEQ 가 커밋 순서와 크게 어긋날 수 있으므로 ORDER 를 권장합니다.
+-- 순서가 어긋난 SEQ 는 gap-timeout 동안 다시 확인하므로 ORDER 가 없어도 누락되지는 않습니다.
+CREATE SEQUENCE TREE_CHANGE_SEQ CACHE 100 ORDER;
+
+CREATE TABLE TREE_CHANGE_LOG (
+    SEQ         NUMBER(19)   NOT NULL,
+    -- 'N' = NODE_INFO, 'S' = SENSOR_INFO, 'M' = NODE_SENSOR_MAP
+    CHANGE_TYPE CHAR(1)      NOT NULL,
+    NODE_ID     NUMBER(19),
+    SENSOR_ID   NUMBER(19),
+    CHANGED_AT  TIMESTAMP    DEFAULT SYSTIMESTAMP NOT NULL,
+    CONSTRAINT PK_TREE_CHANGE_LOG PRIMARY KEY (SEQ)
+);
+
+-- 이동/이름 변경은 변경 전후 ID 가 같으므로 한 행, ID 자체가 바뀌면 이전 ID 와 새 ID 를 각각 기록
+CREATE OR REPLACE TRIGGER TRG_NODE_INFO_CHANGE_LOG
+AFTER INSERT OR UPDATE OR DELETE ON NODE_INFO
+FOR EACH ROW
+BEGIN
+    IF DELETING OR (UPDATING AND :OLD.ID <> :NEW.ID) THEN
+        INSERT INTO TREE_CHANGE_LOG (SEQ, CHANGE_TYPE, NODE_ID) VALUES (TREE_CHANGE_SEQ.NEXTVAL, 'N', :OLD.ID);
+    END IF;
+    IF INSERTING OR UPDATING THEN
+        INSERT INTO TREE_CHANGE_LOG (SEQ, CHANGE_TYPE, NODE_ID) VALUES (TREE_CHANGE_SEQ.NEXTVAL, 'N', :NEW.ID);
+    END IF;
+END;
+/
+
+CREATE OR REPLACE TRIGGER TRG_SENSOR_INFO_CHANGE_LOG
+AFTER INSERT OR UPDATE OR DELETE ON SENSOR_INFO
+FOR EACH ROW
+BEGIN
+    IF DELETING OR (UPDATING AND :OLD.ID <> :NEW.ID) THEN
+        INSERT INTO TREE_CHANGE_LOG (SEQ, CHANGE_TYPE, SENSOR_ID) VALUES (TREE_CHANGE_SEQ.NEXTVAL, 'S', :OLD.ID);
+    END IF;
+    IF INSERTING OR UPDATING THEN
+        INSERT INTO TREE_CHANGE_LOG (SEQ, CHANGE_TYPE, SENSOR_ID) VALUES (TREE_CHANGE_SEQ.NEXTVAL, 'S', :NEW.ID);
+    END IF;
+END;
+/
+
+CREATE OR REPLACE TRIGGER TRG_NODE_SENSOR_MAP_CHANGE_LOG
+AFTER INSERT OR UPDATE OR DELETE ON NODE_SENSOR_MAP
+FOR EACH ROW
+BEGIN
+    IF DELETING OR UPDATING THEN
+        INSERT INTO TREE_CHANGE_LOG (SEQ, CHANGE_TYPE, NODE_ID, SENSOR_ID)
+        VALUES (TREE_CHANGE_SEQ.NEXTVAL, 'M', :OLD.NODE_ID, :OLD.SENSOR_ID);
+    END IF;
+    IF INSERTING OR UPDATING THEN
+        INSERT INTO TREE_CHANGE_LOG (SEQ, CHANGE_TYPE, NODE_ID, SENSOR_ID)
+        VALUES (TREE_CHANGE_SEQ.NEXTVAL, 'M', :NEW.NODE_ID, :NEW.SENSOR_ID);
+    END IF;
+END;
+/
+
+-- 보관 주기: 애플리케이션은 기동 시 스냅샷 파일에 기록된 SEQ (마지막 전체 적재 시점) 부터 이어 읽으므로
+-- refresh-interval 과 예상 중단 시간보다 길게 보관합니다. 그 사이가 지워졌으면 DB 에서 전체 재적재합니다.
+-- 예) DBMS_SCHEDULER 로 매일 실행
+-- DELETE FROM TREE_CHANGE_LOG WHERE CHANGED_AT < SYSTIMESTAMP - INTERVAL '3' DAY;
@@ -0,0 +1,11 @@
+-- 개발용 H2 에는 트리거 없이 변경 로그 테이블만 생성합니다 (운영 DDL: db/oracle/tree-change-log.sql).
+-- H2 콘솔에서 행을 수정한 뒤 TREE_CHANGE_LOG 에 직접 INSERT 하면 증분 반영을 확인할 수 있습니다.
+CREATE SEQUENCE IF NOT EXISTS TREE_CHANGE_SEQ;
+
+CREATE TABLE IF NOT EXISTS TREE_CHANGE_LOG (
+    SEQ         NUMBER(19)   DEFAULT NEXT VALUE FOR TREE_CHANGE_SEQ NOT NULL PRIMARY KEY,
+    CHANGE_TYPE CHAR(1)      NOT NULL,
+    NODE_ID     NUMBER(19),
+    SENSOR_ID   NUMBER(19),
+    CHANGED_AT  TIMESTAMP    DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
@@ -0,0 +1,65 @@
+package com.example.treeapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RateLimitFilter filter = new RateLimitFilter(true, 2, 1, 1000,
+            new ObjectMapper().findAndRegisterModules(), request -> null, registry);
+
+    @Test
+    void testSearchAndBrowseHaveSeparateBudgets() throws Exception {
+        assertThat(call("POST", "/api/nodes/search", "10.0.0.1").getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = call("POST", "/api/nodes/search", "10.0.0.1");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("60");
+        assertThat(rejected.getContentAsString()).contains("\"errorCode\":\"RATE_LIMITED\"");
+        assertThat(registry.get("tree.ratelimit.rejected").tag("budget", "search").counter().count()).isEqualTo(1);
+
+        assertThat(call("GET", "/api/nodes/root", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(call("GET", "/api/nodes/1/children", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(call("GET", "/api/nodes/1/children", "10.0.0.1").getHeader("Retry-After")).isEqualTo("30");
+        assertThat(call("GET", "/api/nodes/root", "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void testPreflightAndNonApiRequestsAreNotLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(call("OPTIONS", "/api/nodes/search", "10.0.0.1").getStatus()).isEqualTo(200);
+            assertThat(call("GET", "/actuator/health", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void testRotatingAuthorizationHeaderDoesNotEscapeTheLimit() throws Exception {
+        assertThat(call("GET", "/api/nodes/root", "10.0.0.1", "Bearer a").getStatus()).isEqualTo(200);
+        assertThat(call("GET", "/api/nodes/root", "10.0.0.1", "Bearer b").getStatus()).isEqualTo(200);
+        assertThat(call("GET", "/api/nodes/root", "10.0.0.1", "Bearer c").getStatus()).isEqualTo(429);
+        assertThat(call("GET", "/api/nodes/root", "10.0.0.1", null).getStatus()).isEqualTo(429);
+    }
+
+    private MockHttpServletResponse call(String method, String uri, String remoteAddr) throws Exception {
+        return call(method, uri, remoteAddr, null);
+    }
+
+    private MockHttpServletResponse call(String method, String uri, String remoteAddr, String authorization)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddr);
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
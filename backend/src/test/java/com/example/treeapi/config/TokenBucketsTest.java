@@ -0,0 +1,80 @@
+package com.example.treeapi.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketsTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(-5 * SECOND);
+
+    @Test
+    void testBurstThenDenyUntilNextToken() {
+        TokenBuckets buckets = new TokenBuckets(60, 3, 100, clock::get);
+
+        assertThat(buckets.tryAcquire("a")).isZero();
+        assertThat(buckets.tryAcquire("a")).isZero();
+        assertThat(buckets.tryAcquire("a")).isZero();
+        assertThat(buckets.tryAcquire("a")).isEqualTo(SECOND);
+        // Other clients have their own budget
+        assertThat(buckets.tryAcquire("b")).isZero();
+
+        clock.addAndGet(SECOND / 4);
+        assertThat(buckets.tryAcquire("a")).isEqualTo(3 * SECOND / 4);
+        clock.addAndGet(3 * SECOND / 4);
+        assertThat(buckets.tryAcquire("a")).isZero();
+        assertThat(buckets.tryAcquire("a")).isEqualTo(SECOND);
+    }
+
+    @Test
+    void testIdleBucketRefillsToBurst() {
+        TokenBuckets buckets = new TokenBuckets(60, 2, 100, clock::get);
+        buckets.tryAcquire("a");
+        buckets.tryAcquire("a");
+
+        clock.addAndGet(60 * SECOND);
+
+        assertThat(buckets.tryAcquire("a")).isZero();
+        assertThat(buckets.tryAcquire("a")).isZero();
+        assertThat(buckets.tryAcquire("a")).isPositive();
+    }
+
+    @Test
+    void testFullStripeEvictsIdleBucketsAndOtherwiseSharesOverflow() {
+        // One key per stripe
+        TokenBuckets buckets = new TokenBuckets(60, 1, TokenBuckets.STRIPES, clock::get);
+        String[] keys = keysInOneStripe(3);
+
+        assertThat(buckets.tryAcquire(keys[0])).isZero();
+        // The stripe is full and keys[0] is still busy: new clients share the overflow bucket
+        assertThat(buckets.tryAcquire(keys[1])).isZero();
+        assertThat(buckets.tryAcquire(keys[2])).isPositive();
+        assertThat(buckets.size()).isEqualTo(1);
+
+        clock.addAndGet(SECOND);
+
+        // keys[0] is idle again and gets evicted for keys[2]
+        assertThat(buckets.tryAcquire(keys[2])).isZero();
+        assertThat(buckets.tryAcquire(keys[2])).isPositive();
+        assertThat(buckets.tryAcquire(keys[0])).isZero();
+        assertThat(buckets.size()).isEqualTo(1);
+    }
+
+    private static String[] keysInOneStripe(int count) {
+        String[] keys = new String[count];
+        int found = 0;
+        for (int i = 0; found < count; i++) {
+            String key = "ip:10.0.0." + i;
+            int hash = key.hashCode();
+            if (((hash ^ (hash >>> 16)) & (TokenBuckets.STRIPES - 1)) == 0) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+}
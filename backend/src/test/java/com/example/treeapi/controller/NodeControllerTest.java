@@ -1,9 +1,14 @@
 package com.example.treeapi.controller;
 
+import com.example.treeapi.dto.ChildrenBatchEntry;
+import com.example.treeapi.dto.ChildrenBatchRequest;
+import com.example.treeapi.dto.ChildrenPage;
 import com.example.treeapi.dto.NodeDto;
 import com.example.treeapi.dto.RevealPathDto;
 import com.example.treeapi.dto.SearchRequest;
 import com.example.treeapi.dto.SearchResultDto;
+import com.example.treeapi.dto.SearchResultPage;
+import com.example.treeapi.service.ChildrenVersion;
 import com.example.treeapi.service.TreeDataService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,17 +18,26 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -48,9 +62,9 @@ class NodeControllerTest {
 
     @BeforeEach
     void setUp() {
-        nodeController = new NodeController(treeDataService);
-        mockMvc = MockMvcBuilders.standaloneSetup(nodeController).build();
         objectMapper = new ObjectMapper();
+        nodeController = new NodeController(treeDataService, objectMapper);
+        mockMvc = MockMvcBuilders.standaloneSetup(nodeController).build();
 
         // 테스트 데이터 준비
         rootNodeDto = new NodeDto();
@@ -200,7 +214,170 @@ class NodeControllerTest {
                     .andExpect(jsonPath("$.length()").value(0));
         }
 
+        @Test
+        @DisplayName("버전이 이미 알려져 있고 If-None-Match가 일치하면 조회 없이 304를 반환한다")
+        void shouldReturn304WithoutLoadingWhenVersionIsKnown() throws Exception {
+            // Given
+            Long parentId = 2L;
+            when(treeDataService.childrenVersion(parentId)).thenReturn("00000000000000aa");
+
+            // When & Then
+            mockMvc.perform(get("/api/nodes/{id}/children", parentId)
+                            .header(HttpHeaders.IF_NONE_MATCH, "\"00000000000000aa\""))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"00000000000000aa\""))
+                    .andExpect(content().string(""));
+            verify(treeDataService, never()).getChildrenOf(parentId);
+        }
+
+        @Test
+        @DisplayName("버전을 모르면 응답 본문으로 ETag를 만들고 일치하면 304를 반환한다")
+        void shouldDeriveETagFromBody() throws Exception {
+            // Given
+            Long parentId = 2L;
+            List<NodeDto> children = Arrays.asList(nodeDto);
+            when(treeDataService.getChildrenOf(parentId)).thenReturn(children);
+            String etag = "\"" + ChildrenVersion.of(children) + "\"";
+
+            // When & Then
+            mockMvc.perform(get("/api/nodes/{id}/children", parentId))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag));
+            mockMvc.perform(get("/api/nodes/{id}/children", parentId)
+                            .header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().string(""));
+        }
+
+        @Test
+        @DisplayName("Accept가 NDJSON이면 자식 노드를 한 줄에 하나씩 스트리밍한다")
+        void shouldStreamChildrenAsNdjson() throws Exception {
+            // Given
+            Long parentId = 2L;
+            doAnswer(invocation -> {
+                Consumer<Object> sink = invocation.getArgument(1);
+                sink.accept(nodeDto);
+                sink.accept(parentNodeDto);
+                return null;
+            }).when(treeDataService).streamChildren(eq(parentId), any());
+
+            // When & Then
+            MvcResult result = mockMvc.perform(get("/api/nodes/{id}/children", parentId)
+                            .accept(MediaType.APPLICATION_NDJSON))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                    .andExpect(content().string(
+                            objectMapper.writeValueAsString(nodeDto) + "\n" + objectMapper.writeValueAsString(parentNodeDto) + "\n"));
+        }
+
+        @Test
+        @DisplayName("서브트리를 깊이 우선으로 한 줄에 하나씩 스트리밍한다")
+        void shouldStreamSubtreeAsNdjson() throws Exception {
+            // Given
+            Long nodeId = 1L;
+            doAnswer(invocation -> {
+                Consumer<Object> sink = invocation.getArgument(1);
+                sink.accept(rootNodeDto);
+                sink.accept(nodeDto);
+                return null;
+            }).when(treeDataService).streamSubtree(eq(nodeId), any());
+
+            // When & Then
+            MvcResult result = mockMvc.perform(get("/api/nodes/{id}/subtree", nodeId))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                    .andExpect(content().string(
+                            objectMapper.writeValueAsString(rootNodeDto) + "\n" + objectMapper.writeValueAsString(nodeDto) + "\n"));
+        }
+
+        @Test
+        @DisplayName("압축 표현은 같은 버전을 약한 ETag로 반환한다")
+        void shouldReturnCompactChildrenWithWeakETag() throws Exception {
+            // Given
+            Long parentId = 2L;
+            List<NodeDto> children = Arrays.asList(nodeDto);
+            when(treeDataService.getChildrenOf(parentId)).thenReturn(children);
+            String weakETag = "W/\"" + ChildrenVersion.of(children) + "\"";
+
+            // When & Then
+            mockMvc.perform(get("/api/nodes/{id}/children", parentId)
+                            .accept(NodeController.COMPACT_JSON_VALUE))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, weakETag))
+                    .andExpect(jsonPath("$[0].id").value(3))
+                    .andExpect(jsonPath("$[0].name").value("Test Node"))
+                    .andExpect(jsonPath("$[0].type").doesNotExist())
+                    .andExpect(jsonPath("$[0].parentId").doesNotExist());
+            mockMvc.perform(get("/api/nodes/{id}/children", parentId)
+                            .accept(NodeController.COMPACT_JSON_VALUE)
+                            .header(HttpHeaders.IF_NONE_MATCH, weakETag))
+                    .andExpect(status().isNotModified());
+        }
+
+        @Test
+        @DisplayName("limit 파라미터가 있으면 커서 페이지를 반환한다")
+        void shouldReturnChildrenPageWhenLimitIsGiven() throws Exception {
+            // Given
+            Long parentId = 2L;
+            when(treeDataService.getChildrenPage(parentId, "Child 1,f10", 1))
+                    .thenReturn(new ChildrenPage(List.of(nodeDto), "Test Node,f3", 5));
+
+            // When & Then
+            mockMvc.perform(get("/api/nodes/{id}/children", parentId)
+                            .param("after", "Child 1,f10")
+                            .param("limit", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items.length()").value(1))
+                    .andExpect(jsonPath("$.items[0].id").value("3"))
+                    .andExpect(jsonPath("$.nextCursor").value("Test Node,f3"))
+                    .andExpect(jsonPath("$.totalCount").value(5));
+        }
+
+    }
+
+    @Nested
+    @DisplayName("POST /api/nodes/children:batch - 하위 노드 일괄 조회")
+    class GetChildrenBatchTests {
+
+        @Test
+        @DisplayName("부모별 하위 노드와 버전을 반환하고 변경되지 않은 부모는 목록을 생략한다")
+        void shouldReturnChildrenPerParent() throws Exception {
+            // Given
+            ChildrenBatchRequest request = new ChildrenBatchRequest();
+            request.setParentIds(List.of(2L, 3L));
+            request.setVersions(Map.of("3", "00000000000000aa"));
+
+            Map<String, ChildrenBatchEntry> entries = new LinkedHashMap<>();
+            entries.put("2", ChildrenBatchEntry.of("00000000000000bb", List.of(nodeDto)));
+            entries.put("3", ChildrenBatchEntry.notModified("00000000000000aa"));
+            when(treeDataService.getChildrenBatch(List.of(2L, 3L), Map.of("3", "00000000000000aa"))).thenReturn(entries);
+
+            // When & Then
+            mockMvc.perform(post("/api/nodes/children:batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$['2'].version").value("00000000000000bb"))
+                    .andExpect(jsonPath("$['2'].notModified").value(false))
+                    .andExpect(jsonPath("$['2'].children[0].id").value("3"))
+                    .andExpect(jsonPath("$['3'].notModified").value(true))
+                    .andExpect(jsonPath("$['3'].children").doesNotExist());
+        }
 
+        @Test
+        @DisplayName("부모 ID 목록이 비어 있으면 400 에러를 반환한다")
+        void shouldReturn400ForEmptyParentIds() throws Exception {
+            mockMvc.perform(post("/api/nodes/children:batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"parentIds\": []}"))
+                    .andExpect(status().isBadRequest());
+        }
     }
 
     @Nested
@@ -215,7 +392,7 @@ class NodeControllerTest {
             request.setQuery("test query");
 
             List<SearchResultDto> results = Arrays.asList(searchResultDto);
-            when(treeDataService.searchNodes("test query")).thenReturn(results);
+            when(treeDataService.search("test query")).thenReturn(SearchResultPage.of(results));
 
             // When & Then
             mockMvc.perform(post("/api/nodes/search")
@@ -246,7 +423,7 @@ class NodeControllerTest {
             SearchResultDto result2 = new SearchResultDto("folder1", "Folder 1", "folder", Arrays.asList(rootNodeDto, parentNodeDto));
 
             List<SearchResultDto> results = Arrays.asList(result1, result2);
-            when(treeDataService.searchNodes("multiple")).thenReturn(results);
+            when(treeDataService.search("multiple")).thenReturn(SearchResultPage.of(results));
 
             // When & Then
             mockMvc.perform(post("/api/nodes/search")
@@ -267,7 +444,7 @@ class NodeControllerTest {
             SearchRequest request = new SearchRequest();
             request.setQuery("nonexistent");
 
-            when(treeDataService.searchNodes("nonexistent")).thenReturn(Collections.emptyList());
+            when(treeDataService.search("nonexistent")).thenReturn(SearchResultPage.of(Collections.emptyList()));
 
             // When & Then
             mockMvc.perform(post("/api/nodes/search")
@@ -279,6 +456,93 @@ class NodeControllerTest {
                     .andExpect(jsonPath("$.length()").value(0));
         }
 
+        @Test
+        @DisplayName("결과가 잘리면 전체 건수와 잘림 여부를 헤더로 반환한다")
+        void shouldReturnTruncationHeaders() throws Exception {
+            // Given
+            SearchRequest request = new SearchRequest();
+            request.setQuery("SENSOR");
+
+            when(treeDataService.search("SENSOR"))
+                    .thenReturn(new SearchResultPage(Arrays.asList(searchResultDto), true, 5000));
+
+            // When & Then
+            mockMvc.perform(post("/api/nodes/search")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(NodeController.TOTAL_COUNT_HEADER, "5000"))
+                    .andExpect(header().string(NodeController.TRUNCATED_HEADER, "true"))
+                    .andExpect(jsonPath("$").isArray())
+                    .andExpect(jsonPath("$.length()").value(1));
+        }
+
+        @Test
+        @DisplayName("Accept가 NDJSON이면 검색 결과를 스트리밍하고, 지정하지 않으면 JSON 배열을 반환한다")
+        void shouldStreamSearchResultsOnlyWhenNdjsonIsAccepted() throws Exception {
+            // Given
+            SearchRequest request = new SearchRequest();
+            request.setQuery("test");
+            when(treeDataService.streamSearch(eq("test"), any())).thenAnswer(invocation -> {
+                Consumer<Object> sink = invocation.getArgument(1);
+                sink.accept(searchResultDto);
+                return 1L;
+            });
+            when(treeDataService.search("test")).thenReturn(SearchResultPage.of(List.of(searchResultDto)));
+
+            // When & Then
+            MvcResult result = mockMvc.perform(post("/api/nodes/search")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .accept(MediaType.APPLICATION_NDJSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string(objectMapper.writeValueAsString(searchResultDto) + "\n"));
+
+            mockMvc.perform(post("/api/nodes/search")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$[0].id").value("4"));
+        }
+
+        @Test
+        @DisplayName("압축 표현을 요청하면 공유 노드 테이블과 인덱스로 결과를 반환한다")
+        void shouldReturnCompactSearchResults() throws Exception {
+            // Given
+            SearchRequest request = new SearchRequest();
+            request.setQuery("test");
+            SearchResultDto sibling = new SearchResultDto("5", "Sibling", "sensor", Arrays.asList(rootNodeDto, parentNodeDto));
+            when(treeDataService.search("test"))
+                    .thenReturn(new SearchResultPage(Arrays.asList(searchResultDto, sibling), true, 10));
+
+            // When & Then
+            mockMvc.perform(post("/api/nodes/search")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .accept(NodeController.COMPACT_JSON_VALUE)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(NodeController.COMPACT_JSON_VALUE))
+                    .andExpect(header().string(NodeController.TOTAL_COUNT_HEADER, "10"))
+                    // Shared ancestors appear once, parents before children
+                    .andExpect(jsonPath("$.nodes.length()").value(3))
+                    .andExpect(jsonPath("$.nodes[0].id").value(1))
+                    .andExpect(jsonPath("$.nodes[0].parent").doesNotExist())
+                    .andExpect(jsonPath("$.nodes[0].hasChildren").value(true))
+                    .andExpect(jsonPath("$.nodes[1].parent").value(0))
+                    .andExpect(jsonPath("$.nodes[2].parent").value(1))
+                    .andExpect(jsonPath("$.nodes[2].hasChildren").doesNotExist())
+                    .andExpect(jsonPath("$.nodes[2].metadata").doesNotExist())
+                    .andExpect(jsonPath("$.hits[0].id").value(4))
+                    .andExpect(jsonPath("$.hits[0].node").value(2))
+                    .andExpect(jsonPath("$.hits[1].type").value(1))
+                    .andExpect(jsonPath("$.hits[1].node").value(1))
+                    .andExpect(jsonPath("$.truncated").value(true));
+        }
+
         @Test
         @DisplayName("잘못된 JSON 형식은 400 에러를 반환한다")
         void shouldReturn400ForInvalidJson() throws Exception {
@@ -329,6 +593,20 @@ class NodeControllerTest {
                     .andExpect(jsonPath("$.childrenMap.3").isArray());
         }
 
+        @Test
+        @DisplayName("If-None-Match가 일치하면 304를 반환한다")
+        void shouldReturn304ForMatchingRevealPathETag() throws Exception {
+            // Given
+            Long nodeId = 3L;
+            when(treeDataService.revealPathVersion(nodeId)).thenReturn(ChildrenVersion.of(revealPathDto));
+
+            // When & Then
+            mockMvc.perform(get("/api/nodes/reveal-path/{nodeId}", nodeId)
+                            .header(HttpHeaders.IF_NONE_MATCH, "\"" + ChildrenVersion.of(revealPathDto) + "\""))
+                    .andExpect(status().isNotModified());
+            verify(treeDataService, never()).revealPath(nodeId);
+        }
+
         @Test
         @DisplayName("루트 노드의 경로를 반환한다")
         void shouldReturnRootNodePath() throws Exception {
@@ -378,7 +656,7 @@ class NodeControllerTest {
             // Given
             when(treeDataService.getRootNodes()).thenReturn(Arrays.asList(rootNodeDto));
             when(treeDataService.getChildrenOf(1L)).thenReturn(Arrays.asList(parentNodeDto));
-            when(treeDataService.searchNodes("Test")).thenReturn(Arrays.asList(searchResultDto));
+            when(treeDataService.search("Test")).thenReturn(SearchResultPage.of(Arrays.asList(searchResultDto)));
             when(treeDataService.revealPath(4L)).thenReturn(revealPathDto);
 
             // When & Then
@@ -421,7 +699,7 @@ class NodeControllerTest {
                     Arrays.asList(rootNodeDto, parentNodeDto, nodeDto));
 
             List<SearchResultDto> mixedResults = Arrays.asList(folderResult, fileResult, documentResult);
-            when(treeDataService.searchNodes("mixed")).thenReturn(mixedResults);
+            when(treeDataService.search("mixed")).thenReturn(SearchResultPage.of(mixedResults));
 
             SearchRequest request = new SearchRequest();
             request.setQuery("mixed");
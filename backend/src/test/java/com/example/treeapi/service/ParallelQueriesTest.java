@@ -0,0 +1,94 @@
+package com.example.treeapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelQueriesTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testDisabledRunsInline() {
+        ParallelQueries queries = new ParallelQueries(executor, registry, false, 8);
+        Thread caller = Thread.currentThread();
+
+        try (ParallelQueries.Fork<Thread> fork = queries.fork(Thread::currentThread)) {
+            assertThat(fork.join()).isSameAs(caller);
+        }
+        assertThat(registry.get("tree.query.forks").tag("mode", "inline").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testForkOverlapsWithCallerAndFallsBackInlineWhenSaturated() throws Exception {
+        ParallelQueries queries = new ParallelQueries(executor, registry, true, 1);
+        CountDownLatch callerReady = new CountDownLatch(1);
+
+        try (ParallelQueries.Fork<String> fork = queries.fork(() -> {
+            await(callerReady);
+            return Thread.currentThread().getName();
+        })) {
+            // The only permit is taken, so this one runs on the caller thread right away
+            try (ParallelQueries.Fork<Thread> inline = queries.fork(Thread::currentThread)) {
+                assertThat(inline.join()).isSameAs(Thread.currentThread());
+            }
+            callerReady.countDown();
+            assertThat(fork.join()).isNotEqualTo(Thread.currentThread().getName());
+        }
+        assertThat(registry.get("tree.query.forks").tag("mode", "parallel").counter().count()).isEqualTo(1);
+        assertThat(registry.get("tree.query.forks").tag("mode", "inline").counter().count()).isEqualTo(1);
+        assertThat(registry.get("tree.query.fork.active").gauge().value()).isZero();
+    }
+
+    @Test
+    void testJoinRethrowsQueryException() {
+        ParallelQueries queries = new ParallelQueries(executor, registry, true, 1);
+
+        try (ParallelQueries.Fork<Object> fork = queries.fork(() -> {
+            throw new IllegalStateException("boom");
+        })) {
+            assertThatThrownBy(fork::join).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+        }
+        assertThat(registry.get("tree.query.fork.active").gauge().value()).isZero();
+    }
+
+    @Test
+    void testCloseCancelsForkThatHasNotStarted() throws Exception {
+        ParallelQueries queries = new ParallelQueries(executor, registry, true, 2);
+        CountDownLatch busy = new CountDownLatch(1);
+        executor.execute(() -> await(busy));
+
+        boolean[] ran = new boolean[1];
+        try (ParallelQueries.Fork<Object> fork = queries.fork(() -> ran[0] = true)) {
+            assertThat(registry.get("tree.query.fork.active").gauge().value()).isEqualTo(1);
+        }
+        busy.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran[0]).isFalse();
+        assertThat(registry.get("tree.query.fork.active").gauge().value()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.treeapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, String> flights = new SingleFlight<>("children", registry);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentIdenticalCallsShareOneExecution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        List<Future<String>> callers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            callers.add(executor.submit(() -> flights.execute(1L, () -> {
+                executions.incrementAndGet();
+                await(release);
+                return "children of 1";
+            })));
+        }
+        // Every follower has to join before the leader is released
+        waitUntil(() -> registry.get("tree.query.coalesced").counter().count() == 3);
+        release.countDown();
+
+        for (Future<String> caller : callers) {
+            assertThat(caller.get(5, TimeUnit.SECONDS)).isEqualTo("children of 1");
+        }
+        assertThat(executions).hasValue(1);
+        // Nothing is kept after the flight lands
+        assertThat(flights.execute(1L, () -> "reloaded")).isEqualTo("reloaded");
+        assertThat(flights.execute(null, () -> "roots")).isEqualTo("roots");
+    }
+
+    @Test
+    void testFollowersReceiveTheLeadersException() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalArgumentException failure = new IllegalArgumentException("Node not found: 7");
+
+        Future<String> leader = executor.submit(() -> flights.execute(7L, () -> {
+            await(release);
+            throw failure;
+        }));
+        Future<String> follower = executor.submit(() -> flights.execute(7L, () -> "not run"));
+        waitUntil(() -> registry.get("tree.query.coalesced").counter().count() == 1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCause(failure);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
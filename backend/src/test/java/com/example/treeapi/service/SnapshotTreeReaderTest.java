@@ -0,0 +1,200 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.dto.ChildrenPage;
+import com.example.treeapi.dto.NodeDto;
+import com.example.treeapi.dto.RevealPathDto;
+import com.example.treeapi.dto.SearchResultDto;
+import com.example.treeapi.dto.SearchResultPage;
+import com.example.treeapi.service.snapshot.TreeSnapshot;
+import com.example.treeapi.service.snapshot.TreeSnapshotBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotTreeReaderTest {
+
+    private SnapshotTreeReader reader;
+
+    @BeforeEach
+    void setUp() {
+        // Same data set as TreeDataServiceTest, so both readers must agree
+        TreeSnapshot snapshot = new TreeSnapshotBuilder()
+                .addNode(1L, null, "ROOT", "ROOT")
+                .addNode(102L, 1L, "ROOT2", "ROOT2")
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addNode(104L, 101L, "NODE1", "ROOT1|NODE1")
+                .addNode(105L, 104L, "XROOT", "ROOT1|NODE1|XROOT")
+                .addSensor(201L, "SENSOR1")
+                .addMapping(101L, 201L)
+                .build(1L);
+        reader = new SnapshotTreeReader(snapshot);
+    }
+
+    @Test
+    void testGetRootNodes() {
+        List<NodeDto> rootNodes = reader.getRootNodes();
+        assertThat(rootNodes).extracting(NodeDto::getName).containsExactly("ROOT1", "ROOT2");
+        assertThat(rootNodes.get(0).getHasChildren()).isTrue();
+        assertThat(rootNodes.get(1).getHasChildren()).isFalse();
+    }
+
+    @Test
+    void testGetChildrenOf() {
+        List<NodeDto> childrenOfChild1 = reader.getChildrenOf(101L);
+        assertThat(childrenOfChild1).extracting(NodeDto::getName).containsExactly("NODE1", "SENSOR1");
+        assertThat(childrenOfChild1).extracting(NodeDto::getType).containsExactly("folder", "sensor");
+        assertThat(childrenOfChild1).extracting(NodeDto::getParentId).containsOnly("101");
+
+        assertThat(reader.getChildrenOf(102L)).isEmpty();
+        assertThat(reader.getChildrenOf(999L)).isEmpty();
+    }
+
+    @Test
+    void testGetChildrenPageWalksMergedOrder() {
+        SnapshotTreeReader wide = new SnapshotTreeReader(new TreeSnapshotBuilder()
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addNode(104L, 101L, "NODE1", "ROOT1|NODE1")
+                .addNode(150L, 101L, "SENSOR1", "ROOT1|SENSOR1")
+                .addNode(151L, 101L, "A", "ROOT1|A")
+                .addNode(152L, 101L, "Z", "ROOT1|Z")
+                .addSensor(201L, "SENSOR1")
+                .addSensor(210L, "M")
+                .addSensor(211L, "B")
+                .addMapping(101L, 201L)
+                .addMapping(101L, 210L)
+                .addMapping(101L, 211L)
+                .build(1L));
+
+        List<String> ids = new ArrayList<>();
+        ChildCursor cursor = null;
+        do {
+            ChildrenPage page = wide.getChildrenPage(101L, cursor, 2);
+            assertThat(page.getTotalCount()).isEqualTo(7);
+            page.getItems().forEach(item -> ids.add(item.getType().charAt(0) + item.getId()));
+            cursor = page.getNextCursor() == null ? null : ChildCursor.parse(page.getNextCursor());
+        } while (cursor != null);
+
+        // Same order as the database reader: folders come before sensors with the same name
+        assertThat(ids).containsExactly("f151", "s211", "s210", "f104", "f150", "s201", "f152");
+        assertThat(wide.getChildrenPage(101L, ChildCursor.sensor("SENSOR1", 201L), 10).getItems())
+                .extracting(NodeDto::getId).containsExactly("152");
+    }
+
+    @Test
+    void testGetChildrenPageCrossesNullNames() {
+        SnapshotTreeReader withNulls = new SnapshotTreeReader(new TreeSnapshotBuilder()
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addNode(151L, 101L, "A", "ROOT1|A")
+                .addNode(153L, 101L, null, "ROOT1|?")
+                .addNode(154L, 101L, null, "ROOT1|?")
+                .addSensor(201L, "SENSOR1")
+                .addSensor(212L, null)
+                .addMapping(101L, 201L)
+                .addMapping(101L, 212L)
+                .build(1L));
+
+        List<String> ids = new ArrayList<>();
+        ChildCursor cursor = null;
+        do {
+            ChildrenPage page = withNulls.getChildrenPage(101L, cursor, 2);
+            page.getItems().forEach(item -> ids.add(item.getType().charAt(0) + item.getId()));
+            cursor = page.getNextCursor() == null ? null : ChildCursor.parse(page.getNextCursor());
+        } while (cursor != null);
+
+        assertThat(ids).containsExactly("f151", "s201", "f153", "f154", "s212");
+    }
+
+    @Test
+    void testCursorKeepsNullNamesApartFromEmptyNames() {
+        assertThat(ChildCursor.folder(null, 153L).toString()).isEqualTo(",F153");
+        assertThat(ChildCursor.parse(",F153")).isEqualTo(ChildCursor.folder(null, 153L));
+        assertThat(ChildCursor.parse(",S212")).isEqualTo(ChildCursor.sensor(null, 212L));
+        assertThat(ChildCursor.parse(",f153")).isEqualTo(ChildCursor.folder("", 153L));
+        assertThat(ChildCursor.parse("a,b,s1")).isEqualTo(ChildCursor.sensor("a,b", 1L));
+        assertThatThrownBy(() -> ChildCursor.parse("X,F153")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testSearchNodes() {
+        SearchResultPage page = reader.search("root", 3);
+        // Exact match, then prefix matches by name, the deeper substring match is cut off
+        assertThat(page.getResults()).extracting(SearchResultDto::getName).containsExactly("ROOT", "ROOT1", "ROOT2");
+        assertThat(page.isTruncated()).isTrue();
+        assertThat(page.getTotalCount()).isEqualTo(4);
+
+        List<SearchResultDto> sensorResults = reader.search("SENSOR", 10).getResults();
+        assertThat(sensorResults).hasSize(1);
+        assertThat(sensorResults.get(0).getPath()).extracting(NodeDto::getId).containsExactly("101");
+    }
+
+    @Test
+    void testFoldersCarryDescendantCounts() {
+        List<NodeDto> rootNodes = reader.getRootNodes();
+        assertThat(rootNodes).extracting(NodeDto::getDescendantFolders).containsExactly(2, 0);
+        assertThat(rootNodes).extracting(NodeDto::getDescendantSensors).containsExactly(1, 0);
+
+        List<NodeDto> childrenOfChild1 = reader.getChildrenOf(101L);
+        assertThat(childrenOfChild1).extracting(NodeDto::getDescendantFolders).containsExactly(1, null);
+        assertThat(childrenOfChild1).extracting(NodeDto::getDescendantSensors).containsExactly(0, null);
+    }
+
+    @Test
+    void testRevealPath() {
+        RevealPathDto revealData = reader.revealPath(104L);
+
+        assertThat(revealData.getPath()).extracting(NodeDto::getId).containsExactly("101", "104");
+        assertThat(revealData.getChildrenMap()).hasSize(1);
+        assertThat(revealData.getChildrenMap().get("101")).hasSize(2);
+
+        assertThat(reader.revealPath(999L).getPath()).isEmpty();
+    }
+
+    @Test
+    void testPathWalksStopOnParentIdCycle() {
+        SnapshotTreeReader cyclic = new SnapshotTreeReader(new TreeSnapshotBuilder()
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addNode(301L, 302L, "CYCLE-A", "CYCLE-A")
+                .addNode(302L, 301L, "CYCLE-B", "CYCLE-B")
+                .build(1L));
+
+        assertThat(cyclic.revealPath(301L).getPath()).hasSizeLessThanOrEqualTo(3)
+                .extracting(NodeDto::getId).endsWith("301");
+        assertThat(cyclic.search("CYCLE", 10).getResults()).hasSize(2);
+    }
+
+    @Test
+    void testVersionsMatchContentAndAreRemembered() {
+        assertThat(reader.childrenVersion(101L)).isEqualTo(ChildrenVersion.of(reader.getChildrenOf(101L)));
+        assertThat(reader.childrenVersion(null)).isEqualTo(ChildrenVersion.of(reader.getRootNodes()));
+        assertThat(reader.childrenVersion(101L)).isNotEqualTo(reader.childrenVersion(104L));
+        assertThat(reader.childrenVersion(101L)).isSameAs(reader.childrenVersion(101L));
+        assertThat(reader.revealPathVersion(104L)).isEqualTo(ChildrenVersion.of(reader.revealPath(104L)));
+        assertThat(reader.revealPathVersion(105L)).isEqualTo(ChildrenVersion.of(reader.revealPath(105L)));
+
+        // Same content in a rebuilt snapshot gives the same version; a rename changes it
+        TreeSnapshotBuilder rebuilt = new TreeSnapshotBuilder()
+                .addNode(1L, null, "ROOT", "ROOT")
+                .addNode(102L, 1L, "ROOT2", "ROOT2")
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addSensor(201L, "SENSOR1")
+                .addMapping(101L, 201L);
+        SnapshotTreeReader renamed = new SnapshotTreeReader(rebuilt
+                .addNode(104L, 101L, "NODE1-RENAMED", "ROOT1|NODE1-RENAMED")
+                .build(2L));
+        assertThat(renamed.childrenVersion(102L)).isEqualTo(reader.childrenVersion(102L));
+        assertThat(renamed.childrenVersion(101L)).isNotEqualTo(reader.childrenVersion(101L));
+    }
+
+    @Test
+    void testUnknownIdsGetNoVersion() {
+        assertThat(reader.childrenVersion(999L)).isNull();
+        assertThat(reader.revealPathVersion(999L)).isNull();
+        // A leaf still has a version for its (empty) child list
+        assertThat(reader.childrenVersion(102L)).isEqualTo(ChildrenVersion.of(List.of()));
+    }
+}
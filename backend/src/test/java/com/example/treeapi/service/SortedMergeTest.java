@@ -0,0 +1,30 @@
+package com.example.treeapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SortedMergeTest {
+
+    private static final Comparator<String> FIRST_CHAR = Comparator.comparing(s -> s.charAt(0));
+
+    @Test
+    void testMergeKeepsEarlierSourceFirstOnTies() {
+        List<String> folders = List.of("a1", "c1", "c2", "e1");
+        List<String> sensors = List.of("b2", "c3", "d2");
+
+        assertThat(SortedMerge.merge(List.of(folders, sensors), FIRST_CHAR))
+                .containsExactly("a1", "b2", "c1", "c2", "c3", "d2", "e1");
+    }
+
+    @Test
+    void testMergeStopsAtLimit() {
+        assertThat(SortedMerge.merge(List.of(List.of("a", "c"), List.of("b", "d"), List.<String>of()),
+                Comparator.<String>naturalOrder(), 3)).containsExactly("a", "b", "c");
+        assertThat(SortedMerge.merge(List.of(List.<String>of(), List.<String>of()), Comparator.<String>naturalOrder()))
+                .isEmpty();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.treeapi.service;
+
+import com.example.treeapi.config.CacheConfig;
+import com.example.treeapi.dto.NodeDto;
+import com.example.treeapi.dto.RevealPathDto;
+import com.example.treeapi.service.snapshot.TreeSnapshot;
+import com.example.treeapi.service.snapshot.TreeSnapshotBuilder;
+import com.example.treeapi.service.snapshot.TreeSnapshotRefreshedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TreeCacheInvalidatorTest {
+
+    private CacheManager cacheManager;
+    private TreeCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new CacheConfig().cacheManager(100, 60);
+        invalidator = new TreeCacheInvalidator(
+                new StaticListableBeanFactory(Map.of("cacheManager", cacheManager)).getBeanProvider(CacheManager.class));
+
+        cacheManager.getCache(CacheConfig.ROOT_NODES).put("root", List.of());
+        cacheManager.getCache(CacheConfig.CHILDREN).put(101L, List.of());
+        cacheManager.getCache(CacheConfig.CHILDREN).put(102L, List.of());
+        cacheManager.getCache(CacheConfig.REVEAL_PATH).put(104L,
+                new RevealPathDto(List.of(new NodeDto()), Map.of("101", List.of())));
+        cacheManager.getCache(CacheConfig.REVEAL_PATH).put(109L,
+                new RevealPathDto(List.of(new NodeDto()), Map.of("105", List.of())));
+    }
+
+    @Test
+    void invalidateChildrenEvictsOnlyEntriesContainingTheParent() {
+        invalidator.invalidateChildren(101L);
+
+        assertThat(cacheManager.getCache(CacheConfig.CHILDREN).get(101L)).isNull();
+        assertThat(cacheManager.getCache(CacheConfig.CHILDREN).get(102L)).isNotNull();
+        assertThat(cacheManager.getCache(CacheConfig.REVEAL_PATH).get(104L)).isNull();
+        assertThat(cacheManager.getCache(CacheConfig.REVEAL_PATH).get(109L)).isNotNull();
+        assertThat(cacheManager.getCache(CacheConfig.ROOT_NODES).get("root")).isNotNull();
+    }
+
+    @Test
+    void invalidateChildrenOfVirtualRootClearsRootNodes() {
+        invalidator.invalidateChildren(1L);
+
+        assertThat(cacheManager.getCache(CacheConfig.ROOT_NODES).get("root")).isNull();
+    }
+
+    @Test
+    void patchedSnapshotEvictsOnlyChangedParentsWhileFullLoadClearsEverything() {
+        TreeSnapshot snapshot = new TreeSnapshotBuilder().build(1L);
+
+        invalidator.onSnapshotRefreshed(new TreeSnapshotRefreshedEvent(snapshot, snapshot, Set.of(102L)));
+        assertThat(cacheManager.getCache(CacheConfig.CHILDREN).get(101L)).isNotNull();
+        assertThat(cacheManager.getCache(CacheConfig.CHILDREN).get(102L)).isNull();
+        assertThat(cacheManager.getCache(CacheConfig.ROOT_NODES).get("root")).isNotNull();
+
+        invalidator.onSnapshotRefreshed(new TreeSnapshotRefreshedEvent(snapshot, snapshot));
+        assertThat(cacheManager.getCache(CacheConfig.CHILDREN).get(101L)).isNull();
+        assertThat(cacheManager.getCache(CacheConfig.ROOT_NODES).get("root")).isNull();
+    }
+
+    @Test
+    void invalidatorIsNoOpWithoutCacheManager() {
+        TreeCacheInvalidator disabled = new TreeCacheInvalidator(
+                new StaticListableBeanFactory().getBeanProvider(CacheManager.class));
+
+        disabled.invalidateChildren(101L);
+        disabled.invalidateAll();
+    }
+}
@@ -2,11 +2,21 @@ package com.example.treeapi.service;
 
 import com.example.treeapi.domain.Node;
 import com.example.treeapi.domain.Sensor;
+import com.example.treeapi.dto.ChildrenPage;
+import com.example.treeapi.dto.ChildrenBatchEntry;
 import com.example.treeapi.dto.NodeDto;
 import com.example.treeapi.dto.RevealPathDto;
 import com.example.treeapi.dto.SearchResultDto;
+import com.example.treeapi.dto.SearchResultPage;
 import com.example.treeapi.repository.NodeRepository;
 import com.example.treeapi.repository.SensorRepository;
+import com.example.treeapi.service.snapshot.TreeSnapshotLoader;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,8 +24,11 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -27,12 +40,27 @@ class TreeDataServiceTest {
     @Autowired
     private TreeDataService treeDataService;
 
+    @Autowired
+    private RepositoryTreeReader repositoryTreeReader;
+
     @Autowired
     private NodeRepository nodeRepository;
 
     @Autowired
     private SensorRepository sensorRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TreeSnapshotLoader snapshotLoader;
+
     private Node root;
     private Node child1;
     private Node child2;
@@ -104,6 +132,41 @@ class TreeDataServiceTest {
         assertThat(sensorResults.get(0).getName()).isEqualTo("SENSOR1");
     }
 
+    @Test
+    void testSearchRanksAndTruncates() {
+        createNode(105L, "XROOT", 104L, "ROOT1|NODE1|XROOT");
+
+        SearchResultPage page = repositoryTreeReader.search("root", 3);
+
+        // Exact match, then prefix matches by name, the deeper substring match is cut off
+        assertThat(page.getResults()).extracting(SearchResultDto::getName).containsExactly("ROOT", "ROOT1", "ROOT2");
+        assertThat(page.isTruncated()).isTrue();
+        assertThat(page.getTotalCount()).isEqualTo(4);
+
+        SearchResultPage all = repositoryTreeReader.search("root", 10);
+        assertThat(all.getResults()).extracting(SearchResultDto::getName).containsExactly("ROOT", "ROOT1", "ROOT2", "XROOT");
+        assertThat(all.isTruncated()).isFalse();
+    }
+
+    @Test
+    void testSearchCutsCandidatesByParentDepth() {
+        // NODE_PATH separators disagree with the PARENT_ID chain the result paths follow
+        Node shallow = createNode(110L, "HITA", 101L, "A|B|C|D|E|HITA");
+        Node middle = createNode(111L, "HITB", 104L, "HITB");
+        Node deep = createNode(112L, "HITC", 111L, "X|HITC");
+        createSensor(210L, "PROBE1", middle);
+        createSensor(211L, "PROBE2", deep);
+        createSensor(212L, "PROBE3", shallow);
+        entityManager.flush();
+
+        assertThat(repositoryTreeReader.search("hit", 1).getResults())
+                .extracting(SearchResultDto::getId).containsExactly("110");
+        assertThat(repositoryTreeReader.search("probe", 1).getResults())
+                .extracting(SearchResultDto::getId).containsExactly("212");
+        assertThat(repositoryTreeReader.search("hit", 10).getResults())
+                .extracting(SearchResultDto::getId).containsExactly("110", "111", "112");
+    }
+
     @Test
     void testRevealPath() {
         RevealPathDto revealData = treeDataService.revealPath(104L);
@@ -116,4 +179,369 @@ class TreeDataServiceTest {
         assertThat(revealData.getChildrenMap()).hasSize(1); // Only parent of target node
         assertThat(revealData.getChildrenMap().get("101")).hasSize(2); // NODE1 and SENSOR1
     }
+
+    @Test
+    void testServiceMetricsRecordStatementsResultsAndDepth() {
+        double statementsBefore = recorded("tree.service.statements", "children");
+        double resultsBefore = recorded("tree.service.results", "children");
+        double depthBefore = recorded("tree.service.path.depth", "reveal-path");
+
+        long statements = countStatements(() -> treeDataService.getChildrenOf(101L));
+        treeDataService.revealPath(104L);
+
+        // Per-call statements are counted for this call only, and agree with Hibernate's global statistics
+        assertThat(statements).isPositive();
+        assertThat(recorded("tree.service.statements", "children") - statementsBefore).isEqualTo(statements);
+        assertThat(recorded("tree.service.results", "children") - resultsBefore).isEqualTo(2);
+        assertThat(recorded("tree.service.path.depth", "reveal-path") - depthBefore).isEqualTo(2);
+    }
+
+    @Test
+    void testGetChildrenPageWalksMergedOrder() {
+        createNode(150L, "SENSOR1", 101L, "ROOT1|SENSOR1");
+        createNode(151L, "A", 101L, "ROOT1|A");
+        createNode(152L, "Z", 101L, "ROOT1|Z");
+        createSensor(210L, "M", child1);
+        createSensor(211L, "B", child1);
+
+        List<String> ids = new java.util.ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ChildrenPage page = treeDataService.getChildrenPage(101L, cursor, 2);
+            assertThat(page.getTotalCount()).isEqualTo(7);
+            assertThat(page.getItems()).hasSizeBetween(1, 2);
+            page.getItems().forEach(item -> ids.add(item.getType().charAt(0) + item.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Folders come before sensors with the same name
+        assertThat(ids).containsExactly("f151", "s211", "s210", "f104", "f150", "s201", "f152");
+        assertThat(pages).isEqualTo(4);
+    }
+
+    @Test
+    void testGetChildrenPageCrossesNullNames() {
+        createNode(151L, "A", 101L, "ROOT1|A");
+        createNode(153L, null, 101L, "ROOT1|?");
+        createNode(154L, null, 101L, "ROOT1|?");
+        createSensor(212L, null, child1);
+
+        // Page boundaries fall on a null-named folder (after 2 and 4 items)
+        List<String> ids = new java.util.ArrayList<>();
+        String cursor = null;
+        do {
+            ChildrenPage page = treeDataService.getChildrenPage(101L, cursor, 2);
+            page.getItems().forEach(item -> ids.add(item.getType().charAt(0) + item.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(ids).containsExactly("f151", "f104", "s201", "f153", "f154", "s212");
+    }
+
+    @Test
+    void testGetChildrenOfStatementCountIndependentOfFanOut() {
+        addChildrenWithSensors(101L, 1000L, 5);
+        long fewChildren = countStatements(() -> assertThat(treeDataService.getChildrenOf(101L)).hasSize(7));
+
+        addChildrenWithSensors(101L, 2000L, 50);
+        long manyChildren = countStatements(() -> assertThat(treeDataService.getChildrenOf(101L)).hasSize(57));
+
+        assertThat(manyChildren).isEqualTo(fewChildren);
+        assertThat(manyChildren).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void testGetChildrenOfComputesHasChildrenFromFoldersAndSensors() {
+        addChildrenWithSensors(102L, 1000L, 1);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<NodeDto> children = treeDataService.getChildrenOf(101L);
+        assertThat(children).filteredOn(dto -> dto.getId().equals("104")).singleElement()
+                .extracting(NodeDto::getHasChildren).isEqualTo(false);
+        assertThat(treeDataService.getRootNodes()).extracting(NodeDto::getHasChildren).containsExactly(true, true);
+    }
+
+    @Test
+    void testRevealPathStatementCountIndependentOfDepth() {
+        addChain(104L, 3000L, 2);
+        addChain(104L, 4000L, 9);
+        addChildrenWithSensors(4004L, 5000L, 3);
+        createSensor(6000L, "ZSENSOR", nodeRepository.findById(4004L).orElseThrow());
+
+        long shallow = countStatements(() -> assertThat(treeDataService.revealPath(3001L).getPath()).hasSize(4));
+        RevealPathDto[] deep = new RevealPathDto[1];
+        long deepCount = countStatements(() -> deep[0] = treeDataService.revealPath(4008L));
+
+        assertThat(deepCount).isEqualTo(shallow);
+        assertThat(deepCount).isLessThanOrEqualTo(3);
+        // Every ancestor's children match what the children endpoint returns, in the same order
+        assertThat(deep[0].getChildrenMap()).hasSize(10);
+        deep[0].getChildrenMap().forEach((parentId, children) ->
+                assertThat(children).extracting(NodeDto::getId).containsExactlyElementsOf(
+                        treeDataService.getChildrenOf(Long.valueOf(parentId)).stream().map(NodeDto::getId).toList()));
+        assertThat(deep[0].getChildrenMap().get("4004")).extracting(NodeDto::getType)
+                .containsExactly("folder", "folder", "folder", "folder", "sensor");
+    }
+
+    @Test
+    void testGetChildrenBatchSkipsUnchangedParents() {
+        addChildrenWithSensors(104L, 1000L, 3);
+        long few = countStatements(() -> assertThat(treeDataService.getChildrenBatch(List.of(101L, 104L), null))
+                .containsOnlyKeys("101", "104"));
+
+        addChildrenWithSensors(102L, 2000L, 20);
+        AtomicReference<Map<String, ChildrenBatchEntry>> result = new AtomicReference<>();
+        long many = countStatements(() -> result.set(treeDataService.getChildrenBatch(
+                List.of(101L, 104L, 102L, 999L, 104L), null)));
+        Map<String, ChildrenBatchEntry> batch = result.get();
+
+        assertThat(many).isEqualTo(few);
+        assertThat(many).isLessThanOrEqualTo(2);
+        assertThat(batch).containsOnlyKeys("101", "104", "102", "999");
+        assertThat(batch.get("104").getChildren()).extracting(NodeDto::getId).containsExactlyElementsOf(
+                treeDataService.getChildrenOf(104L).stream().map(NodeDto::getId).toList());
+        assertThat(batch.get("999").getChildren()).isEmpty();
+
+        // Only 104 changes after the client records the versions
+        Map<String, String> versions = new HashMap<>();
+        batch.forEach((parentId, entry) -> versions.put(parentId, entry.getVersion()));
+        addChildrenWithSensors(104L, 3000L, 1);
+        Map<String, ChildrenBatchEntry> refreshed = treeDataService.getChildrenBatch(List.of(101L, 104L, 102L), versions);
+
+        assertThat(refreshed.get("101").isNotModified()).isTrue();
+        assertThat(refreshed.get("101").getChildren()).isNull();
+        assertThat(refreshed.get("102").isNotModified()).isTrue();
+        assertThat(refreshed.get("104").isNotModified()).isFalse();
+        assertThat(refreshed.get("104").getVersion()).isNotEqualTo(versions.get("104"));
+        assertThat(refreshed.get("104").getChildren()).hasSize(batch.get("104").getChildren().size() + 1);
+    }
+
+    @Test
+    void testStreamSearchMatchesSearchOrder() {
+        createNode(105L, "XROOT", 104L, "ROOT1|NODE1|XROOT");
+        createSensor(202L, "ROOTSENSOR", nodeRepository.findById(104L).orElseThrow());
+        entityManager.flush();
+
+        List<SearchResultDto> streamed = new java.util.ArrayList<>();
+        assertThat(treeDataService.streamSearch("root", streamed::add)).isEqualTo(5);
+
+        List<SearchResultDto> listed = treeDataService.searchNodes("root");
+        assertThat(streamed).extracting(SearchResultDto::getId).containsExactlyElementsOf(
+                listed.stream().map(SearchResultDto::getId).toList());
+        assertThat(streamed).extracting(SearchResultDto::getType).containsExactly(
+                "folder", "folder", "folder", "sensor", "folder");
+        assertThat(streamed.get(3).getPath()).extracting(NodeDto::getId).containsExactly("101", "104");
+    }
+
+    @Test
+    void testStreamSearchOrdersByParentDepthLikeSearch() {
+        // data.sql shape: NODE2-1 sits under NODE1 by path but under NODE2 by parent, and the NODE1-1-1-* chain
+        // is deep by path but flat by parent
+        Node node2 = createNode(105L, "NODE2", 101L, "ROOT1|NODE2");
+        Node node11 = createNode(107L, "NODE1-1", 104L, "ROOT1|NODE1|NODE1-1");
+        createNode(109L, "NODE2-1", 105L, "ROOT1|NODE1|NODE2-1");
+        createNode(111L, "NODE1-1-1-1", 107L, "ROOT1|NODE1|NODE1-1|NODE1-1-1|NODE1-1-1-1");
+        createNode(112L, "NODE1-1-1-1-1", 107L, "ROOT1|NODE1|NODE1-1|NODE1-1-1|NODE1-1-1-1|NODE1-1-1-1-1");
+        createNode(113L, "NODE1-1-1-1-1-1", 107L,
+                "ROOT1|NODE1|NODE1-1|NODE1-1-1|NODE1-1-1-1|NODE1-1-1-1-1|NODE1-1-1-1-1-1");
+        createNode(114L, "NODE2-1-X", 112L, "ROOT1|NODE2-1-X");
+        createSensor(210L, "NODE-SENSOR", node11);
+        createSensor(211L, "NODE-SENSOR2", node2);
+        entityManager.flush();
+
+        List<SearchResultDto> streamed = new java.util.ArrayList<>();
+        treeDataService.streamSearch("node", streamed::add);
+
+        List<SearchResultDto> listed = repositoryTreeReader.search("node", 100).getResults();
+        assertThat(streamed).extracting(SearchResultDto::getId)
+                .containsExactlyElementsOf(listed.stream().map(SearchResultDto::getId).toList())
+                .containsSubsequence("104", "105", "109", "111", "114");
+
+        List<SearchResultDto> fromSnapshot = new java.util.ArrayList<>();
+        new SnapshotTreeReader(snapshotLoader.load()).streamSearch("node", Long.MAX_VALUE, fromSnapshot::add);
+        assertThat(fromSnapshot).extracting(SearchResultDto::getId)
+                .containsExactlyElementsOf(streamed.stream().map(SearchResultDto::getId).toList());
+    }
+
+    @Test
+    void testStreamSearchResolvesPathsPerChunk() {
+        addChildrenWithSensors(102L, 1000L, SearchResultChunks.CHUNK_SIZE + 50);
+        List<SearchResultDto> streamed = new java.util.ArrayList<>();
+
+        long statements = countStatements(() -> treeDataService.streamSearch("CHILD", streamed::add));
+
+        assertThat(streamed).hasSize(SearchResultChunks.CHUNK_SIZE + 50);
+        assertThat(streamed).allSatisfy(result -> assertThat(result.getPath()).extracting(NodeDto::getId)
+                .containsExactly("102", result.getId()));
+        // Two cursors plus one ancestor query per chunk
+        assertThat(statements).isEqualTo(4);
+    }
+
+    @Test
+    void testStreamChildrenMatchesGetChildrenOf() {
+        addChildrenWithSensors(104L, 1000L, 3);
+        createSensor(300L, "A-SENSOR", child1);
+        createSensor(301L, "NODE1", child1);
+        entityManager.flush();
+
+        for (Long parentId : new Long[] {null, 101L, 104L, 999L}) {
+            List<NodeDto> streamed = new java.util.ArrayList<>();
+            treeDataService.streamChildren(parentId, streamed::add);
+            List<NodeDto> listed = parentId == null ? treeDataService.getRootNodes() : treeDataService.getChildrenOf(parentId);
+            assertThat(streamed).extracting(dto -> dto.getType() + dto.getId())
+                    .containsExactlyElementsOf(listed.stream().map(dto -> dto.getType() + dto.getId()).toList());
+        }
+    }
+
+    @Test
+    void testSearchPathStatementCountIndependentOfDepth() {
+        addChain(104L, 3000L, 2);
+        addChain(104L, 4000L, 9);
+
+        long shallow = countStatements(() -> assertThat(treeDataService.searchNodes("DEEP3001").get(0).getPath())
+                .extracting(NodeDto::getId).containsExactly("101", "104", "3000", "3001"));
+        long deep = countStatements(() -> assertThat(treeDataService.searchNodes("DEEP4008").get(0).getPath())
+                .hasSize(11).extracting(NodeDto::getId).startsWith("101", "104").endsWith("4008"));
+
+        assertThat(deep).isEqualTo(shallow);
+    }
+
+    @Test
+    void testSearchPathStatementCountIndependentOfHitCount() {
+        addChain(104L, 3000L, 3);
+        long fewHits = countStatements(() -> assertThat(treeDataService.searchNodes("DEEP30")).hasSize(3));
+
+        addChain(3002L, 3003L, 20);
+        List<SearchResultDto> results = new java.util.ArrayList<>();
+        long manyHits = countStatements(() -> results.addAll(treeDataService.searchNodes("DEEP30")));
+
+        assertThat(results).hasSize(23);
+        assertThat(manyHits).isEqualTo(fewHits);
+        // Shared ancestors are the same DTO instances in every path
+        SearchResultDto deepest = results.stream().filter(r -> r.getId().equals("3022")).findFirst().orElseThrow();
+        SearchResultDto shallowest = results.stream().filter(r -> r.getId().equals("3000")).findFirst().orElseThrow();
+        assertThat(deepest.getPath()).hasSize(25);
+        assertThat(deepest.getPath().get(1)).isSameAs(shallowest.getPath().get(1));
+    }
+
+    @Test
+    void testSensorSearchStatementCountIndependentOfSensorHits() {
+        addChildrenWithSensors(102L, 1000L, 3);
+        long fewHits = countStatements(() -> assertThat(treeDataService.searchNodes("SENSOR10")).hasSize(3));
+
+        addChildrenWithSensors(102L, 1003L, 40);
+        // SENSOR1000 also appears under NODE1
+        Node node1 = nodeRepository.findById(104L).orElseThrow();
+        node1.getSensors().add(sensorRepository.findById(1000L).orElseThrow());
+        nodeRepository.save(node1);
+        List<SearchResultDto> results = new java.util.ArrayList<>();
+        long manyHits = countStatements(() -> results.addAll(treeDataService.searchNodes("SENSOR10")));
+
+        assertThat(results).hasSize(44);
+        assertThat(manyHits).isEqualTo(fewHits);
+        assertThat(results).filteredOn(result -> result.getId().equals("1000"))
+                .extracting(result -> result.getPath().get(result.getPath().size() - 1).getId())
+                .containsExactlyInAnyOrder("1000", "104");
+        assertThat(results).allSatisfy(result -> assertThat(result.getOccurrences())
+                .isEqualTo(result.getId().equals("1000") ? 2 : 1));
+    }
+
+    @Test
+    void testStreamSubtreeIsDepthFirstInOneScan() {
+        // Depth first: NODE1's children come before its sibling NODE1-1
+        createNode(150L, "NODE1-1", 101L, "ROOT1|NODE1-1");
+        createNode(105L, "XNODE", 104L, "ROOT1|NODE1|XNODE");
+        createNode(106L, "ANODE", 104L, "ROOT1|NODE1|ANODE");
+        createSensor(202L, "SENSOR2", grandchild1);
+        createSensor(203L, "ASENSOR", grandchild1);
+        createNode(160L, "OTHER", 102L, "ROOT2|OTHER");
+        List<NodeDto> subtree = new java.util.ArrayList<>();
+
+        long statements = countStatements(() -> treeDataService.streamSubtree(101L, subtree::add));
+
+        assertThat(subtree).extracting(NodeDto::getName).containsExactly(
+                "ROOT1", "SENSOR1", "NODE1", "ASENSOR", "SENSOR2", "ANODE", "XNODE", "NODE1-1");
+        assertThat(subtree).extracting(NodeDto::getParentId).containsExactly(
+                "1", "101", "101", "104", "104", "104", "104", "101");
+        assertThat(subtree).extracting(NodeDto::getHasChildren).containsExactly(
+                true, false, true, false, false, false, false, false);
+        // The path lookup and one cursor, however large the subtree
+        assertThat(statements).isEqualTo(2);
+
+        List<NodeDto> whole = new java.util.ArrayList<>();
+        treeDataService.streamSubtree(1L, whole::add);
+        assertThat(whole).extracting(NodeDto::getName).endsWith("NODE1-1", "ROOT2", "OTHER").hasSize(10);
+
+        List<NodeDto> fromSnapshot = new java.util.ArrayList<>();
+        new SnapshotTreeReader(snapshotLoader.load()).streamSubtree(1L, fromSnapshot::add);
+        // Only the snapshot carries descendant counts
+        assertThat(fromSnapshot).usingRecursiveFieldByFieldElementComparatorIgnoringFields(
+                "descendantFolders", "descendantSensors").containsExactlyElementsOf(whole);
+
+        List<NodeDto> unknown = new java.util.ArrayList<>();
+        treeDataService.streamSubtree(999L, unknown::add);
+        assertThat(unknown).isEmpty();
+    }
+
+    @Test
+    void testStreamSubtreeLeavesOutNodesParentedOffTheirPath() {
+        // data.sql shape: NODE2-1 sits under NODE1 by path but under NODE2 by parent
+        createNode(105L, "NODE2", 101L, "ROOT1|NODE2");
+        Node node21 = createNode(109L, "NODE2-1", 105L, "ROOT1|NODE1|NODE2-1");
+        createSensor(202L, "SENSOR2", node21);
+        createNode(108L, null, 105L, "ROOT1|NODE2|?");
+        createNode(107L, "NODE1-1", 104L, "ROOT1|NODE1|NODE1-1");
+        createNode(110L, "NODE1-1-1", 107L, "ROOT1|NODE1|NODE1-1|NODE1-1-1");
+        createNode(111L, "NODE1-1-1-1", 110L, "ROOT1|NODE1|NODE1-1|NODE1-1-1|NODE1-1-1-1");
+        entityManager.flush();
+        SnapshotTreeReader snapshotReader = new SnapshotTreeReader(snapshotLoader.load());
+
+        for (long nodeId : new long[] {104L, 105L}) {
+            List<NodeDto> exported = new java.util.ArrayList<>();
+            treeDataService.streamSubtree(nodeId, exported::add);
+            List<NodeDto> fromSnapshot = new java.util.ArrayList<>();
+            snapshotReader.streamSubtree(nodeId, fromSnapshot::add);
+
+            assertThat(fromSnapshot).usingRecursiveFieldByFieldElementComparatorIgnoringFields(
+                    "descendantFolders", "descendantSensors").containsExactlyElementsOf(exported);
+            if (nodeId == 104L) {
+                // NODE2-1 and its sensor are scanned under NODE1's path but belong to neither export
+                assertThat(exported).extracting(NodeDto::getId).containsExactly("104", "107", "110", "111");
+            } else {
+                assertThat(exported).extracting(NodeDto::getId).containsExactly("105", "108");
+            }
+        }
+    }
+
+    private void addChain(Long parentId, long firstId, int depth) {
+        Long parent = parentId;
+        for (long id = firstId; id < firstId + depth; id++) {
+            createNode(id, "DEEP" + id, parent, "DEEP" + id);
+            parent = id;
+        }
+    }
+
+    private void addChildrenWithSensors(Long parentId, long firstId, int count) {
+        for (int i = 0; i < count; i++) {
+            Node child = createNode(firstId + i, "CHILD" + (firstId + i), parentId, "CHILD" + (firstId + i));
+            createSensor(firstId + i, "SENSOR" + (firstId + i), child);
+        }
+    }
+
+    private double recorded(String summary, String operation) {
+        DistributionSummary recorded = meterRegistry.find(summary).tag("operation", operation).summary();
+        return recorded == null ? 0 : recorded.totalAmount();
+    }
+
+    private long countStatements(Runnable action) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
 }
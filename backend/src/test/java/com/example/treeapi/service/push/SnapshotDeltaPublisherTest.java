@@ -0,0 +1,70 @@
+package com.example.treeapi.service.push;
+
+import com.example.treeapi.dto.TreeDelta;
+import com.example.treeapi.service.snapshot.TreeSnapshot;
+import com.example.treeapi.service.snapshot.TreeSnapshotBuilder;
+import com.example.treeapi.service.snapshot.TreeSnapshotRefreshedEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SnapshotDeltaPublisherTest {
+
+    @Test
+    void testPublishesDeltasForSubscribedParentsOnly() {
+        TreeSnapshot before = new TreeSnapshotBuilder()
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addNode(104L, 101L, "NODE1", "ROOT1|NODE1")
+                .addNode(105L, 101L, "NODE2", "ROOT1|NODE2")
+                .addNode(106L, 101L, "NODE3", "ROOT1|NODE3")
+                .addNode(201L, 105L, "UNWATCHED", "ROOT1|NODE2|UNWATCHED")
+                .build(1L);
+        TreeSnapshot after = new TreeSnapshotBuilder()
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addNode(104L, 101L, "NODE1", "ROOT1|NODE1")
+                .addNode(105L, 101L, "NODE2-RENAMED", "ROOT1|NODE2")
+                .addNode(107L, 101L, "NODE4", "ROOT1|NODE4")
+                .addNode(108L, 104L, "NODE1-1", "ROOT1|NODE1|NODE1-1")
+                .build(2L);
+        TreeSubscriptions subscriptions = mock(TreeSubscriptions.class);
+        when(subscriptions.subscribedParentIds()).thenReturn(Set.of(101L));
+        TreeDeltaBroadcaster broadcaster = mock(TreeDeltaBroadcaster.class);
+
+        new SnapshotDeltaPublisher(subscriptions, broadcaster).onSnapshotRefreshed(new TreeSnapshotRefreshedEvent(before, after));
+
+        ArgumentCaptor<TreeDelta> deltas = ArgumentCaptor.forClass(TreeDelta.class);
+        verify(broadcaster, times(4)).enqueue(eq(101L), deltas.capture());
+        assertThat(deltas.getAllValues()).extracting(delta -> delta.getType() + " " + delta.getId()).containsExactlyInAnyOrder(
+                "UPDATED 104",  // gained a child
+                "UPDATED 105",  // renamed
+                "ADDED 107",
+                "REMOVED 106");
+        verifyNoMoreInteractions(broadcaster);
+    }
+
+    @Test
+    void testPatchedSnapshotOnlyDiffsChangedSubscribedParents() {
+        TreeSnapshot before = new TreeSnapshotBuilder()
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addNode(104L, 101L, "NODE1", "ROOT1|NODE1")
+                .build(1L);
+        TreeSnapshot after = new TreeSnapshotBuilder()
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addNode(104L, 101L, "NODE1-RENAMED", "ROOT1|NODE1")
+                .build(2L);
+        TreeSubscriptions subscriptions = mock(TreeSubscriptions.class);
+        when(subscriptions.subscribedParentIds()).thenReturn(Set.of(1L, 101L));
+        TreeDeltaBroadcaster broadcaster = mock(TreeDeltaBroadcaster.class);
+
+        new SnapshotDeltaPublisher(subscriptions, broadcaster)
+                .onSnapshotRefreshed(new TreeSnapshotRefreshedEvent(before, after, Set.of(101L, 104L)));
+
+        verify(broadcaster).enqueue(eq(101L), any(TreeDelta.class));
+        verifyNoMoreInteractions(broadcaster);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.treeapi.service.push;
+
+import com.example.treeapi.dto.NodeDto;
+import com.example.treeapi.dto.TreeDelta;
+import com.example.treeapi.dto.TreeDeltaBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TreeDeltaBroadcasterTest {
+
+    private SimpMessageSendingOperations messagingTemplate;
+    private ScheduledExecutorService scheduler;
+    private TreeDeltaBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessageSendingOperations.class);
+        scheduler = mock(ScheduledExecutorService.class);
+        broadcaster = new TreeDeltaBroadcaster(messagingTemplate, scheduler, 2, Duration.ofMillis(100));
+    }
+
+    @Test
+    void testCoalescesDeltasForTheSameChild() {
+        broadcaster.enqueue(101L, TreeDelta.added(node("1", "A")));
+        broadcaster.enqueue(101L, TreeDelta.removed(node("1", "A")));
+        broadcaster.enqueue(101L, TreeDelta.removed(node("2", "B")));
+        broadcaster.enqueue(101L, TreeDelta.added(node("2", "B2")));
+
+        // Only the first delta arms the timer; the added/removed pair cancelled out, so batch-size was never reached
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(100L), eq(TimeUnit.MILLISECONDS));
+        verify(scheduler, never()).execute(any());
+
+        broadcaster.flush();
+        ArgumentCaptor<TreeDeltaBatch> batch = ArgumentCaptor.forClass(TreeDeltaBatch.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/nodes/101"), batch.capture());
+        assertThat(batch.getValue().getDeltas()).singleElement().satisfies(delta -> {
+            assertThat(delta.getType()).isEqualTo(TreeDelta.Type.UPDATED);
+            assertThat(delta.getNode().getName()).isEqualTo("B2");
+        });
+    }
+
+    @Test
+    void testFlushesAtBatchSizeAndSplitsLargeBatches() {
+        broadcaster.enqueue(101L, TreeDelta.added(node("1", "A")));
+        broadcaster.enqueue(101L, TreeDelta.added(node("2", "B")));
+        broadcaster.enqueue(101L, TreeDelta.added(node("3", "C")));
+        broadcaster.enqueue(102L, TreeDelta.added(node("4", "D")));
+
+        verify(scheduler, atLeastOnce()).execute(any());
+        broadcaster.flush();
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/nodes/101"), any(TreeDeltaBatch.class));
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/nodes/102"), any(TreeDeltaBatch.class));
+
+        // Nothing left for the timer armed by the first delta
+        broadcaster.flush();
+        verifyNoMoreInteractions(messagingTemplate);
+        verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), any());
+    }
+
+    private static NodeDto node(String id, String name) {
+        NodeDto dto = new NodeDto();
+        dto.setId(id);
+        dto.setName(name);
+        dto.setType("folder");
+        return dto;
+    }
+}
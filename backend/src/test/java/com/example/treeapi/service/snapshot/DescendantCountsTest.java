@@ -0,0 +1,85 @@
+package com.example.treeapi.service.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DescendantCountsTest {
+
+    @Test
+    void agreesWithSubtreeWalkOnRandomTree() {
+        Random random = new Random(42);
+        TreeSnapshotBuilder builder = new TreeSnapshotBuilder().addNode(1L, null, "ROOT", "ROOT");
+        for (long id = 2; id <= 300; id++) {
+            builder.addNode(id, 1L + random.nextInt((int) id - 1), "N" + id, null);
+        }
+        for (long id = 1; id <= 50; id++) {
+            builder.addSensor(1000 + id, "S" + id);
+            for (int k = random.nextInt(3); k >= 0; k--) {
+                builder.addMapping(2L + random.nextInt(299), 1000 + id);
+            }
+        }
+        TreeSnapshot snapshot = builder.build(1L);
+        DescendantCounts counts = snapshot.descendantCounts();
+
+        for (int node = 0; node < snapshot.nodeCount(); node++) {
+            int[] walked = walk(snapshot, snapshot.nodeId(node));
+            assertThat(counts.folders(node)).as("folders below %d", snapshot.nodeId(node)).isEqualTo(walked[0]);
+            assertThat(counts.sensors(node)).as("sensors below %d", snapshot.nodeId(node)).isEqualTo(walked[1]);
+        }
+        assertThat(counts.folders(snapshot.indexOfNode(1L))).isEqualTo(299);
+    }
+
+    @Test
+    void addAlongChainMatchesRebuild() {
+        TreeSnapshotBuilder base = new TreeSnapshotBuilder()
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addNode(104L, 101L, "NODE1", "ROOT1|NODE1")
+                .addNode(105L, 104L, "NODE1-1", "ROOT1|NODE1|NODE1-1")
+                .addNode(102L, 1L, "ROOT2", "ROOT2")
+                .addSensor(201L, "SENSOR1")
+                .addSensor(202L, "SENSOR2")
+                .addMapping(104L, 201L);
+        TreeSnapshot before = base.build(1L);
+        TreeSnapshot after = base.addMapping(105L, 202L).build(2L);
+
+        int node = before.indexOfNode(105L);
+        int[][] counts = before.descendantCounts().copyArrays(before.nodeCount());
+        assertThat(DescendantCounts.addAlongChain(counts[0], counts[1], node, 0, 1, before::parentIndex)).isTrue();
+        DescendantCounts adjusted = DescendantCounts.of(counts[0], counts[1]);
+
+        assertThat(adjusted).isEqualTo(after.descendantCounts());
+        assertThat(adjusted.sensors(before.indexOfNode(101L))).isEqualTo(2);
+        assertThat(adjusted.sensors(before.indexOfNode(102L))).isZero();
+        // The original is untouched
+        assertThat(before.descendantCounts().sensors(before.indexOfNode(101L))).isEqualTo(1);
+    }
+
+    @Test
+    void cycleDoesNotHang() {
+        TreeSnapshot snapshot = new TreeSnapshotBuilder()
+                .addNode(10L, 11L, "A", null)
+                .addNode(11L, 10L, "B", null)
+                .addNode(12L, 10L, "C", null)
+                .build(1L);
+        DescendantCounts counts = snapshot.descendantCounts();
+
+        assertThat(counts.folders(snapshot.indexOfNode(12L))).isZero();
+        int[][] arrays = counts.copyArrays(snapshot.nodeCount());
+        int node = snapshot.indexOfNode(12L);
+        assertThat(DescendantCounts.addAlongChain(arrays[0], arrays[1], node, 1, 0, snapshot::parentIndex)).isFalse();
+        assertThat(arrays[0][node]).isEqualTo(1);
+    }
+
+    private static int[] walk(TreeSnapshot snapshot, long nodeId) {
+        int[] totals = {0, snapshot.sensorsOf(snapshot.indexOfNode(nodeId)).length};
+        for (int child : snapshot.childFoldersOf(nodeId)) {
+            int[] below = walk(snapshot, snapshot.nodeId(child));
+            totals[0] += 1 + below[0];
+            totals[1] += below[1];
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.treeapi.service.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NgramIndexTest {
+
+    @Test
+    void matchesCaseInsensitiveContainsSemantics() {
+        String[] names = {"SENSOR1", "sensor10", "Node1-1", null, "NODE1-1-1", "AAAA", "ROOT"};
+        NgramIndex index = NgramIndex.build(names);
+
+        assertThat(index.search("sensor1")).containsExactly(0, 1);
+        assertThat(index.search("1-1")).containsExactly(2, 4);
+        assertThat(index.search("AAA")).containsExactly(5);
+        assertThat(index.search("o")).containsExactly(0, 1, 2, 4, 6);
+        assertThat(index.search("XYZ")).isEmpty();
+        // All trigrams present, but not contiguous
+        assertThat(index.search("ROOTSENSOR")).isEmpty();
+    }
+
+    @Test
+    void agreesWithLinearScanOnRandomNames() {
+        Random random = new Random(42);
+        String alphabet = "abcAB-_1";
+        String[] names = new String[2000];
+        for (int i = 0; i < names.length; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int c = 0; c < length; c++) {
+                name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            names[i] = name.toString();
+        }
+        NgramIndex index = NgramIndex.build(names);
+
+        for (int q = 0; q < 300; q++) {
+            String source = names[random.nextInt(names.length)];
+            int from = random.nextInt(source.length());
+            String query = source.substring(from, Math.min(source.length(), from + 1 + random.nextInt(5)));
+            String upper = query.toUpperCase(Locale.ROOT);
+            int[] expected = IntStream.range(0, names.length)
+                    .filter(i -> names[i].toUpperCase(Locale.ROOT).contains(upper))
+                    .toArray();
+
+            assertThat(index.search(query)).as(query).containsExactly(expected);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.treeapi.service.snapshot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TreeChangeApplierTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @TempDir
+    Path directory;
+
+    // A private loader and holder with the change log on, so the application's holder keeps serving from the
+    // database for the other tests
+    private final List<TreeSnapshotRefreshedEvent> events = new ArrayList<>();
+    private TreeSnapshotLoader loader;
+    private TreeSnapshotHolder holder;
+
+    @BeforeEach
+    void setUp() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        clear();
+        insertNode(1L, null, "ROOT", "ROOT");
+        insertNode(101L, 1L, "ROOT1", "ROOT1");
+        insertNode(102L, 1L, "ROOT2", "ROOT2");
+        insertNode(104L, 101L, "NODE1", "ROOT1|NODE1");
+        jdbcTemplate.update("INSERT INTO SENSOR_INFO (ID, SENSOR_NAME) VALUES (201, 'SENSOR1')");
+        jdbcTemplate.update("INSERT INTO NODE_SENSOR_MAP (NODE_ID, SENSOR_ID) VALUES (104, 201)");
+
+        loader = new TreeSnapshotLoader(jdbcTemplate, "", true, Duration.ofSeconds(30));
+        holder = holder("");
+        holder.refresh();
+        events.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clear();
+    }
+
+    @Test
+    void appliesLoggedRowsWithoutReloading() {
+        TreeChangeApplier applier = applier(Duration.ofSeconds(30));
+        applier.init();
+        jdbcTemplate.update("UPDATE NODE_INFO SET NODE_NAME = 'NODE1-RENAMED' WHERE ID = 104");
+        insertNode(105L, 102L, "NODE5", "ROOT2|NODE5");
+        jdbcTemplate.update("INSERT INTO SENSOR_INFO (ID, SENSOR_NAME) VALUES (202, 'SENSOR2')");
+        jdbcTemplate.update("INSERT INTO NODE_SENSOR_MAP (NODE_ID, SENSOR_ID) VALUES (105, 202)");
+        jdbcTemplate.update("DELETE FROM NODE_SENSOR_MAP WHERE NODE_ID = 104");
+        log(1, "N", 104L, null);
+        log(2, "N", 105L, null);
+        log(3, "S", null, 202L);
+        log(4, "M", 105L, 202L);
+        log(5, "M", 104L, 201L);
+
+        assertThat(applier.poll()).isEqualTo(5);
+
+        TreeSnapshot snapshot = holder.current();
+        assertThat(snapshot.nodeName(snapshot.indexOfNode(104L))).isEqualTo("NODE1-RENAMED");
+        assertThat(snapshot.childFoldersOf(102L)).containsExactly(snapshot.indexOfNode(105L));
+        assertThat(snapshot.sensorsOf(snapshot.indexOfNode(105L))).containsExactly(snapshot.indexOfSensor(202L));
+        assertThat(snapshot.sensorsOf(snapshot.indexOfNode(104L))).isEmpty();
+        assertThat(snapshot.descendantCounts().sensors(snapshot.indexOfNode(101L))).isZero();
+        assertThat(snapshot.descendantCounts().sensors(snapshot.indexOfNode(102L))).isEqualTo(1);
+        assertThat(snapshot.findNodesByName("renamed")).containsExactly(snapshot.indexOfNode(104L));
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.previous().getVersion()).isLessThan(event.current().getVersion());
+            assertThat(event.changedParentIds()).contains(1L, 101L, 102L, 104L, 105L);
+        });
+
+        // Nothing new: no query beyond the log, no new snapshot
+        assertThat(applier.poll()).isZero();
+        assertThat(holder.current()).isSameAs(snapshot);
+    }
+
+    @Test
+    void waitsForSeqCommittedOutOfOrderAndToleratesReplays() {
+        TreeChangeApplier applier = applier(Duration.ofSeconds(30));
+        applier.init();
+        jdbcTemplate.update("DELETE FROM NODE_SENSOR_MAP WHERE NODE_ID = 104");
+        jdbcTemplate.update("DELETE FROM NODE_INFO WHERE ID = 104");
+        log(1, "M", 104L, 201L);
+        log(3, "N", 104L, null);
+
+        assertThat(applier.poll()).isEqualTo(2);
+        assertThat(holder.current().indexOfNode(104L)).isNegative();
+        assertThat(holder.current().childFoldersOf(101L)).isEmpty();
+
+        // SEQ 2 was handed out first but committed last
+        jdbcTemplate.update("DELETE FROM SENSOR_INFO WHERE ID = 201");
+        log(2, "S", null, 201L);
+        assertThat(applier.poll()).isEqualTo(1);
+        assertThat(holder.current().indexOfSensor(201L)).isNegative();
+
+        // A replayed row matches the snapshot already
+        TreeSnapshot snapshot = holder.current();
+        log(4, "N", 104L, null);
+        assertThat(applier.poll()).isEqualTo(1);
+        assertThat(holder.current()).isSameAs(snapshot);
+        assertThat(events).hasSize(2);
+    }
+
+    @Test
+    void givesUpOnGapsAfterTimeout() {
+        TreeChangeApplier applier = applier(Duration.ZERO);
+        applier.init();
+        log(1, "N", 104L, null);
+        log(3, "N", 104L, null);
+        assertThat(applier.poll()).isEqualTo(2);
+
+        log(2, "N", 102L, null);
+        assertThat(applier.poll()).isZero();
+    }
+
+    @Test
+    void warmStartCatchesUpFromTheSeqInTheFile() throws Exception {
+        String file = directory.resolve("tree.snapshot").toString();
+        TreeSnapshotHolder writer = holder(file);
+        writer.refresh();
+        long position = writer.changeLogSeq();
+
+        // Logged after the file was written, while the application was down: a rename the row counts miss
+        jdbcTemplate.update("UPDATE NODE_INFO SET NODE_NAME = 'NODE1-RENAMED' WHERE ID = 104");
+        log(1, "N", 104L, null);
+
+        holder = holder(file);
+        assertThat(holder.warmStart()).isTrue();
+        assertThat(holder.changeLogSeq()).isEqualTo(position);
+        TreeSnapshot fromFile = holder.current();
+        assertThat(fromFile.nodeName(fromFile.indexOfNode(104L))).isEqualTo("NODE1");
+
+        TreeChangeApplier applier = applier(Duration.ofSeconds(30));
+        assertThat(applier.poll()).isPositive();
+        assertThat(holder.current().nodeName(holder.current().indexOfNode(104L))).isEqualTo("NODE1-RENAMED");
+
+        // Once retention has deleted rows after the file's position, only a full load is safe
+        log(2, "N", 104L, null);
+        jdbcTemplate.update("DELETE FROM TREE_CHANGE_LOG WHERE SEQ <= ?", position + 1);
+        assertThat(holder(file).warmStart()).isFalse();
+    }
+
+    private TreeSnapshotHolder holder(String file) {
+        return new TreeSnapshotHolder(loader, event -> events.add((TreeSnapshotRefreshedEvent) event),
+                null, true, Duration.ZERO, file);
+    }
+
+    private TreeChangeApplier applier(Duration gapTimeout) {
+        return new TreeChangeApplier(jdbcTemplate, holder, null, new SimpleMeterRegistry(),
+                true, true, Duration.ofSeconds(2), 5000, gapTimeout);
+    }
+
+    private void insertNode(long id, Long parentId, String name, String path) {
+        jdbcTemplate.update("INSERT INTO NODE_INFO (ID, NODE_PATH, NODE_NAME, PARENT_ID) VALUES (?, ?, ?, ?)",
+                id, path, name, parentId);
+    }
+
+    private void log(long seq, String type, Long nodeId, Long sensorId) {
+        jdbcTemplate.update("INSERT INTO TREE_CHANGE_LOG (SEQ, CHANGE_TYPE, NODE_ID, SENSOR_ID) VALUES (?, ?, ?, ?)",
+                seq, type, nodeId, sensorId);
+    }
+
+    private void clear() {
+        jdbcTemplate.update("DELETE FROM TREE_CHANGE_LOG");
+        jdbcTemplate.update("DELETE FROM NODE_SENSOR_MAP");
+        jdbcTemplate.update("DELETE FROM SENSOR_INFO");
+        jdbcTemplate.update("DELETE FROM NODE_INFO");
+    }
+}
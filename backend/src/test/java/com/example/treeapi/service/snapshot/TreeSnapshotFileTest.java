@@ -0,0 +1,94 @@
+package com.example.treeapi.service.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TreeSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    private static TreeSnapshot sample() {
+        return new TreeSnapshotBuilder()
+                .addNode(1L, null, "ROOT", "ROOT")
+                .addNode(102L, 1L, "ROOT2", "ROOT2")
+                .addNode(101L, 1L, "ROOT1", "ROOT1")
+                .addNode(104L, 101L, "NODE1", "ROOT1|NODE1")
+                .addNode(105L, 104L, "센서노드", null)
+                .addNode(106L, 999L, "NODE1", "ORPHAN|NODE1")
+                .addSensor(201L, "SENSOR1")
+                .addSensor(202L, null)
+                .addMapping(101L, 201L)
+                .addMapping(104L, 201L)
+                .addMapping(105L, 202L)
+                .build(1L);
+    }
+
+    @Test
+    void roundTripsColumnsAndDerivedIndexes() throws IOException {
+        TreeSnapshot written = sample();
+        Path file = directory.resolve("tree.snapshot");
+        TreeSnapshotFile.write(written, "7:106:2:202:3:105", 315L, file);
+
+        TreeSnapshotFile.Contents contents = TreeSnapshotFile.read(file, 42L);
+        TreeSnapshot read = contents.snapshot();
+
+        assertThat(contents.versionMarker()).isEqualTo("7:106:2:202:3:105");
+        assertThat(contents.changeLogSeq()).isEqualTo(315L);
+        assertThat(read.getVersion()).isEqualTo(42L);
+        assertThat(read.nodeCount()).isEqualTo(written.nodeCount());
+        for (int node = 0; node < written.nodeCount(); node++) {
+            assertThat(read.nodeId(node)).isEqualTo(written.nodeId(node));
+            assertThat(read.parentId(node)).isEqualTo(written.parentId(node));
+            assertThat(read.nodeName(node)).isEqualTo(written.nodeName(node));
+            assertThat(read.nodePath(node)).isEqualTo(written.nodePath(node));
+            assertThat(read.sensorsOf(node)).isEqualTo(written.sensorsOf(node));
+            assertThat(read.childFoldersOf(written.nodeId(node))).isEqualTo(written.childFoldersOf(written.nodeId(node)));
+        }
+        assertThat(read.sensorCount()).isEqualTo(written.sensorCount());
+        assertThat(read.sensorName(read.indexOfSensor(202L))).isNull();
+        assertThat(read.nodesOf(read.indexOfSensor(201L))).isEqualTo(written.nodesOf(written.indexOfSensor(201L)));
+        assertThat(read.descendantCounts()).isEqualTo(written.descendantCounts());
+        assertThat(read.findNodesByName("node1")).isEqualTo(written.findNodesByName("node1"));
+        // Equal names are pooled: both NODE1 folders share one decoded string
+        assertThat(read.nodeName(read.indexOfNode(104L))).isSameAs(read.nodeName(read.indexOfNode(106L)));
+    }
+
+    @Test
+    void rejectsCorruptAndForeignFiles() throws IOException {
+        Path file = directory.resolve("tree.snapshot");
+        TreeSnapshotFile.write(sample(), "marker", -1L, file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        bytes[bytes.length - 9] ^= 1;
+        Files.write(file, bytes);
+        assertThatThrownBy(() -> TreeSnapshotFile.read(file, 1L)).isInstanceOf(IOException.class)
+                .hasMessageContaining("Corrupt");
+
+        Files.writeString(file, "NODE_INFO,SENSOR_INFO,NODE_SENSOR_MAP exported as CSV\n");
+        assertThatThrownBy(() -> TreeSnapshotFile.read(file, 1L)).isInstanceOf(IOException.class)
+                .hasMessageContaining("Not a tree snapshot");
+    }
+
+    @Test
+    void rewriteReplacesFileAtomically() throws IOException {
+        Path file = directory.resolve("tree.snapshot");
+        TreeSnapshotFile.write(sample(), "first", 1L, file);
+        TreeSnapshotFile.write(new TreeSnapshotBuilder().build(2L), "second", -1L, file);
+
+        TreeSnapshotFile.Contents contents = TreeSnapshotFile.read(file, 3L);
+        assertThat(contents.versionMarker()).isEqualTo("second");
+        assertThat(contents.changeLogSeq()).isEqualTo(-1L);
+        assertThat(contents.snapshot().nodeCount()).isZero();
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.treeapi.service.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TreeSnapshotPatchTest {
+
+    @TempDir
+    Path directory;
+
+    // Current table contents; every patched snapshot must answer like a snapshot built from these
+    private final Map<Long, Object[]> nodes = new TreeMap<>();
+    private final Map<Long, String> sensors = new TreeMap<>();
+    private final Set<List<Long>> mappings = new HashSet<>();
+
+    @Test
+    void patchedSnapshotsMatchRebuiltSnapshots() throws IOException {
+        Random random = new Random(7);
+        for (long id = 2; id <= 60; id++) {
+            nodes.put(id, new Object[] {id < 5 ? 1L : 2L + random.nextInt((int) id - 2), name(random), "P" + id});
+        }
+        for (long id = 1; id <= 40; id++) {
+            sensors.put(1000 + id, name(random));
+            mappings.add(List.of(2L + random.nextInt(59), 1000 + id));
+        }
+        TreeSnapshot snapshot = rebuild(1L);
+
+        for (int batch = 0; batch < 200; batch++) {
+            TreeSnapshotPatch patch = new TreeSnapshotPatch();
+            for (int change = 1 + random.nextInt(6); change > 0; change--) {
+                randomChange(random, patch);
+            }
+            TreeSnapshotPatch.Result result = patch.apply(snapshot, batch + 2L);
+            assertMatches(result.snapshot(), rebuild(0L));
+            snapshot = result.snapshot();
+        }
+
+        // A patched snapshot is written without its dead slots
+        Path file = directory.resolve("tree.snapshot");
+        TreeSnapshotFile.write(snapshot, "m", -1L, file);
+        TreeSnapshot reloaded = TreeSnapshotFile.read(file, 99L).snapshot();
+        assertMatches(reloaded, rebuild(0L));
+        assertThat(reloaded.nodeCount()).isEqualTo(nodes.size());
+    }
+
+    @Test
+    void unchangedRowsKeepTheSnapshotAndUntouchedListsAreShared() {
+        nodes.put(101L, new Object[] {1L, "ROOT1", "ROOT1"});
+        nodes.put(102L, new Object[] {1L, "ROOT2", "ROOT2"});
+        nodes.put(104L, new Object[] {101L, "NODE1", "ROOT1|NODE1"});
+        nodes.put(105L, new Object[] {102L, "NODE2", "ROOT2|NODE2"});
+        sensors.put(201L, "SENSOR1");
+        mappings.add(List.of(104L, 201L));
+        TreeSnapshot base = rebuild(1L);
+
+        TreeSnapshotPatch.Result same = new TreeSnapshotPatch()
+                .putNode(104L, 101L, "NODE1", "ROOT1|NODE1")
+                .putMapping(104L, 201L)
+                .removeNode(999L)
+                .apply(base, 2L);
+        assertThat(same.snapshot()).isSameAs(base);
+        assertThat(same.changedParentIds()).isEmpty();
+
+        TreeSnapshotPatch.Result renamed = new TreeSnapshotPatch()
+                .putNode(104L, 101L, "NODE1-RENAMED", "ROOT1|NODE1-RENAMED")
+                .apply(base, 2L);
+        assertThat(renamed.changedParentIds()).containsExactlyInAnyOrder(104L, 101L, 1L);
+        assertThat(renamed.snapshot().childFoldersOf(102L)).isSameAs(base.childFoldersOf(102L));
+        assertThat(renamed.snapshot().sensorsOf(base.indexOfNode(104L))).isSameAs(base.sensorsOf(base.indexOfNode(104L)));
+        assertThat(renamed.snapshot().findNodesByName("renamed")).containsExactly(base.indexOfNode(104L));
+        assertThat(renamed.snapshot().findNodesByName("NODE1")).containsExactly(base.indexOfNode(104L));
+        // The base is untouched for readers still holding it
+        assertThat(base.nodeName(base.indexOfNode(104L))).isEqualTo("NODE1");
+        assertThat(base.findNodesByName("renamed")).isEmpty();
+    }
+
+    private void randomChange(Random random, TreeSnapshotPatch patch) {
+        long nodeId = 2L + random.nextInt(70);
+        long sensorId = 1001L + random.nextInt(50);
+        switch (random.nextInt(8)) {
+            case 0, 1 -> {
+                // Insert, rename or move; parents may be missing rows, and moves may create cycles
+                Object[] row = {random.nextInt(10) == 0 ? null : (Long) (1L + random.nextInt(72)), name(random), "P" + nodeId};
+                nodes.put(nodeId, row);
+                patch.putNode(nodeId, (Long) row[0], (String) row[1], (String) row[2]);
+            }
+            case 2 -> {
+                nodes.remove(nodeId);
+                removeMappings(patch, 0, nodeId);
+                patch.removeNode(nodeId);
+            }
+            case 3 -> {
+                String name = random.nextInt(10) == 0 ? null : name(random);
+                sensors.put(sensorId, name);
+                patch.putSensor(sensorId, name);
+            }
+            case 4 -> {
+                sensors.remove(sensorId);
+                removeMappings(patch, 1, sensorId);
+                patch.removeSensor(sensorId);
+            }
+            case 5, 6 -> {
+                if (nodes.containsKey(nodeId) && sensors.containsKey(sensorId)) {
+                    mappings.add(List.of(nodeId, sensorId));
+                    patch.putMapping(nodeId, sensorId);
+                }
+            }
+            default -> {
+                mappings.remove(List.of(nodeId, sensorId));
+                patch.removeMapping(nodeId, sensorId);
+            }
+        }
+    }
+
+    // Deleting a row deletes its NODE_SENSOR_MAP rows too, and each of those is logged on its own
+    private void removeMappings(TreeSnapshotPatch patch, int column, long id) {
+        for (Iterator<List<Long>> it = mappings.iterator(); it.hasNext(); ) {
+            List<Long> mapping = it.next();
+            if (mapping.get(column) == id) {
+                it.remove();
+                patch.removeMapping(mapping.get(0), mapping.get(1));
+            }
+        }
+    }
+
+    private static String name(Random random) {
+        return "N" + (char) ('A' + random.nextInt(4)) + (char) ('A' + random.nextInt(4)) + random.nextInt(5);
+    }
+
+    private TreeSnapshot rebuild(long version) {
+        TreeSnapshotBuilder builder = new TreeSnapshotBuilder();
+        nodes.forEach((id, row) -> builder.addNode(id, (Long) row[0], (String) row[1], (String) row[2]));
+        sensors.forEach(builder::addSensor);
+        mappings.forEach(mapping -> builder.addMapping(mapping.get(0), mapping.get(1)));
+        return builder.build(version);
+    }
+
+    private static void assertMatches(TreeSnapshot actual, TreeSnapshot expected) {
+        Set<Long> parentIds = new TreeSet<>(List.of(TreeSnapshot.VIRTUAL_ROOT_ID));
+        for (long id = 1; id <= 75; id++) {
+            parentIds.add(id);
+        }
+        for (long parentId : parentIds) {
+            assertThat(nodeIds(actual, actual.childFoldersOf(parentId)))
+                    .as("children of %d", parentId).isEqualTo(nodeIds(expected, expected.childFoldersOf(parentId)));
+        }
+        assertThat(liveNodes(actual)).isEqualTo(liveNodes(expected));
+        for (long id : liveNodes(expected)) {
+            int a = actual.indexOfNode(id);
+            int e = expected.indexOfNode(id);
+            assertThat(actual.nodeName(a)).isEqualTo(expected.nodeName(e));
+            assertThat(actual.nodePath(a)).isEqualTo(expected.nodePath(e));
+            assertThat(actual.parentId(a)).isEqualTo(expected.parentId(e));
+            assertThat(actual.parentIndex(a) < 0 ? null : actual.nodeId(actual.parentIndex(a)))
+                    .isEqualTo(expected.parentIndex(e) < 0 ? null : expected.nodeId(expected.parentIndex(e)));
+            assertThat(actual.hasChildren(a)).as("hasChildren of %d", id).isEqualTo(expected.hasChildren(e));
+            assertThat(sensorIds(actual, actual.sensorsOf(a))).isEqualTo(sensorIds(expected, expected.sensorsOf(e)));
+            if (!onCycle(expected, e)) {
+                assertThat(actual.descendantCounts().folders(a)).as("folders below %d", id)
+                        .isEqualTo(expected.descendantCounts().folders(e));
+                assertThat(actual.descendantCounts().sensors(a)).as("sensors below %d", id)
+                        .isEqualTo(expected.descendantCounts().sensors(e));
+            }
+        }
+        for (int e = 0; e < expected.sensorCount(); e++) {
+            int a = actual.indexOfSensor(expected.sensorId(e));
+            assertThat(a).isNotNegative();
+            assertThat(actual.sensorName(a)).isEqualTo(expected.sensorName(e));
+            assertThat(nodeIds(actual, actual.nodesOf(a))).containsExactlyInAnyOrderElementsOf(
+                    nodeIds(expected, expected.nodesOf(e)));
+        }
+        assertThat(liveSensorCount(actual)).isEqualTo(expected.sensorCount());
+        for (String query : List.of("NA", "AB", "NBC", "C1", "ND", "NAA0")) {
+            assertThat(new TreeSet<>(nodeIds(actual, actual.findNodesByName(query))))
+                    .isEqualTo(new TreeSet<>(nodeIds(expected, expected.findNodesByName(query))));
+            assertThat(new TreeSet<>(sensorIds(actual, actual.findSensorsByName(query))))
+                    .isEqualTo(new TreeSet<>(sensorIds(expected, expected.findSensorsByName(query))));
+        }
+    }
+
+    // Counts on a PARENT_ID cycle depend on the order changes arrived in, so only acyclic nodes are compared
+    private static boolean onCycle(TreeSnapshot snapshot, int node) {
+        for (int current = snapshot.parentIndex(node), steps = 0; current >= 0 && steps <= snapshot.nodeCount();
+             current = snapshot.parentIndex(current), steps++) {
+            if (current == node || steps == snapshot.nodeCount()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<Long> liveNodes(TreeSnapshot snapshot) {
+        Set<Long> ids = new TreeSet<>();
+        for (int node = 0; node < snapshot.nodeCount(); node++) {
+            if (snapshot.isLiveNode(node)) {
+                ids.add(snapshot.nodeId(node));
+            }
+        }
+        return ids;
+    }
+
+    private static List<Long> nodeIds(TreeSnapshot snapshot, int[] nodes) {
+        return Arrays.stream(nodes).mapToObj(snapshot::nodeId).collect(Collectors.toList());
+    }
+
+    private static List<Long> sensorIds(TreeSnapshot snapshot, int[] sensors) {
+        return Arrays.stream(sensors).mapToObj(snapshot::sensorId).collect(Collectors.toList());
+    }
+
+    private static int liveSensorCount(TreeSnapshot snapshot) {
+        int live = 0;
+        for (int sensor = 0; sensor < snapshot.sensorCount(); sensor++) {
+            if (snapshot.isLiveSensor(sensor)) {
+                live++;
+            }
+        }
+        return live;
+    }
+}
@@ -11,6 +11,8 @@ export const useTreeStore = defineStore("tree", () => {
   const sensorNodes = ref<Map<string, any>>(new Map());
   const children = ref<Map<string | null, { id: string; type: string }[]>>(new Map());
   const openNodes = ref<Record<string, boolean>>({});
+  // Version of each child list as last returned by the batch endpoint; lets the server skip unchanged lists
+  const childrenVersions = new Map<string, string>();
 
   // Search
   const searchQuery = ref("");
@@ -93,6 +95,43 @@ export const useTreeStore = defineStore("tree", () => {
 
 
 
+  // The server accepts at most this many parent ids per batch request
+  const CHILDREN_BATCH_SIZE = 1000;
+
+  async function fetchChildrenBatch(parentIds: string[]) {
+    const config = useRuntimeConfig();
+    for (let i = 0; i < parentIds.length; i += CHILDREN_BATCH_SIZE) {
+      const chunk = parentIds.slice(i, i + CHILDREN_BATCH_SIZE);
+      const versions: Record<string, string> = {};
+      for (const id of chunk) {
+        const version = childrenVersions.get(id);
+        if (version && children.value.has(id)) versions[id] = version;
+      }
+
+      const response = await fetch(
+        `${config.public.apiBaseUrl}/api/nodes/children:batch`,
+        {
+          method: "POST",
+          headers: { "Content-Type": "application/json" },
+          body: JSON.stringify({ parentIds: chunk.map(Number), versions }),
+        },
+      );
+      if (!response.ok) throw new Error("Failed to fetch children batch");
+      const entries = await response.json();
+
+      for (const parentId in entries) {
+        const entry = entries[parentId];
+        childrenVersions.set(parentId, entry.version);
+        if (entry.notModified) continue;
+        addNodes(entry.children);
+        children.value.set(
+          parentId,
+          entry.children.map((n: any) => ({ id: n.id, type: n.type })),
+        );
+      }
+    }
+  }
+
   async function revealPath(nodeId: string) {
     const config = useRuntimeConfig();
     try {
@@ -132,10 +171,8 @@ export const useTreeStore = defineStore("tree", () => {
       const openNodeIds = Object.keys(openNodes.value).filter(
         (id) => openNodes.value[id],
       );
-      const refreshPromises = openNodeIds.map((id) => fetchNodes(id, true));
-      refreshPromises.push(fetchNodes(null, true));
-
-      await Promise.all(refreshPromises);
+      // One request for all expanded nodes instead of one per node
+      await Promise.all([fetchChildrenBatch(openNodeIds), fetchNodes(null, true)]);
       searchStatus.value = "Tree refreshed successfully!";
     } catch (error) {
       console.error("Error refreshing nodes:", error);